@@ -0,0 +1,16 @@
+package android.os;
+
+import java.io.File;
+
+/**
+ * 基准测试用的android.os.Environment桩实现，外部存储为系统临时文件夹下的ueueo-log-benchmark文件夹
+ */
+public final class Environment {
+
+    private Environment() {
+    }
+
+    public static File getExternalStorageDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"), "ueueo-log-benchmark");
+    }
+}
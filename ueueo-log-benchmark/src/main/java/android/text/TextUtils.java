@@ -0,0 +1,14 @@
+package android.text;
+
+/**
+ * 基准测试用的android.text.TextUtils桩实现
+ */
+public final class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
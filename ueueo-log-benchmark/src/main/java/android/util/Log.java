@@ -0,0 +1,69 @@
+package android.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * 基准测试用的android.util.Log桩实现
+ * <p>
+ * 不输出日志，只遍历一遍日志内容，模拟logcat拷贝日志内容的开销，避免日志内容的构造被JIT优化掉
+ */
+public final class Log {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    //几乎不会被写入，只用来保证日志内容被使用
+    private static volatile String sLast;
+
+    private Log() {
+    }
+
+    public static int v(String tag, String msg) {
+        return println(VERBOSE, tag, msg);
+    }
+
+    public static int d(String tag, String msg) {
+        return println(DEBUG, tag, msg);
+    }
+
+    public static int i(String tag, String msg) {
+        return println(INFO, tag, msg);
+    }
+
+    public static int w(String tag, String msg) {
+        return println(WARN, tag, msg);
+    }
+
+    public static int e(String tag, String msg) {
+        return println(ERROR, tag, msg);
+    }
+
+    public static int wtf(String tag, String msg) {
+        return println(ASSERT, tag, msg);
+    }
+
+    public static int println(int priority, String tag, String msg) {
+        int hash = priority;
+        for (int i = 0, length = msg.length(); i < length; i++) {
+            hash = hash * 31 + msg.charAt(i);
+        }
+        if (hash == tag.length()) {
+            sLast = msg;
+        }
+        return hash;
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        StringWriter writer = new StringWriter();
+        tr.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
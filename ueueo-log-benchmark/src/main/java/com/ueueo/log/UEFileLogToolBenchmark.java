@@ -0,0 +1,83 @@
+package com.ueueo.log;
+
+import android.os.Environment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只输出到{@link UEFileLogTool}时一条日志的吞吐量，日志文件写入系统临时文件夹，测试结束后删除
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UEFileLogToolBenchmark {
+
+    @Param({"0", "2"})
+    public int compressMode;
+
+    private UELogPrinter mPrinter;
+    private int mCounter;
+
+    @Setup
+    public void setup() {
+        deleteLogFiles();
+        mPrinter = new UELogPrinter();
+        UELogConfig config = mPrinter.getLogConfig();
+        config.tag("Benchmark").methodCount(0).printToFile(true);
+        config.removeLogTool(config.getLogToolList().get(0));
+        config.fileLogTool(new UEFileLogTool()
+                .maxFileSize(32 * 1024 * 1024)
+                .maxFileCount(4)
+                .compress(compressMode));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPrinter.shutdown();
+        deleteLogFiles();
+    }
+
+    @Benchmark
+    public void singleLine() {
+        mPrinter.d("message {} of {}", mCounter++, "benchmark");
+    }
+
+    @Benchmark
+    public void bordered() {
+        mPrinter.append("request {}", mCounter++).d("response {}", 200);
+    }
+
+    /**
+     * 删除基准测试写入的日志文件
+     */
+    static void deleteLogFiles() {
+        delete(new File(Environment.getExternalStorageDirectory(), "UELOG"));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ueueo.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程输出一条日志的吞吐量，日志输出到桩实现的logcat
+ * <p>
+ * methodCount为0时普通日志不加边框，为1、3时输出带边框和调用位置的日志
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UELogPrinterBenchmark {
+
+    private static final String JSON = "{\"id\":221,\"name\":\"my name is ueueo\",\"tags\":[\"a\",\"b\",\"c\"],"
+            + "\"owner\":{\"id\":1,\"desc\":\"this is description!\",\"score\":9.5,\"enabled\":true}}";
+    private static final String XML = "<user id=\"221\"><name>my name is ueueo</name><tags><tag>a</tag><tag>b</tag></tags>"
+            + "<owner id=\"1\"><desc>this is description!</desc></owner></user>";
+
+    @Param({"0", "1", "3"})
+    public int methodCount;
+
+    private UELogPrinter mPrinter;
+    private UELogPrinter mFilteredPrinter;
+    private User mUser;
+    private int mCounter;
+
+    @Setup
+    public void setup() {
+        mPrinter = new UELogPrinter();
+        mPrinter.getLogConfig().tag("Benchmark").methodCount(methodCount);
+        mFilteredPrinter = new UELogPrinter();
+        mFilteredPrinter.getLogConfig().tag("Benchmark").methodCount(methodCount).setLogLevel(UELogLevel.WARN);
+        mUser = new User();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPrinter.shutdown();
+        mFilteredPrinter.shutdown();
+    }
+
+    /**
+     * 低于日志级别的日志
+     */
+    @Benchmark
+    public void filteredOut() {
+        mFilteredPrinter.d("filtered message {} of {}", mCounter++, "benchmark");
+    }
+
+    /**
+     * 低于日志级别的链式调用，拼接的内容不会格式化
+     */
+    @Benchmark
+    public void filteredOutChain() {
+        mFilteredPrinter.tag("Net").method(0).append("request {}", mCounter++).appendJson(JSON).appendObject(mUser).d("response");
+    }
+
+    @Benchmark
+    public void text() {
+        mPrinter.d("message {} of {}", mCounter++, "benchmark");
+    }
+
+    @Benchmark
+    public void json() {
+        mPrinter.json(JSON);
+    }
+
+    @Benchmark
+    public void xml() {
+        mPrinter.xml(XML);
+    }
+
+    @Benchmark
+    public void object() {
+        mPrinter.object(mUser);
+    }
+
+    @Benchmark
+    public void appendChain() {
+        mPrinter.append("request {}", mCounter++).appendJson(JSON).append("status {}", 200).i("response");
+    }
+
+    static class User {
+        int id = 221;
+        String name = "my name is ueueo";
+        List<String> tags = new ArrayList<>();
+        boolean enabled = true;
+
+        User() {
+            tags.add("a");
+            tags.add("b");
+            tags.add("c");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ueueo.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程共用同一个打印机输出日志时的吞吐量，用来观察同步和异步模式下的锁竞争
+ * <p>
+ * 结果为所有线程合计的吞吐量，和threads1对比可以得到多线程的扩展倍数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UELogThreadsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    @Param({"false", "true"})
+    public boolean printToFile;
+
+    private UELogPrinter mPrinter;
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int value;
+    }
+
+    @Setup
+    public void setup() {
+        mPrinter = new UELogPrinter();
+        mPrinter.getLogConfig().tag("Benchmark").methodCount(0).printToFile(printToFile)
+                .asyncBufferSize(4096).async(async);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPrinter.shutdown();
+        UEFileLogToolBenchmark.deleteLogFiles();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads1(Counter counter) {
+        log(counter);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads4(Counter counter) {
+        log(counter);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void threads8(Counter counter) {
+        log(counter);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void threads16(Counter counter) {
+        log(counter);
+    }
+
+    private void log(Counter counter) {
+        mPrinter.d("thread message {}", counter.value++);
+    }
+}
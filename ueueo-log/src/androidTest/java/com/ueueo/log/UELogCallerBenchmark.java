@@ -0,0 +1,115 @@
+package com.ueueo.log;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 获取调用位置的耗时对比，需要在真机上运行，结果输出到logcat（Tag：UELogCallerBenchmark）
+ * <p>
+ * 分别测试methodCount为0、1、5时，原来的Thread.getStackTrace()方式和{@link UELogCaller}每次调用的平均耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class UELogCallerBenchmark {
+
+    private static final String TAG = "UELogCallerBenchmark";
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+    //和原来UELogPrinter中的值相同
+    private static final int MIN_STACK_OFFSET = 3;
+
+    private static final int[] METHOD_COUNTS = {0, 1, 5};
+
+    private String[] mFrames;
+    private int mSink;
+
+    @Test
+    public void captureCost() throws Exception {
+        for (int methodCount : METHOD_COUNTS) {
+            for (int i = 0; i < WARMUP; i++) {
+                legacy(methodCount);
+                capture(methodCount);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                legacy(methodCount);
+            }
+            long legacyNanos = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                capture(methodCount);
+            }
+            long captureNanos = (System.nanoTime() - start) / ITERATIONS;
+
+            Log.i(TAG, "methodCount=" + methodCount + "  Thread.getStackTrace: " + legacyNanos + "ns/call  UELogCaller: " + captureNanos + "ns/call");
+        }
+    }
+
+    /**
+     * 原来logHeaderContent中获取和拼接调用栈的方式，包括getStackOffset查找调用位置和调用栈数量的修正，只去掉了输出
+     */
+    private void legacy(int methodCount) {
+        if (methodCount <= 0) {
+            return;
+        }
+        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
+        String level = "";
+
+        int stackOffset = getStackOffset(trace);
+
+        if (methodCount + stackOffset > trace.length) {
+            methodCount = trace.length - stackOffset - 1;
+        }
+
+        for (int i = methodCount; i > 0; i--) {
+            int stackIndex = i + stackOffset;
+            if (stackIndex >= trace.length) {
+                continue;
+            }
+            StringBuilder builder = new StringBuilder();
+            builder.append("║ ")
+                    .append(level)
+                    .append(getSimpleClassName(trace[stackIndex].getClassName()))
+                    .append(".")
+                    .append(trace[stackIndex].getMethodName())
+                    .append(" ")
+                    .append(" (")
+                    .append(trace[stackIndex].getFileName())
+                    .append(":")
+                    .append(trace[stackIndex].getLineNumber())
+                    .append(")");
+            level += "   ";
+            mSink += builder.toString().length();
+        }
+    }
+
+    /**
+     * 和原来UELogPrinter中的实现相同
+     */
+    private int getStackOffset(StackTraceElement[] trace) {
+        for (int i = MIN_STACK_OFFSET; i < trace.length; i++) {
+            StackTraceElement e = trace[i];
+            String name = e.getClassName();
+            if (!name.equals(UELogPrinter.class.getName()) && !name.equals(UELog.class.getName())) {
+                return --i;
+            }
+        }
+        return -1;
+    }
+
+    private String getSimpleClassName(String name) {
+        int lastIndex = name.lastIndexOf(".");
+        return name.substring(lastIndex + 1);
+    }
+
+    private void capture(int methodCount) {
+        if (methodCount <= 0) {
+            return;
+        }
+        mFrames = UELogCaller.capture(methodCount, mFrames);
+        mSink += mFrames.length;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ueueo.log;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 多线程同时输出日志时的吞吐量，需要在真机上运行，结果输出到logcat（Tag：UELogContentionBenchmark）
+ * <p>
+ * 分别测试1、4、8、16个线程同步输出日志时每毫秒输出的日志条数，以及相对单线程的倍数
+ */
+@RunWith(AndroidJUnit4.class)
+public class UELogContentionBenchmark {
+
+    private static final String TAG = "UELogContentionBenchmark";
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 5000;
+
+    private static final int[] THREAD_COUNTS = {1, 4, 8, 16};
+
+    @Test
+    public void logcat() throws Exception {
+        run("logcat", false);
+    }
+
+    @Test
+    public void logcatAndFile() throws Exception {
+        run("logcat+file", true);
+    }
+
+    private void run(String name, boolean printToFile) throws Exception {
+        UELogPrinter printer = new UELogPrinter();
+        printer.getLogConfig().tag(TAG + "Output").methodCount(0).printToFile(printToFile);
+        runThreads(printer, 1, WARMUP);
+        double baseline = 0;
+        for (int threadCount : THREAD_COUNTS) {
+            long nanos = runThreads(printer, threadCount, ITERATIONS);
+            double throughput = threadCount * ITERATIONS * 1000000.0 / nanos;
+            if (baseline == 0) {
+                baseline = throughput;
+            }
+            Log.i(TAG, name + "  threads=" + threadCount + "  " + String.format("%.1f", throughput) + " logs/ms  x"
+                    + String.format("%.2f", throughput / baseline));
+        }
+        printer.shutdown();
+    }
+
+    /**
+     * @return 所有线程输出完成的总耗时
+     */
+    private long runThreads(final UELogPrinter printer, int threadCount, final int iterations) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int index = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < iterations; i++) {
+                        printer.d("thread {} message {}", index, i);
+                    }
+                    done.countDown();
+                }
+            }, "bench-" + t).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+}
@@ -4,35 +4,139 @@ import android.util.Log;
 
 /**
  * Android控制台输出Log
+ * <p>
+ * 整条日志按行合并后输出，每次输出不超过logcat单条日志的长度限制，超过限制的单行在字符边界处截断，不会拆分代理对
+ * <p>
+ * 只需要一次输出的日志不加锁，需要分多次输出的日志输出期间持有锁，避免被其他线程的日志打断
  */
-public class UEAndroidLogTool implements UELogTool {
+public class UEAndroidLogTool implements UELogEventTool {
+
+    /**
+     * logcat单条日志的最大字节数（系统限制约为4K，包括Tag等信息）
+     */
+    private static final int MAX_LOG_BYTES = 4000;
+
     @Override
     public void d(String tag, String message) {
-        Log.d(tag, message);
+        log(UELogLevel.DEBUG, tag, message);
     }
 
     @Override
     public void e(String tag, String message) {
-        Log.e(tag, message);
+        log(UELogLevel.ERROR, tag, message);
     }
 
     @Override
     public void w(String tag, String message) {
-        Log.w(tag, message);
+        log(UELogLevel.WARN, tag, message);
     }
 
     @Override
     public void i(String tag, String message) {
-        Log.i(tag, message);
+        log(UELogLevel.INFO, tag, message);
     }
 
     @Override
     public void v(String tag, String message) {
-        Log.v(tag, message);
+        log(UELogLevel.VERBOSE, tag, message);
     }
 
     @Override
     public void wtf(String tag, String message) {
-        Log.wtf(tag, message);
+        log(UELogLevel.ASSERT, tag, message);
+    }
+
+    @Override
+    public void log(UELogEvent event) {
+        log(event.getLevel(), event.getDisplayTag(), event.getRendered());
+    }
+
+    private void log(int logType, String tag, CharSequence message) {
+        if (message == null) {
+            println(logType, tag, null);
+            return;
+        }
+        //每个字符UTF-8编码最多3个字节（代理对为2个字符4个字节）
+        if (message.length() * 3 <= MAX_LOG_BYTES) {
+            println(logType, tag, message.toString());
+            return;
+        }
+        synchronized (this) {
+            logChunks(logType, tag, message);
+        }
+    }
+
+    /**
+     * 按UTF-8编码的字节数分段输出，优先在换行处分段，只复制每一段的内容
+     */
+    private void logChunks(int logType, String tag, CharSequence message) {
+        int length = message.length();
+        int chunkStart = 0;
+        int chunkBytes = 0;
+        //当前分段中最后一个换行符的位置，以及分段开始到换行符（包括换行符）的字节数
+        int lineBreak = -1;
+        int lineBreakBytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            int bytes = utf8Length(c);
+            while (chunkBytes + bytes > MAX_LOG_BYTES) {
+                if (lineBreak > chunkStart) {
+                    println(logType, tag, message.subSequence(chunkStart, lineBreak).toString());
+                    chunkStart = lineBreak + 1;
+                    chunkBytes -= lineBreakBytes;
+                } else {
+                    //一行超过长度限制，在当前字符之前截断，当前字符是代理对的后半部分时和前半部分一起放到下一段
+                    int end = i;
+                    if (Character.isLowSurrogate(c) && end - 1 > chunkStart && Character.isHighSurrogate(message.charAt(end - 1))) {
+                        end--;
+                    }
+                    println(logType, tag, message.subSequence(chunkStart, end).toString());
+                    chunkBytes = end == i ? 0 : utf8Length(message.charAt(end));
+                    chunkStart = end;
+                }
+                lineBreak = -1;
+            }
+            chunkBytes += bytes;
+            if (c == '\n') {
+                lineBreak = i;
+                lineBreakBytes = chunkBytes;
+            }
+        }
+        if (chunkStart < length) {
+            println(logType, tag, message.subSequence(chunkStart, length).toString());
+        }
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        } else if (c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+
+    private void println(int logType, String tag, String message) {
+        switch (logType) {
+            case UELogLevel.ERROR:
+                Log.e(tag, message);
+                break;
+            case UELogLevel.INFO:
+                Log.i(tag, message);
+                break;
+            case UELogLevel.WARN:
+                Log.w(tag, message);
+                break;
+            case UELogLevel.ASSERT:
+                Log.wtf(tag, message);
+                break;
+            case UELogLevel.DEBUG:
+                Log.d(tag, message);
+                break;
+            default:
+                Log.v(tag, message);
+                break;
+        }
     }
 }
@@ -0,0 +1,287 @@
+package com.ueueo.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link UEBinaryLogTool}日志文件的解码器
+ * <p>
+ * 不依赖Android，可以在电脑上运行，把二进制日志还原为和{@link UEFileLogTool}相同的带边框的文本格式：
+ * <pre>
+ * java -cp ueueo-log.jar com.ueueo.log.UEBinaryLogDecoder 2018-01-01 12:00.uelb &gt; 2018-01-01 12:00.log
+ * </pre>
+ * 文件末尾不完整的记录（例如进程崩溃时正在写入的记录）会被忽略
+ */
+public final class UEBinaryLogDecoder {
+
+    //按日志级别索引的Log优先级，和UEFileLogTool中的对应关系相同
+    private static final int[] PRIORITIES = {2, 2, 3, 4, 5, 6, 6, 6};
+
+    private final InputStream mInput;
+    private final List<String> mStrings = new ArrayList<>();
+    private byte[] mRecord = new byte[256];
+    private int mPosition;
+    private int mLimit;
+    private long mTime;
+
+    /**
+     * @param input 二进制日志文件的内容
+     */
+    public UEBinaryLogDecoder(InputStream input) {
+        mInput = input instanceof BufferedInputStream ? input : new BufferedInputStream(input);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: UEBinaryLogDecoder <file.uelb>...");
+            System.exit(1);
+        }
+        OutputStream out = new BufferedOutputStream(System.out);
+        for (String path : args) {
+            InputStream input = new FileInputStream(path);
+            try {
+                new UEBinaryLogDecoder(input).decode(out);
+            } finally {
+                input.close();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 按默认格式解码全部日志
+     *
+     * @param out 输出UTF-8编码的文本
+     * @throws IOException 读取失败或者不是二进制日志文件
+     */
+    public void decode(OutputStream out) throws IOException {
+        decode(out, UELogLayout.DEFAULT);
+    }
+
+    /**
+     * 按指定格式解码全部日志
+     *
+     * @param out    输出UTF-8编码的文本
+     * @param layout 每一行的格式
+     * @throws IOException 读取失败或者不是二进制日志文件
+     */
+    public void decode(OutputStream out, UELogLayout layout) throws IOException {
+        readHeader();
+        UELogLineEncoder encoder = new UELogLineEncoder();
+        StringBuilder rendered = new StringBuilder(256);
+        List<String> appendMessages = new ArrayList<>();
+        String[] frames = new String[8];
+        while (readRecord()) {
+            int type = readByte();
+            if (type == UEBinaryLogTool.RECORD_STRING) {
+                int id = (int) readVarint();
+                String value = readString();
+                while (mStrings.size() < id) {
+                    mStrings.add(null);
+                }
+                mStrings.set(id - 1, value);
+                continue;
+            }
+            if (type != UEBinaryLogTool.RECORD_EVENT) {
+                //未知的记录类型，跳过
+                continue;
+            }
+            mTime += readZigZag();
+            int level = readByte();
+            int flags = readByte();
+            String tag = readRef();
+            String thread = readRef();
+            int frameCount = (int) readVarint();
+            if (frames.length < frameCount) {
+                frames = new String[frameCount];
+            }
+            for (int i = 0; i < frameCount; i++) {
+                String frame = readRef();
+                frames[i] = frame.length() > 0 ? frame : null;
+            }
+            int appendCount = (int) readVarint();
+            appendMessages.clear();
+            for (int i = 0; i < appendCount; i++) {
+                appendMessages.add(readString());
+            }
+            int kind = readByte();
+            rendered.setLength(0);
+            if (kind == UEBinaryLogTool.KIND_RENDERED) {
+                rendered.append(readString());
+            } else {
+                String message;
+                int contentType = UELogEvent.CONTENT_TEXT;
+                if (kind == UEBinaryLogTool.KIND_PATTERN) {
+                    message = readPattern();
+                } else {
+                    message = readString();
+                    if (kind == UEBinaryLogTool.KIND_JSON) {
+                        contentType = UELogEvent.CONTENT_JSON;
+                    }
+                }
+                if (message == null || message.length() == 0) {
+                    message = "Empty/NULL log message";
+                }
+                UELogRenderer.render(rendered, message, contentType, 0, appendMessages, frames, frameCount);
+            }
+            String displayTag = (flags & UEBinaryLogTool.FLAG_THREAD_INFO) != 0 ? tag + "[" + thread + "]" : tag;
+            int priority = level >= 0 && level < PRIORITIES.length ? PRIORITIES[level] : PRIORITIES[0];
+            ByteBuffer bytes = encoder.encode(layout, priority, displayTag, thread, rendered, mTime);
+            out.write(bytes.array(), 0, bytes.limit());
+            encoder.recycle();
+        }
+    }
+
+    private void readHeader() throws IOException {
+        byte[] magic = UEBinaryLogTool.MAGIC;
+        for (byte b : magic) {
+            if (mInput.read() != b) {
+                throw new IOException("Not a UELog binary file");
+            }
+        }
+        int version = mInput.read();
+        if (version != UEBinaryLogTool.VERSION) {
+            throw new IOException("Unsupported UELog binary version: " + version);
+        }
+    }
+
+    /**
+     * 读取一条完整的记录
+     *
+     * @return 没有更多完整的记录时返回false
+     */
+    private boolean readRecord() throws IOException {
+        long length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = mInput.read();
+            if (b < 0 || shift > 28) {
+                return false;
+            }
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length > mRecord.length) {
+            mRecord = new byte[(int) length];
+        }
+        int read = 0;
+        while (read < length) {
+            int count = mInput.read(mRecord, read, (int) length - read);
+            if (count < 0) {
+                return false;
+            }
+            read += count;
+        }
+        mPosition = 0;
+        mLimit = (int) length;
+        return true;
+    }
+
+    private String readPattern() throws IOException {
+        String pattern = readRef();
+        int argCount = (int) readVarint();
+        Object[] args = new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            int type = readByte();
+            switch (type) {
+                case UEBinaryLogTool.ARG_STRING:
+                    args[i] = readString();
+                    break;
+                case UEBinaryLogTool.ARG_INT:
+                    args[i] = (int) readZigZag();
+                    break;
+                case UEBinaryLogTool.ARG_LONG:
+                    args[i] = readZigZag();
+                    break;
+                case UEBinaryLogTool.ARG_DOUBLE:
+                    args[i] = Double.longBitsToDouble(readFixed(8));
+                    break;
+                case UEBinaryLogTool.ARG_FLOAT:
+                    args[i] = Float.intBitsToFloat((int) readFixed(4));
+                    break;
+                case UEBinaryLogTool.ARG_TRUE:
+                    args[i] = Boolean.TRUE;
+                    break;
+                case UEBinaryLogTool.ARG_FALSE:
+                    args[i] = Boolean.FALSE;
+                    break;
+                case UEBinaryLogTool.ARG_CHAR:
+                    args[i] = (char) readVarint();
+                    break;
+                default:
+                    args[i] = null;
+                    break;
+            }
+        }
+        try {
+            return UELogFormatter.format(pattern, argCount, null, null, args);
+        } catch (RuntimeException e) {
+            return pattern;
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (mPosition >= mLimit) {
+            throw new EOFException("Corrupted record");
+        }
+        return mRecord[mPosition++] & 0xFF;
+    }
+
+    private long readVarint() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Corrupted varint");
+    }
+
+    private long readZigZag() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readFixed(int byteCount) throws IOException {
+        long result = 0;
+        for (int i = 0; i < byteCount; i++) {
+            result |= (long) readByte() << (i * 8);
+        }
+        return result;
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarint();
+        if (length > mLimit - mPosition) {
+            throw new EOFException("Corrupted record");
+        }
+        String value = new String(mRecord, mPosition, length, "UTF-8");
+        mPosition += length;
+        return value;
+    }
+
+    /**
+     * 读取已定义字符串的编号，编号为0时字符串内容直接跟在后面
+     */
+    private String readRef() throws IOException {
+        int id = (int) readVarint();
+        if (id == 0) {
+            return readString();
+        }
+        if (id > mStrings.size() || mStrings.get(id - 1) == null) {
+            throw new IOException("Undefined string: " + id);
+        }
+        return mStrings.get(id - 1);
+    }
+}
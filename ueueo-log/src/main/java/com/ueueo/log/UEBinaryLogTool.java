@@ -0,0 +1,589 @@
+package com.ueueo.log;
+
+import android.os.Environment;
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 二进制文件输出Log
+ * <p>
+ * 不排版日志，只把日志的原始信息以紧凑的二进制格式写入文件，文件体积和写入耗时都远小于{@link UEFileLogTool}。
+ * 日志文件可以用{@link UEBinaryLogDecoder}还原为文本格式
+ * <p>
+ * 文件格式：文件头为"UELB"和版本号，之后是连续的记录，每条记录以varint表示的长度开始。
+ * Tag、线程名、调用位置和格式字符串只在第一次出现时写入一条定义记录，之后只写入编号。
+ * 日志内容为格式字符串时只写入原始参数，输出时才格式化
+ */
+public class UEBinaryLogTool implements UELogEventTool, Flushable {
+
+    static final String FILE_SUFFIX = ".uelb";
+    static final byte[] MAGIC = {'U', 'E', 'L', 'B'};
+    static final int VERSION = 1;
+
+    static final int RECORD_STRING = 1;
+    static final int RECORD_EVENT = 2;
+
+    //日志内容为格式字符串和原始参数
+    static final int KIND_PATTERN = 0;
+    //日志内容为格式化后的文本
+    static final int KIND_TEXT = 1;
+    //日志内容为原始的Json字符串
+    static final int KIND_JSON = 2;
+    //日志内容为排版后的完整日志
+    static final int KIND_RENDERED = 3;
+
+    static final int ARG_NULL = 0;
+    static final int ARG_STRING = 1;
+    static final int ARG_INT = 2;
+    static final int ARG_LONG = 3;
+    static final int ARG_DOUBLE = 4;
+    static final int ARG_FLOAT = 5;
+    static final int ARG_TRUE = 6;
+    static final int ARG_FALSE = 7;
+    static final int ARG_CHAR = 8;
+
+    //Tag中是否包含线程名
+    static final int FLAG_THREAD_INFO = 1;
+
+    // 每个文件中最多定义的字符串数量，超过后直接写入字符串内容，避免格式字符串过多时一直占用内存
+    private static final int MAX_STRING_COUNT = 4096;
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final File mLogDir;
+    private int mBufferSize = DEFAULT_BUFFER_SIZE;
+    private long mFlushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private long mMaxFileSize;
+
+    private UELogFileWriter mWriter;
+    // 当前文件中已定义的字符串和编号
+    private final HashMap<String, Integer> mStrings = new HashMap<>();
+    // 当前文件中上一条日志的时间
+    private long mLastTime;
+    private final ByteSink mDefines = new ByteSink();
+    private final ByteSink mRecord = new ByteSink();
+    private final ByteSink mOutput = new ByteSink();
+    // 进程空闲时定时把缓冲区中的日志写入文件
+    private final UELogFlushTimer mFlushTimer = new UELogFlushTimer(new Runnable() {
+        @Override
+        public void run() {
+            flushDue();
+        }
+    });
+    //写入的字节数和刷新缓冲区的次数，只在持有锁时修改
+    private volatile long mBytesWritten;
+    private volatile long mFlushCount;
+
+    /**
+     * 日志文件存储路径为外部存储UELOG文件夹下
+     */
+    public UEBinaryLogTool() {
+        this(new File(Environment.getExternalStorageDirectory(), "UELOG"));
+    }
+
+    /**
+     * @param logDir 日志文件存储的文件夹
+     */
+    public UEBinaryLogTool(File logDir) {
+        mLogDir = logDir;
+    }
+
+    /**
+     * 设置写文件缓冲区的大小，缓冲区写满时写入文件，只对之后新打开的日志文件有效
+     *
+     * @param bufferSize 字节数
+     * @return
+     */
+    public UEBinaryLogTool bufferSize(int bufferSize) {
+        if (bufferSize < 1024) {
+            bufferSize = 1024;
+        }
+        mBufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * 设置缓冲区中的日志最长多久写入一次文件，ERROR及以上级别的日志总是立即写入
+     *
+     * @param flushIntervalMillis 毫秒数，0表示每条日志都立即写入
+     * @return
+     */
+    public UEBinaryLogTool flushInterval(long flushIntervalMillis) {
+        mFlushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 设置单个日志文件的最大字节数，超过后写入新的日志文件
+     *
+     * @param maxFileSize 字节数，0表示不限制
+     * @return
+     */
+    public UEBinaryLogTool maxFileSize(long maxFileSize) {
+        mMaxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * @return 写入日志文件的字节数
+     */
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    /**
+     * @return 把缓冲区写入文件的次数
+     */
+    public long getFlushCount() {
+        return mFlushCount;
+    }
+
+    @Override
+    public void d(String tag, String message) {
+        logText(UELogLevel.DEBUG, tag, message);
+    }
+
+    @Override
+    public void e(String tag, String message) {
+        logText(UELogLevel.ERROR, tag, message);
+    }
+
+    @Override
+    public void w(String tag, String message) {
+        logText(UELogLevel.WARN, tag, message);
+    }
+
+    @Override
+    public void i(String tag, String message) {
+        logText(UELogLevel.INFO, tag, message);
+    }
+
+    @Override
+    public void v(String tag, String message) {
+        logText(UELogLevel.VERBOSE, tag, message);
+    }
+
+    @Override
+    public void wtf(String tag, String message) {
+        logText(UELogLevel.ASSERT, tag, message);
+    }
+
+    private synchronized void logText(int level, String tag, String message) {
+        ByteSink record = beginRecord(System.currentTimeMillis(), level, 0, tag, Thread.currentThread().getName());
+        if (record == null) {
+            return;
+        }
+        record.writeVarint(0);
+        record.writeVarint(0);
+        record.writeByte(KIND_TEXT);
+        record.writeString(message);
+        endRecord(level);
+    }
+
+    /**
+     * 只写入日志的原始信息，不使用排版结果
+     *
+     * @param event
+     */
+    @Override
+    public synchronized void log(UELogEvent event) {
+        int flags = event.displayTag != null && !event.displayTag.equals(event.tag) ? FLAG_THREAD_INFO : 0;
+        ByteSink record = beginRecord(event.timeMillis, event.level, flags, event.tag, event.threadName);
+        if (record == null) {
+            return;
+        }
+        int kind;
+        if (event.contentType == UELogEvent.CONTENT_TEXT) {
+            kind = isPattern(event) ? KIND_PATTERN : KIND_TEXT;
+        } else if (event.contentType == UELogEvent.CONTENT_JSON) {
+            kind = KIND_JSON;
+        } else {
+            kind = KIND_RENDERED;
+        }
+        if (kind == KIND_RENDERED) {
+            record.writeVarint(0);
+            record.writeVarint(0);
+        } else {
+            record.writeVarint(event.callerFrameCount);
+            for (int i = 0; i < event.callerFrameCount; i++) {
+                String frame = event.callerFrames[i];
+                writeRef(frame != null ? frame : "");
+            }
+            List<String> appendMessages = event.appendMessages;
+            int appendCount = appendMessages != null ? appendMessages.size() : 0;
+            record.writeVarint(appendCount);
+            for (int i = 0; i < appendCount; i++) {
+                record.writeString(appendMessages.get(i));
+            }
+        }
+        record.writeByte(kind);
+        switch (kind) {
+            case KIND_PATTERN:
+                writeRef(event.message);
+                record.writeVarint(event.argCount);
+                for (int i = 0; i < event.argCount; i++) {
+                    writeArg(event.args != null ? event.args[i] : (i == 0 ? event.arg0 : event.arg1));
+                }
+                break;
+            case KIND_TEXT:
+                record.writeString(event.formattedMessage);
+                break;
+            case KIND_JSON:
+                record.writeString(event.message);
+                break;
+            default:
+                record.writeString(event.rendered.toString());
+                break;
+        }
+        endRecord(event.level);
+    }
+
+    /**
+     * @return 日志内容是否可以只写入格式字符串和原始参数，由解码时再格式化
+     */
+    private static boolean isPattern(UELogEvent event) {
+        //没有参数的消息是原样输出的文本，不能当作格式串还原
+        if (event.argCount == 0 || event.message == null || event.message.length() == 0 || event.supplier != null
+                || event.throwable != null || event.sampleRate > 1) {
+            return false;
+        }
+        for (int i = 0; i < event.argCount; i++) {
+            Object arg = event.args != null ? event.args[i] : (i == 0 ? event.arg0 : event.arg1);
+            if (arg != null && !(arg instanceof String) && !(arg instanceof Integer) && !(arg instanceof Long)
+                    && !(arg instanceof Double) && !(arg instanceof Float) && !(arg instanceof Boolean)
+                    && !(arg instanceof Character)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeArg(Object arg) {
+        ByteSink record = mRecord;
+        if (arg == null) {
+            record.writeByte(ARG_NULL);
+        } else if (arg instanceof String) {
+            record.writeByte(ARG_STRING);
+            record.writeString((String) arg);
+        } else if (arg instanceof Integer) {
+            record.writeByte(ARG_INT);
+            record.writeZigZag((Integer) arg);
+        } else if (arg instanceof Long) {
+            record.writeByte(ARG_LONG);
+            record.writeZigZag((Long) arg);
+        } else if (arg instanceof Double) {
+            record.writeByte(ARG_DOUBLE);
+            record.writeFixed(Double.doubleToRawLongBits((Double) arg), 8);
+        } else if (arg instanceof Float) {
+            record.writeByte(ARG_FLOAT);
+            record.writeFixed(Float.floatToRawIntBits((Float) arg), 4);
+        } else if (arg instanceof Boolean) {
+            record.writeByte((Boolean) arg ? ARG_TRUE : ARG_FALSE);
+        } else {
+            record.writeByte(ARG_CHAR);
+            record.writeVarint((Character) arg);
+        }
+    }
+
+    /**
+     * 打开日志文件并开始编码一条日志记录
+     *
+     * @return 日志文件打开失败时返回null
+     */
+    private ByteSink beginRecord(long time, int level, int flags, String tag, String thread) {
+        if (mWriter != null && mMaxFileSize > 0 && mWriter.length() >= mMaxFileSize) {
+            //新文件中重新定义所有字符串
+            closeWriter();
+        }
+        if (mWriter == null) {
+            try {
+                openWriter();
+            } catch (IOException e) {
+                closeWriter();
+                return null;
+            }
+        }
+        mDefines.reset();
+        ByteSink record = mRecord;
+        record.reset();
+        record.writeByte(RECORD_EVENT);
+        record.writeZigZag(time - mLastTime);
+        mLastTime = time;
+        record.writeByte(level);
+        record.writeByte(flags);
+        writeRef(tag);
+        writeRef(thread != null ? thread : "");
+        return record;
+    }
+
+    /**
+     * 字符串已定义时写入编号，否则先写入一条定义记录；定义的字符串过多时直接写入字符串内容（编号为0）
+     */
+    private void writeRef(String value) {
+        Integer id = mStrings.get(value);
+        if (id == null && mStrings.size() < MAX_STRING_COUNT) {
+            id = mStrings.size() + 1;
+            mStrings.put(value, id);
+            ByteSink define = mOutput;
+            define.reset();
+            define.writeByte(RECORD_STRING);
+            define.writeVarint(id);
+            define.writeString(value);
+            mDefines.writeVarint(define.length());
+            mDefines.write(define);
+        }
+        if (id == null) {
+            mRecord.writeVarint(0);
+            mRecord.writeString(value);
+        } else {
+            mRecord.writeVarint(id);
+        }
+    }
+
+    /**
+     * 先写入新的字符串定义，再写入日志记录
+     */
+    private void endRecord(int level) {
+        ByteSink output = mOutput;
+        output.reset();
+        output.write(mDefines);
+        output.writeVarint(mRecord.length());
+        output.write(mRecord);
+        UELogFileWriter writer = mWriter;
+        try {
+            ByteBuffer bytes = output.buffer();
+            mBytesWritten += bytes.remaining();
+            writer.write(bytes);
+            long sinceFlush = writer.getMillisSinceFlush(System.currentTimeMillis());
+            if (level >= UELogLevel.ERROR || sinceFlush >= mFlushIntervalMillis) {
+                writer.flush();
+                mFlushCount++;
+            } else {
+                writer.mDirty = true;
+                mFlushTimer.schedule(mFlushIntervalMillis - sinceFlush);
+            }
+        } catch (Exception e) {
+            closeWriter();
+        } finally {
+            output.trim();
+            mRecord.trim();
+            mDefines.trim();
+        }
+    }
+
+    /**
+     * 到达刷新间隔时把缓冲区写入文件，还没到时间时继续等待
+     */
+    private synchronized void flushDue() {
+        UELogFileWriter writer = mWriter;
+        if (writer == null || !writer.mDirty) {
+            return;
+        }
+        long remaining = mFlushIntervalMillis - writer.getMillisSinceFlush(System.currentTimeMillis());
+        if (remaining > 0) {
+            mFlushTimer.schedule(remaining);
+        } else {
+            flush();
+        }
+    }
+
+    private void openWriter() throws IOException {
+        if (!mLogDir.exists()) {
+            mLogDir.mkdirs();
+        }
+        String baseName = new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date());
+        File file = new File(mLogDir, baseName + FILE_SUFFIX);
+        for (int i = 2; file.exists(); i++) {
+            file = new File(mLogDir, baseName + "_" + i + FILE_SUFFIX);
+        }
+        UELogFileWriter writer = new UEBufferedLogFileWriter(file, mBufferSize);
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+        header.put(MAGIC).put((byte) VERSION).flip();
+        mWriter = writer;
+        mBytesWritten += header.remaining();
+        writer.write(header);
+    }
+
+    private void closeWriter() {
+        UELogFileWriter writer = mWriter;
+        mWriter = null;
+        mStrings.clear();
+        mLastTime = 0;
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * 将缓冲区中的日志全部写入文件
+     */
+    @Override
+    public synchronized void flush() {
+        if (mWriter != null) {
+            try {
+                mWriter.flush();
+                mFlushCount++;
+            } catch (IOException e) {
+                closeWriter();
+            }
+        }
+    }
+
+    /**
+     * 导出日志前把缓冲区写入文件，并登记正在写入的文件当前的内容
+     */
+    synchronized void snapshot(UELogExporter exporter) {
+        flush();
+        if (mWriter != null) {
+            mWriter.snapshot(exporter);
+        }
+    }
+
+    /**
+     * 关闭日志文件，之后再输出日志时会创建新的日志文件
+     */
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    /**
+     * 可增长的字节缓冲区
+     */
+    static final class ByteSink {
+        //缓冲区保留的最大容量，超过后释放
+        private static final int MAX_CAPACITY = 64 * 1024;
+
+        private byte[] mBytes = new byte[256];
+        private int mLength;
+        private ByteBuffer mBuffer = ByteBuffer.wrap(mBytes);
+
+        void reset() {
+            mLength = 0;
+        }
+
+        int length() {
+            return mLength;
+        }
+
+        ByteBuffer buffer() {
+            mBuffer.clear();
+            mBuffer.limit(mLength);
+            return mBuffer;
+        }
+
+        void trim() {
+            if (mBytes.length > MAX_CAPACITY) {
+                mBytes = new byte[256];
+                mBuffer = ByteBuffer.wrap(mBytes);
+                mLength = 0;
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            mBytes[mLength++] = (byte) b;
+        }
+
+        void write(ByteSink sink) {
+            ensureCapacity(sink.mLength);
+            System.arraycopy(sink.mBytes, 0, mBytes, mLength, sink.mLength);
+            mLength += sink.mLength;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBytes[mLength++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mLength++] = (byte) value;
+        }
+
+        void writeZigZag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * 按小端序写入value的低byteCount个字节
+         */
+        void writeFixed(long value, int byteCount) {
+            ensureCapacity(byteCount);
+            for (int i = 0; i < byteCount; i++) {
+                mBytes[mLength++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        /**
+         * 写入varint表示的UTF-8字节数和UTF-8内容，不成对的代理字符写为'?'
+         */
+        void writeString(String value) {
+            if (value == null) {
+                value = "null";
+            }
+            int length = value.length();
+            int byteCount = 0;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    byteCount++;
+                } else if (c < 0x800) {
+                    byteCount += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    byteCount += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    byteCount++;
+                } else {
+                    byteCount += 3;
+                }
+            }
+            writeVarint(byteCount);
+            ensureCapacity(byteCount);
+            byte[] bytes = mBytes;
+            int position = mLength;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[position++] = (byte) (0xC0 | (c >> 6));
+                    bytes[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[position++] = '?';
+                } else {
+                    bytes[position++] = (byte) (0xE0 | (c >> 12));
+                    bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            mLength = position;
+        }
+
+        private void ensureCapacity(int extra) {
+            int required = mLength + extra;
+            if (required <= mBytes.length) {
+                return;
+            }
+            byte[] bytes = new byte[Math.max(mBytes.length * 2, required)];
+            System.arraycopy(mBytes, 0, bytes, 0, mLength);
+            mBytes = bytes;
+            mBuffer = ByteBuffer.wrap(bytes);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ueueo.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 带缓冲的日志文件写入器
+ * <p>
+ * 保持日志文件一直处于打开状态，日志先编码到复用的直接缓冲区中，缓冲区满或者调用{@link #flush()}时才写入文件
+ */
+class UEBufferedLogFileWriter extends UELogFileWriter {
+
+    private final FileChannel mChannel;
+    //已写入文件的字节数
+    private long mFlushedLength;
+    //聚集写入时缓冲区和一批日志组成的数组，复用以免每批创建
+    private ByteBuffer[] mSources = new ByteBuffer[0];
+
+    UEBufferedLogFileWriter(File file, int bufferSize) throws IOException {
+        super(file);
+        mChannel = new FileOutputStream(file, true).getChannel();
+        mBuffer = ByteBuffer.allocateDirect(bufferSize);
+        mFlushedLength = mChannel.size();
+    }
+
+    @Override
+    long length() {
+        return mFlushedLength + mBuffer.position();
+    }
+
+    /**
+     * 一批日志能放入缓冲区时拷贝到缓冲区，否则和缓冲区中已有的内容一起通过一次聚集写入文件，不再拷贝到缓冲区
+     */
+    @Override
+    void write(ByteBuffer[] buffers, int count) throws IOException {
+        long remaining = 0;
+        for (int i = 0; i < count; i++) {
+            remaining += buffers[i].remaining();
+        }
+        if (remaining <= mBuffer.remaining()) {
+            super.write(buffers, count);
+            return;
+        }
+        if (mSources.length < count + 1) {
+            mSources = new ByteBuffer[count + 1];
+        }
+        ByteBuffer[] sources = mSources;
+        mBuffer.flip();
+        remaining += mBuffer.remaining();
+        sources[0] = mBuffer;
+        System.arraycopy(buffers, 0, sources, 1, count);
+        try {
+            while (remaining > 0) {
+                long written = mChannel.write(sources, 0, count + 1);
+                mFlushedLength += written;
+                remaining -= written;
+            }
+        } finally {
+            mBuffer.clear();
+            for (int i = 0; i <= count; i++) {
+                sources[i] = null;
+            }
+        }
+    }
+
+    @Override
+    protected void onBufferFull() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        super.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mFlushedLength += mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mChannel.close();
+        }
+    }
+}
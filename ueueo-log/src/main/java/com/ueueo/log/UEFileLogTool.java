@@ -3,14 +3,18 @@ package com.ueueo.log;
 import android.os.Environment;
 import android.util.Log;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 文件输出Log
@@ -18,20 +22,238 @@ import java.util.HashMap;
  * 将日志输出到文件中
  * <p>
  * 日志文件存储在外部存储空间的UELOG文件夹下
+ * <p>
+ * 支持按文件大小和时间滚动日志文件，并限制每个Tag文件夹中日志文件的数量和总大小
+ * <p>
+ * 异步模式下按批输出时，一批日志中同一个Tag的日志加一次锁，通过一次聚集写入写入文件
  */
-public class UEFileLogTool implements UELogTool {
+public class UEFileLogTool implements UELogBatchTool, Flushable {
 
     // 日志文件保存的文件夹目录
     private static String LOG_DIR_PATH;
 
-    private static HashMap<String, File> mLogFiles = new HashMap<>();
+    // 默认缓冲区大小
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    // 默认缓冲区中的日志最长多久写入一次文件
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 日志文件不按时间滚动
+     */
+    public static final int ROLL_NEVER = 0;
+    /**
+     * 日志文件每小时滚动一次
+     */
+    public static final int ROLL_HOURLY = 1;
+    /**
+     * 日志文件每天滚动一次
+     */
+    public static final int ROLL_DAILY = 2;
+
+    /**
+     * 日志文件不压缩
+     */
+    public static final int COMPRESS_NONE = 0;
+    /**
+     * 日志文件滚动后在后台压缩为.gz文件
+     */
+    public static final int COMPRESS_ROLLED = 1;
+    /**
+     * 日志直接以gzip格式边写边压缩，定期同步刷新，进程崩溃时之前的日志仍然可以完整解压
+     */
+    public static final int COMPRESS_STREAMING = 2;
+
+    // 边写边压缩时默认每多少条日志同步刷新一次
+    private static final int DEFAULT_SYNC_FLUSH_RECORDS = 64;
+
+    // 每个Tag对应一个一直打开的日志文件
+    private final HashMap<String, UELogFileWriter> mLogWriters = new HashMap<>();
+
+    // 每个线程编码日志行的缓冲区
+    private final ThreadLocal<UELogLineEncoder> mLineEncoder = new ThreadLocal<UELogLineEncoder>() {
+        @Override
+        protected UELogLineEncoder initialValue() {
+            return new UELogLineEncoder();
+        }
+    };
+    // 每个线程按批编码日志的缓冲区
+    private final ThreadLocal<Batch> mBatch = new ThreadLocal<Batch>() {
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
+    private volatile UELogLayout mLayout = UELogLayout.DEFAULT;
+
+    private int mBufferSize = DEFAULT_BUFFER_SIZE;
+    private long mFlushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private long mMaxFileSize;
+    private int mRollInterval = ROLL_NEVER;
+    private volatile int mCompressMode = COMPRESS_NONE;
+    private int mSyncFlushRecords = DEFAULT_SYNC_FLUSH_RECORDS;
+    private final UELogFileRoller mRoller = new UELogFileRoller();
+    // 进程空闲时定时把缓冲区中的日志写入文件
+    private final UELogFlushTimer mFlushTimer = new UELogFlushTimer(new Runnable() {
+        @Override
+        public void run() {
+            flushDue();
+        }
+    });
+    // 当前进程使用过的日志文件，滚动后不能再次写入
+    private final HashSet<String> mUsedLogFiles = new HashSet<>();
+    //写入的字节数和刷新缓冲区的次数，只在持有锁时修改
+    private volatile long mBytesWritten;
+    private volatile long mFlushCount;
 
     /**
      * 日志文件存储路径为外部存储UELog文件夹下
      */
     public UEFileLogTool() {
-        File file = new File(Environment.getExternalStorageDirectory(), "UELOG");
-        LOG_DIR_PATH = file.getAbsolutePath();
+        this(new File(Environment.getExternalStorageDirectory(), "UELOG"));
+    }
+
+    /**
+     * @param logRootDir 日志文件夹，每个Tag一个子文件夹，和默认的日志文件夹一样对所有文件日志工具生效
+     */
+    UEFileLogTool(File logRootDir) {
+        LOG_DIR_PATH = logRootDir.getAbsolutePath();
+    }
+
+    /**
+     * 设置写文件缓冲区的大小，缓冲区写满时写入文件，只对之后新打开的日志文件有效
+     *
+     * @param bufferSize 字节数
+     * @return
+     */
+    public UEFileLogTool bufferSize(int bufferSize) {
+        if (bufferSize < 1024) {
+            bufferSize = 1024;
+        }
+        mBufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * 设置缓冲区中的日志最长多久写入一次文件，ERROR及以上级别的日志总是立即写入
+     *
+     * @param flushIntervalMillis 毫秒数，0表示每条日志都立即写入
+     * @return
+     */
+    public UEFileLogTool flushInterval(long flushIntervalMillis) {
+        mFlushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 设置单个日志文件的最大字节数，超过后滚动到新的日志文件
+     *
+     * @param maxFileSize 字节数，0表示不限制
+     * @return
+     */
+    public UEFileLogTool maxFileSize(long maxFileSize) {
+        mMaxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * 设置日志文件按时间滚动的周期
+     *
+     * @param rollInterval {@link #ROLL_NEVER}，{@link #ROLL_HOURLY}或{@link #ROLL_DAILY}
+     * @return
+     */
+    public UEFileLogTool rollInterval(int rollInterval) {
+        mRollInterval = rollInterval;
+        return this;
+    }
+
+    /**
+     * 设置每个Tag文件夹中最多保留的日志文件数量，超出后删除最旧的文件
+     *
+     * @param maxFileCount 0表示不限制
+     * @return
+     */
+    public UEFileLogTool maxFileCount(int maxFileCount) {
+        mRoller.setMaxFileCount(maxFileCount);
+        return this;
+    }
+
+    /**
+     * 设置每个Tag文件夹中日志文件的最大总字节数，超出后删除最旧的文件
+     *
+     * @param maxTotalSize 字节数，0表示不限制
+     * @return
+     */
+    public UEFileLogTool maxTotalSize(long maxTotalSize) {
+        mRoller.setMaxTotalSize(maxTotalSize);
+        return this;
+    }
+
+    /**
+     * 设置是否在后台将滚动后的日志文件压缩为.gz文件
+     *
+     * @param compress
+     * @return
+     */
+    public UEFileLogTool compressRolledFiles(boolean compress) {
+        return compress(compress ? COMPRESS_ROLLED : COMPRESS_NONE);
+    }
+
+    /**
+     * 设置日志文件的压缩方式，边写边压缩只对之后新打开的日志文件有效
+     *
+     * @param compressMode {@link #COMPRESS_NONE}，{@link #COMPRESS_ROLLED}或{@link #COMPRESS_STREAMING}
+     * @return
+     */
+    public UEFileLogTool compress(int compressMode) {
+        mCompressMode = compressMode;
+        //边写边压缩时滚动的文件已经是.gz文件，压缩时会跳过
+        mRoller.setCompress(compressMode != COMPRESS_NONE);
+        return this;
+    }
+
+    /**
+     * 设置边写边压缩时每多少条日志同步刷新一次，同步刷新会降低压缩率，但进程崩溃时丢失的日志更少。
+     * 调用{@link #flush()}以及ERROR级别的日志也会同步刷新
+     *
+     * @param records 0表示只在flush时同步刷新
+     * @return
+     */
+    public UEFileLogTool syncFlushRecords(int records) {
+        mSyncFlushRecords = records;
+        return this;
+    }
+
+    /**
+     * @return 日志文件压缩的统计信息
+     */
+    public UELogCompressionStats getCompressionStats() {
+        return mRoller.getStats();
+    }
+
+    /**
+     * @return 写入日志文件的字节数（压缩前）
+     */
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    /**
+     * @return 把缓冲区写入文件的次数
+     */
+    public long getFlushCount() {
+        return mFlushCount;
+    }
+
+    /**
+     * 设置日志文件中每一行的格式，格式在设置时编译，参考：{@link UELogLayout}
+     *
+     * @param pattern 例如{@link UELogLayout#DEFAULT_PATTERN}
+     * @return
+     * @throws IllegalArgumentException 包含不支持的占位符
+     */
+    public UEFileLogTool layout(String pattern) {
+        mLayout = UELogLayout.compile(pattern);
+        return this;
     }
 
     @Override
@@ -64,6 +286,68 @@ public class UEFileLogTool implements UELogTool {
         writeToFile(Log.ERROR, tag, message);
     }
 
+    /**
+     * 整条日志一次写入文件，多行日志共用同一个时间和级别前缀
+     *
+     * @param event
+     */
+    @Override
+    public void log(UELogEvent event) {
+        writeToFile(priorityOf(event.getLevel()), event.getTag(), event.getDisplayTag(), event.getThreadName(), event.getRendered(), event.getTimeMillis());
+    }
+
+    /**
+     * 一批日志在调用线程中全部编码后，每个Tag的日志加一次锁写入
+     *
+     * @param events
+     */
+    @Override
+    public void logBatch(List<UELogEvent> events) {
+        int count = events.size();
+        if (count == 0) {
+            return;
+        }
+        Batch batch = mBatch.get();
+        batch.ensureCapacity(count);
+        UELogLayout layout = mLayout;
+        try {
+            for (int i = 0; i < count; i++) {
+                UELogEvent event = events.get(i);
+                int priority = priorityOf(event.getLevel());
+                batch.priorities[i] = priority;
+                batch.tags[i] = event.getTag();
+                batch.buffers[i] = batch.encoders[i].encode(layout, priority, event.getDisplayTag(), event.getThreadName(),
+                        event.getRendered(), event.getTimeMillis());
+            }
+            write(batch, count);
+        } finally {
+            batch.recycle(count);
+        }
+    }
+
+    /**
+     * 一批结束时把到达刷新间隔的缓冲区写入文件
+     */
+    @Override
+    public void endBatch() {
+        flushDue();
+    }
+
+    private static int priorityOf(int level) {
+        switch (level) {
+            case UELogLevel.VERBOSE:
+                return Log.VERBOSE;
+            case UELogLevel.DEBUG:
+                return Log.DEBUG;
+            case UELogLevel.INFO:
+                return Log.INFO;
+            case UELogLevel.WARN:
+                return Log.WARN;
+            default:
+                return Log.ERROR;
+        }
+    }
+
     /**
      * 将日志写入文件中
      *
@@ -71,64 +355,330 @@ public class UEFileLogTool implements UELogTool {
      * @param tag
      * @param msg
      */
-    private synchronized void writeToFile(int priority, String tag, String msg) {
-        String trueTag = tag.split("\\[")[0];
-        File logFile = mLogFiles.get(trueTag);
-        if (logFile == null) {
-            File logDir = new File(LOG_DIR_PATH, trueTag);
-            if (!logDir.exists()) {
-                logDir.mkdirs();
-            }
+    private void writeToFile(int priority, String tag, String msg) {
+        writeToFile(priority, tag.split("\\[")[0], tag, Thread.currentThread().getName(), msg, System.currentTimeMillis());
+    }
 
-            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            Date date = new Date(System.currentTimeMillis());
-            String fileName = format.format(date) + ".log";
-            logFile = new File(logDir, fileName);
-            if (!logFile.exists()) {
-                try {
-                    logFile.createNewFile();
-                } catch (IOException e) {
-                }
-            }
-            mLogFiles.put(trueTag, logFile);
+    /**
+     * 将日志写入文件中，msg中的每一行都会加上时间、级别和Tag前缀
+     *
+     * @param priority
+     * @param trueTag  不包含线程信息的Tag，决定日志文件夹
+     * @param tag      输出的Tag
+     * @param thread   线程名
+     * @param msg
+     * @param time     日志时间
+     */
+    private void writeToFile(int priority, String trueTag, String tag, String thread, CharSequence msg, long time) {
+        //编码在调用线程中完成，只有写入缓冲区时才需要加锁
+        UELogLineEncoder encoder = mLineEncoder.get();
+        ByteBuffer bytes = encoder.encode(mLayout, priority, tag, thread, msg, time);
+        try {
+            write(priority, trueTag, bytes);
+        } finally {
+            encoder.recycle();
         }
-        BufferedWriter bufWriter = null;
-        OutputStreamWriter out = null;
+    }
+
+    private synchronized void write(int priority, String trueTag, ByteBuffer bytes) {
+        UELogFileWriter writer = mLogWriters.get(trueTag);
+        long now = System.currentTimeMillis();
         try {
-            out = new OutputStreamWriter(new FileOutputStream(logFile, true), "UTF-8");
-            bufWriter = new BufferedWriter(out);
-            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-            Date date = new Date(System.currentTimeMillis());
-            String priorityName = null;
-            if (priority == Log.VERBOSE) {
-                priorityName = "V";
-            } else if (priority == Log.INFO) {
-                priorityName = "I";
-            } else if (priority == Log.DEBUG) {
-                priorityName = "D";
-            } else if (priority == Log.WARN) {
-                priorityName = "W";
-            } else if (priority == Log.ERROR) {
-                priorityName = "E";
-            } else {
-                priorityName = "V";
-            }
-            bufWriter.write(format.format(date) + ": " + priorityName + "/" + tag + ": " + msg + "\r\n");
+            writer = getWriter(trueTag, now);
+            mBytesWritten += bytes.remaining();
+            writer.write(bytes);
+            flushIfNeeded(writer, priority, now);
         } catch (Exception e) {
+            closeWriter(trueTag, writer);
         } catch (Error error) {
-        } finally {
-            if (bufWriter != null) {
-                try {
-                    bufWriter.close();
-                } catch (Exception e) {
-                }
+            closeWriter(trueTag, writer);
+        }
+    }
+
+    /**
+     * 按Tag分组写入一批编码好的日志，同一个Tag的日志保持原来的顺序一次写入
+     */
+    private synchronized void write(Batch batch, int count) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            String trueTag = batch.tags[i];
+            if (trueTag == null) {
+                continue;
             }
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (Exception e) {
+            int size = 0;
+            int priority = Log.VERBOSE;
+            long bytes = 0;
+            for (int j = i; j < count; j++) {
+                if (trueTag.equals(batch.tags[j])) {
+                    batch.group[size++] = batch.buffers[j];
+                    priority = Math.max(priority, batch.priorities[j]);
+                    bytes += batch.buffers[j].remaining();
+                    batch.tags[j] = null;
                 }
             }
+            UELogFileWriter writer = mLogWriters.get(trueTag);
+            try {
+                writer = getWriter(trueTag, now);
+                mBytesWritten += bytes;
+                writer.write(batch.group, size);
+                flushIfNeeded(writer, priority, now);
+            } catch (Exception e) {
+                closeWriter(trueTag, writer);
+            } catch (Error error) {
+                closeWriter(trueTag, writer);
+            }
+        }
+    }
+
+    /**
+     * ERROR及以上级别的日志或者到达刷新间隔时写入文件，否则等待定时刷新
+     */
+    private void flushIfNeeded(UELogFileWriter writer, int priority, long now) throws IOException {
+        if (priority >= Log.ERROR || writer.getMillisSinceFlush(now) >= mFlushIntervalMillis) {
+            writer.flush();
+            mFlushCount++;
+        } else {
+            writer.mDirty = true;
+            mFlushTimer.schedule(mFlushIntervalMillis - writer.getMillisSinceFlush(now));
+        }
+    }
+
+    /**
+     * 把到达刷新间隔的缓冲区写入文件，还有没到时间的日志时继续等待
+     */
+    private synchronized void flushDue() {
+        long now = System.currentTimeMillis();
+        long delay = -1;
+        for (Map.Entry<String, UELogFileWriter> entry : new ArrayList<>(mLogWriters.entrySet())) {
+            UELogFileWriter writer = entry.getValue();
+            if (!writer.mDirty) {
+                continue;
+            }
+            long remaining = mFlushIntervalMillis - writer.getMillisSinceFlush(now);
+            if (remaining > 0) {
+                delay = delay < 0 ? remaining : Math.min(delay, remaining);
+                continue;
+            }
+            try {
+                writer.flush();
+                mFlushCount++;
+            } catch (IOException e) {
+                closeWriter(entry.getKey(), writer);
+            }
+        }
+        if (delay >= 0) {
+            mFlushTimer.schedule(delay);
+        }
+    }
+
+    /**
+     * @return Tag对应的日志文件写入器，没有打开或者需要滚动时打开新的日志文件
+     */
+    private UELogFileWriter getWriter(String trueTag, long now) throws IOException {
+        UELogFileWriter writer = mLogWriters.get(trueTag);
+        if (writer == null) {
+            writer = openWriter(trueTag, now);
+            mRoller.cleanupAsync(writer.getFile().getParentFile());
+        } else if (needRoll(writer, now)) {
+            UELogFileWriter rolledWriter = writer;
+            writer = openWriter(trueTag, now);
+            //旧文件的关闭、压缩和清理都在后台完成
+            mRoller.roll(rolledWriter);
+        }
+        return writer;
+    }
+
+    /**
+     * 导出日志前把缓冲区写入文件，并登记正在写入的文件当前的内容，之后写入的日志不会被导出
+     */
+    synchronized void snapshot(UELogExporter exporter) {
+        for (Map.Entry<String, UELogFileWriter> entry : new ArrayList<>(mLogWriters.entrySet())) {
+            UELogFileWriter writer = entry.getValue();
+            try {
+                writer.flush();
+                mFlushCount++;
+                writer.snapshot(exporter);
+            } catch (IOException e) {
+                closeWriter(entry.getKey(), writer);
+            }
+        }
+    }
+
+    /**
+     * 将缓冲区中的日志全部写入文件
+     */
+    @Override
+    public synchronized void flush() {
+        for (Map.Entry<String, UELogFileWriter> entry : new ArrayList<>(mLogWriters.entrySet())) {
+            try {
+                entry.getValue().flush();
+                mFlushCount++;
+            } catch (IOException e) {
+                closeWriter(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 关闭所有打开的日志文件，之后再输出日志时会重新创建日志文件
+     */
+    public synchronized void close() {
+        for (Map.Entry<String, UELogFileWriter> entry : new ArrayList<>(mLogWriters.entrySet())) {
+            closeWriter(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private boolean needRoll(UELogFileWriter writer, long now) {
+        return (mMaxFileSize > 0 && writer.length() >= mMaxFileSize) || (writer.mRollTime > 0 && now >= writer.mRollTime);
+    }
+
+    private UELogFileWriter openWriter(String trueTag, long now) throws IOException {
+        UELogFileWriter writer = openWriter(trueTag);
+        writer.mRollTime = getNextRollTime(now);
+        mRoller.activate(writer.getFile());
+        mLogWriters.put(trueTag, writer);
+        return writer;
+    }
+
+    private long getNextRollTime(long now) {
+        if (mRollInterval != ROLL_HOURLY && mRollInterval != ROLL_DAILY) {
+            return 0;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (mRollInterval == ROLL_HOURLY) {
+            calendar.add(Calendar.HOUR_OF_DAY, 1);
+        } else {
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 打开Tag对应的日志文件写入器
+     *
+     * @param trueTag
+     * @return
+     * @throws IOException
+     */
+    UELogFileWriter openWriter(String trueTag) throws IOException {
+        if (mCompressMode == COMPRESS_STREAMING) {
+            return new UEGzipLogFileWriter(createLogFile(getLogDir(trueTag), ".log" + UELogFileRoller.GZIP_SUFFIX),
+                    mBufferSize, mSyncFlushRecords, mRoller.getStats());
+        }
+        return new UEBufferedLogFileWriter(createLogFile(getLogDir(trueTag), ".log"), mBufferSize);
+    }
+
+    /**
+     * @return 日志文件夹，每个Tag一个子文件夹
+     */
+    static File getLogRootDir() {
+        String path = LOG_DIR_PATH;
+        return path != null ? new File(path) : new File(Environment.getExternalStorageDirectory(), "UELOG");
+    }
+
+    /**
+     * @param trueTag
+     * @return Tag对应的日志文件夹
+     */
+    File getLogDir(String trueTag) {
+        File logDir = new File(LOG_DIR_PATH, trueTag);
+        if (!logDir.exists()) {
+            logDir.mkdirs();
+        }
+        return logDir;
+    }
+
+    /**
+     * 根据当前时间在日志文件夹中创建日志文件
+     * <p>
+     * 同一分钟内滚动产生的日志文件会在文件名后加序号，避免写入已滚动的文件
+     *
+     * @param logDir
+     * @param suffix 文件后缀
+     * @return
+     */
+    File createLogFile(File logDir, String suffix) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        Date date = new Date(System.currentTimeMillis());
+        String baseName = format.format(date);
+        String fileName = baseName + suffix;
+        for (int i = 2; isUsedFile(logDir, fileName); i++) {
+            fileName = baseName + "_" + i + suffix;
+        }
+        File logFile = new File(logDir, fileName);
+        mUsedLogFiles.add(logFile.getAbsolutePath());
+        if (!logFile.exists()) {
+            try {
+                logFile.createNewFile();
+            } catch (IOException e) {
+            }
+        }
+        return logFile;
+    }
+
+    /**
+     * @return 文件是否已经被当前进程使用过或者已经被压缩，已存在的.gz文件不能追加，总是作为已使用的文件
+     */
+    private boolean isUsedFile(File logDir, String fileName) {
+        File file = new File(logDir, fileName);
+        return mUsedLogFiles.contains(file.getAbsolutePath())
+                || new File(logDir, fileName + UELogFileRoller.GZIP_SUFFIX).exists()
+                || (fileName.endsWith(UELogFileRoller.GZIP_SUFFIX) && file.exists());
+    }
+
+    /**
+     * 写入出错时关闭文件，下一次写入时会重新打开
+     */
+    private void closeWriter(String trueTag, UELogFileWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        mLogWriters.remove(trueTag);
+        try {
+            writer.close();
+        } catch (Exception e) {
+        }
+        mRoller.deactivate(writer.getFile());
+    }
+
+    /**
+     * 一个线程按批编码日志的缓冲区，每条日志使用单独的编码器，编码结果在整批写入前都有效
+     */
+    private static final class Batch {
+        UELogLineEncoder[] encoders = new UELogLineEncoder[0];
+        ByteBuffer[] buffers = new ByteBuffer[0];
+        ByteBuffer[] group = new ByteBuffer[0];
+        String[] tags = new String[0];
+        int[] priorities = new int[0];
+
+        void ensureCapacity(int count) {
+            if (encoders.length >= count) {
+                return;
+            }
+            UELogLineEncoder[] newEncoders = new UELogLineEncoder[count];
+            System.arraycopy(encoders, 0, newEncoders, 0, encoders.length);
+            for (int i = encoders.length; i < count; i++) {
+                newEncoders[i] = new UELogLineEncoder();
+            }
+            encoders = newEncoders;
+            buffers = new ByteBuffer[count];
+            group = new ByteBuffer[count];
+            tags = new String[count];
+            priorities = new int[count];
+        }
+
+        void recycle(int count) {
+            for (int i = 0; i < count; i++) {
+                encoders[i].recycle();
+                buffers[i] = null;
+                group[i] = null;
+                tags[i] = null;
+            }
         }
     }
 }
@@ -0,0 +1,106 @@
+package com.ueueo.log;
+
+/**
+ * Json和Xml格式化时的长度限制
+ * <p>
+ * 只计算内容的字符数，换行时写入的前缀（例如边框）和行首的缩进不计算在内，因此带边框和不带边框时截断的位置相同。
+ * 每次检查只统计上次检查之后写入的内容
+ */
+final class UEFormatLimit {
+
+    private final StringBuilder mOut;
+    private final String mNewline;
+    private final int mMaxLength;
+    //已经统计到的位置和内容字符数
+    private int mScanned;
+    private int mLength;
+    //正在跳过行首的缩进
+    private boolean mLineStart;
+    //第maxLength个内容字符之后的位置，没有超出时为-1
+    private int mCut = -1;
+
+    /**
+     * @param out       输出缓冲区
+     * @param start     格式化开始时缓冲区的长度
+     * @param newline   换行时写入的内容
+     * @param maxLength 最多输出的内容字符数，0表示不限制
+     */
+    UEFormatLimit(StringBuilder out, int start, String newline, int maxLength) {
+        mOut = out;
+        mNewline = newline;
+        mMaxLength = maxLength;
+        mScanned = start;
+    }
+
+    /**
+     * @return 还可以写入的内容字符数，不限制时返回Integer.MAX_VALUE
+     */
+    int remaining() {
+        if (mMaxLength <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        scan();
+        return Math.max(0, mMaxLength - mLength);
+    }
+
+    /**
+     * 超出最大长度时截断，不拆分代理对，并在末尾写入截断的提示
+     *
+     * @param totalLength 原始内容的字符数
+     * @return 是否已截断
+     */
+    boolean truncate(int totalLength) {
+        if (mMaxLength <= 0) {
+            return false;
+        }
+        scan();
+        if (mLength <= mMaxLength) {
+            return false;
+        }
+        int cut = mCut;
+        if (Character.isHighSurrogate(mOut.charAt(cut - 1))) {
+            cut--;
+        }
+        mOut.setLength(cut);
+        mOut.append(mNewline).append("... (truncated, ").append(totalLength).append(" chars total)");
+        mScanned = mOut.length();
+        return true;
+    }
+
+    private void scan() {
+        StringBuilder out = mOut;
+        String newline = mNewline;
+        int length = out.length();
+        int i = mScanned;
+        while (i < length) {
+            if (out.charAt(i) == newline.charAt(0) && startsWith(out, i, newline)) {
+                i += newline.length();
+                mLineStart = true;
+                continue;
+            }
+            if (mLineStart && out.charAt(i) == ' ') {
+                i++;
+                continue;
+            }
+            mLineStart = false;
+            mLength++;
+            i++;
+            if (mLength == mMaxLength) {
+                mCut = i;
+            }
+        }
+        mScanned = length;
+    }
+
+    private static boolean startsWith(StringBuilder out, int offset, String prefix) {
+        if (offset + prefix.length() > out.length()) {
+            return false;
+        }
+        for (int i = 1; i < prefix.length(); i++) {
+            if (out.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ueueo.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 边写边压缩的日志文件写入器
+ * <p>
+ * 日志以gzip格式写入.gz文件，每写入一定数量的日志以及每次{@link #flush()}时做一次同步刷新（SYNC_FLUSH），
+ * 之前的日志都可以完整解压，进程崩溃时只会丢失最后一次同步刷新之后的日志。
+ * 每次都写入新的文件，不会在已存在的文件后追加：崩溃时未结束的压缩数据后面再追加gzip数据段会导致整个文件无法解压。
+ * 可以直接用gzip工具或者{@link UELogFileReader}读取
+ */
+class UEGzipLogFileWriter extends UELogFileWriter {
+
+    private final CountingOutputStream mFileOutput;
+    private final GZIPOutputStream mGzipOutput;
+    private final int mSyncFlushRecords;
+    private final UELogCompressionStats mStats;
+    //距离上一次同步刷新写入的日志条数
+    private int mPendingRecords;
+
+    UEGzipLogFileWriter(File file, int bufferSize, int syncFlushRecords, UELogCompressionStats stats) throws IOException {
+        super(file);
+        mSyncFlushRecords = syncFlushRecords;
+        mStats = stats;
+        mFileOutput = new CountingOutputStream(new FileOutputStream(file));
+        mGzipOutput = new GZIPOutputStream(mFileOutput, bufferSize, true);
+        mBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    @Override
+    void write(ByteBuffer bytes) throws IOException {
+        super.write(bytes);
+        if (mSyncFlushRecords > 0 && ++mPendingRecords >= mSyncFlushRecords) {
+            flush();
+        }
+    }
+
+    /**
+     * @return 压缩后的文件大小，不包括还未压缩的日志
+     */
+    @Override
+    long length() {
+        return mFileOutput.mCount;
+    }
+
+    @Override
+    protected void onBufferFull() throws IOException {
+        deflateBuffer(false);
+    }
+
+    /**
+     * 压缩缓冲区中的日志并同步刷新，之前写入的日志都可以完整解压
+     */
+    @Override
+    public void flush() throws IOException {
+        deflateBuffer(true);
+        mPendingRecords = 0;
+        super.flush();
+    }
+
+    private void deflateBuffer(boolean syncFlush) throws IOException {
+        int length = mBuffer.position();
+        if (length == 0 && !syncFlush) {
+            return;
+        }
+        long start = System.nanoTime();
+        long compressed = mFileOutput.mCount;
+        mGzipOutput.write(mBuffer.array(), mBuffer.arrayOffset(), length);
+        if (syncFlush) {
+            mGzipOutput.flush();
+        }
+        mBuffer.clear();
+        mStats.record(length, mFileOutput.mCount - compressed, System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            deflateBuffer(false);
+            long start = System.nanoTime();
+            long compressed = mFileOutput.mCount;
+            mGzipOutput.finish();
+            mStats.record(0, mFileOutput.mCount - compressed, System.nanoTime() - start);
+        } finally {
+            mGzipOutput.close();
+        }
+    }
+
+    /**
+     * 统计写入文件的字节数
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        volatile long mCount;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            mCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            mCount += len;
+        }
+    }
+}
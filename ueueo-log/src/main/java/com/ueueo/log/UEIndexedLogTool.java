@@ -0,0 +1,680 @@
+package com.ueueo.log;
+
+import android.os.Environment;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 带索引的日志存储
+ * <p>
+ * 日志按块写入分段文件，每个分段由数据文件（.uels）和稀疏索引文件（.uelx）组成。索引中记录每个块的位置、
+ * 时间范围、包含的日志级别和Tag编号，查询时只读取索引和可能包含匹配日志的块：
+ * <pre>
+ * UELog.addLogTool(new UEIndexedLogTool());
+ * //最近一小时Tag为Payment的WARN及以上级别的日志
+ * long now = System.currentTimeMillis();
+ * UELog.query(now - 3600 * 1000, now, UELogLevel.WARN, "Payment", new UELogRecord.Visitor() {
+ *     public boolean visit(UELogRecord record) {
+ *         ...
+ *         return true;
+ *     }
+ * });
+ * </pre>
+ * 只保存格式化后的日志内容，不保存边框和拼接的内容。块写满、到达刷新间隔或者输出ERROR及以上级别的日志时写入文件，
+ * 分段写满后创建新的分段，只保留最近的几个分段
+ * <p>
+ * 索引文件格式：文件头为"UELX"和版本号，之后是连续的记录，每条记录以varint表示的长度开始。
+ * Tag只在分段中第一次出现时写入一条定义记录，块记录中只写入编号
+ */
+public class UEIndexedLogTool implements UELogEventTool, Flushable {
+
+    static final String DATA_SUFFIX = ".uels";
+    static final String INDEX_SUFFIX = ".uelx";
+    static final byte[] DATA_MAGIC = {'U', 'E', 'L', 'S'};
+    static final byte[] INDEX_MAGIC = {'U', 'E', 'L', 'X'};
+    static final int VERSION = 1;
+
+    static final int ENTRY_TAG = 1;
+    static final int ENTRY_BLOCK = 2;
+
+    private static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final long DEFAULT_MAX_SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_SEGMENT_COUNT = 8;
+
+    private final File mLogDir;
+    private int mBlockSize = DEFAULT_BLOCK_SIZE;
+    private long mFlushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private long mMaxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    private int mMaxSegmentCount = DEFAULT_MAX_SEGMENT_COUNT;
+
+    // 当前分段，没有打开时为null
+    private FileChannel mData;
+    private FileChannel mIndex;
+    private File mDataFile;
+    private File mIndexFile;
+    private long mDataLength;
+    // 当前分段中已定义的Tag和编号
+    private final HashMap<String, Integer> mTagIds = new HashMap<>();
+
+    // 当前块
+    private final UEBinaryLogTool.ByteSink mBlock = new UEBinaryLogTool.ByteSink();
+    private final BitSet mBlockTags = new BitSet();
+    private int mBlockCount;
+    private int mBlockLevels;
+    private long mBlockMinTime;
+    private long mBlockMaxTime;
+    private long mLastTime;
+    private long mLastSealTime;
+    // 等待和当前块一起写入索引文件的记录
+    private final UEBinaryLogTool.ByteSink mPendingIndex = new UEBinaryLogTool.ByteSink();
+    private final UEBinaryLogTool.ByteSink mEntry = new UEBinaryLogTool.ByteSink();
+    // 进程空闲时定时把当前块写入文件
+    private final UELogFlushTimer mFlushTimer = new UELogFlushTimer(new Runnable() {
+        @Override
+        public void run() {
+            sealDue();
+        }
+    });
+
+    /**
+     * 日志文件存储路径为外部存储UELOG/store文件夹下
+     */
+    public UEIndexedLogTool() {
+        this(new File(new File(Environment.getExternalStorageDirectory(), "UELOG"), "store"));
+    }
+
+    /**
+     * @param logDir 分段文件存储的文件夹
+     */
+    public UEIndexedLogTool(File logDir) {
+        mLogDir = logDir;
+    }
+
+    /**
+     * 设置每个块的大小，块越小查询时读取的无关日志越少，索引越大
+     *
+     * @param blockSize 字节数
+     * @return
+     */
+    public UEIndexedLogTool blockSize(int blockSize) {
+        if (blockSize < 1024) {
+            blockSize = 1024;
+        }
+        mBlockSize = blockSize;
+        return this;
+    }
+
+    /**
+     * 设置块中的日志最长多久写入一次文件，ERROR及以上级别的日志总是立即写入
+     *
+     * @param flushIntervalMillis 毫秒数，0表示每条日志都立即写入
+     * @return
+     */
+    public UEIndexedLogTool flushInterval(long flushIntervalMillis) {
+        mFlushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 设置每个分段的最大字节数和最多保留的分段数量，超过后删除最旧的分段
+     *
+     * @param maxSegmentSize  字节数
+     * @param maxSegmentCount 分段数量
+     * @return
+     */
+    public UEIndexedLogTool retention(long maxSegmentSize, int maxSegmentCount) {
+        mMaxSegmentSize = Math.max(mBlockSize, maxSegmentSize);
+        mMaxSegmentCount = Math.max(1, maxSegmentCount);
+        return this;
+    }
+
+    @Override
+    public void d(String tag, String message) {
+        logText(UELogLevel.DEBUG, tag, message);
+    }
+
+    @Override
+    public void e(String tag, String message) {
+        logText(UELogLevel.ERROR, tag, message);
+    }
+
+    @Override
+    public void w(String tag, String message) {
+        logText(UELogLevel.WARN, tag, message);
+    }
+
+    @Override
+    public void i(String tag, String message) {
+        logText(UELogLevel.INFO, tag, message);
+    }
+
+    @Override
+    public void v(String tag, String message) {
+        logText(UELogLevel.VERBOSE, tag, message);
+    }
+
+    @Override
+    public void wtf(String tag, String message) {
+        logText(UELogLevel.ASSERT, tag, message);
+    }
+
+    private void logText(int level, String tag, String message) {
+        record(System.currentTimeMillis(), level, tag.split("\\[")[0], Thread.currentThread().getName(), null, message);
+    }
+
+    /**
+     * 记录格式化后的日志内容，不保存边框和拼接的内容
+     *
+     * @param event
+     */
+    @Override
+    public void log(UELogEvent event) {
+        String caller = event.callerFrameCount > 0 ? event.callerFrames[0] : null;
+        record(event.timeMillis, event.level, event.tag, event.threadName, caller, event.formattedMessage);
+    }
+
+    private synchronized void record(long time, int level, String tag, String thread, String caller, String message) {
+        if (mData == null) {
+            try {
+                openSegment();
+            } catch (IOException e) {
+                closeSegment();
+                return;
+            }
+        }
+        if (tag == null) {
+            tag = "";
+        }
+        int tagId = tagId(tag);
+        UEBinaryLogTool.ByteSink block = mBlock;
+        block.writeZigZag(time - mLastTime);
+        block.writeByte(level);
+        block.writeVarint(tagId);
+        block.writeString(thread != null ? thread : "");
+        block.writeString(caller != null ? caller : "");
+        block.writeString(message);
+        mLastTime = time;
+        if (mBlockCount == 0 || time < mBlockMinTime) {
+            mBlockMinTime = time;
+        }
+        if (mBlockCount == 0 || time > mBlockMaxTime) {
+            mBlockMaxTime = time;
+        }
+        mBlockCount++;
+        mBlockLevels |= 1 << Math.max(0, Math.min(level, 7));
+        mBlockTags.set(tagId);
+        long now = System.currentTimeMillis();
+        if (block.length() >= mBlockSize || level >= UELogLevel.ERROR || now - mLastSealTime >= mFlushIntervalMillis) {
+            sealBlock(now);
+        } else {
+            mFlushTimer.schedule(mFlushIntervalMillis - (now - mLastSealTime));
+        }
+    }
+
+    /**
+     * 到达刷新间隔时把当前块写入文件，还没到时间时继续等待
+     */
+    private synchronized void sealDue() {
+        if (mData == null || mBlockCount == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long remaining = mFlushIntervalMillis - (now - mLastSealTime);
+        if (remaining > 0) {
+            mFlushTimer.schedule(remaining);
+        } else {
+            sealBlock(now);
+        }
+    }
+
+    /**
+     * @return Tag在当前分段中的编号，第一次出现时写入一条定义记录
+     */
+    private int tagId(String tag) {
+        Integer id = mTagIds.get(tag);
+        if (id == null) {
+            id = mTagIds.size() + 1;
+            mTagIds.put(tag, id);
+            UEBinaryLogTool.ByteSink entry = mEntry;
+            entry.reset();
+            entry.writeByte(ENTRY_TAG);
+            entry.writeVarint(id);
+            entry.writeString(tag);
+            mPendingIndex.writeVarint(entry.length());
+            mPendingIndex.write(entry);
+        }
+        return id;
+    }
+
+    /**
+     * 把当前块写入数据文件，再把块的索引写入索引文件，索引记录写入时块的内容一定已经在文件中
+     */
+    private void sealBlock(long now) {
+        mLastSealTime = now;
+        if (mBlockCount == 0) {
+            return;
+        }
+        try {
+            ByteBuffer data = mBlock.buffer();
+            long offset = mDataLength;
+            int length = data.remaining();
+            writeFully(mData, data);
+            mDataLength += length;
+            UEBinaryLogTool.ByteSink entry = mEntry;
+            entry.reset();
+            entry.writeByte(ENTRY_BLOCK);
+            entry.writeVarint(offset);
+            entry.writeVarint(length);
+            entry.writeFixed(mBlockMinTime, 8);
+            entry.writeFixed(mBlockMaxTime, 8);
+            entry.writeByte(mBlockLevels);
+            entry.writeVarint(mBlockCount);
+            entry.writeVarint(mBlockTags.cardinality());
+            for (int id = mBlockTags.nextSetBit(0); id >= 0; id = mBlockTags.nextSetBit(id + 1)) {
+                entry.writeVarint(id);
+            }
+            mPendingIndex.writeVarint(entry.length());
+            mPendingIndex.write(entry);
+            writeFully(mIndex, mPendingIndex.buffer());
+        } catch (IOException e) {
+            closeSegment();
+            return;
+        } finally {
+            resetBlock();
+        }
+        if (mDataLength >= mMaxSegmentSize) {
+            closeSegment();
+        }
+    }
+
+    private void resetBlock() {
+        mBlock.reset();
+        mBlock.trim();
+        mPendingIndex.reset();
+        mPendingIndex.trim();
+        mBlockTags.clear();
+        mBlockCount = 0;
+        mBlockLevels = 0;
+        mLastTime = 0;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        if (!mLogDir.exists()) {
+            mLogDir.mkdirs();
+        }
+        deleteOldSegments(mMaxSegmentCount - 1);
+        String baseName = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date());
+        String name = baseName;
+        for (int i = 2; new File(mLogDir, name + INDEX_SUFFIX).exists(); i++) {
+            name = baseName + "_" + i;
+        }
+        mDataFile = new File(mLogDir, name + DATA_SUFFIX);
+        mIndexFile = new File(mLogDir, name + INDEX_SUFFIX);
+        mData = new FileOutputStream(mDataFile, true).getChannel();
+        mIndex = new FileOutputStream(mIndexFile, true).getChannel();
+        ByteBuffer header = ByteBuffer.allocate(DATA_MAGIC.length + 1);
+        header.put(DATA_MAGIC).put((byte) VERSION).flip();
+        writeFully(mData, header);
+        mDataLength = header.limit();
+        header.clear();
+        header.put(INDEX_MAGIC).put((byte) VERSION).flip();
+        writeFully(mIndex, header);
+        mLastSealTime = System.currentTimeMillis();
+    }
+
+    private void closeSegment() {
+        FileChannel data = mData;
+        FileChannel index = mIndex;
+        mData = null;
+        mIndex = null;
+        mTagIds.clear();
+        resetBlock();
+        closeQuietly(data);
+        closeQuietly(index);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * 删除最旧的分段，只保留keepCount个
+     */
+    private void deleteOldSegments(int keepCount) {
+        File[] segments = listSegments();
+        for (int i = 0; i < segments.length - keepCount; i++) {
+            String path = segments[i].getPath();
+            segments[i].delete();
+            new File(path.substring(0, path.length() - INDEX_SUFFIX.length()) + DATA_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * @return 按创建时间排列的所有分段的索引文件
+     */
+    private File[] listSegments() {
+        File[] files = mLogDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(INDEX_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * 将当前块中的日志写入文件
+     */
+    @Override
+    public synchronized void flush() {
+        if (mData != null) {
+            sealBlock(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 导出日志前把当前块写入文件，并登记当前分段的内容，索引中的块都已经完整写入数据文件
+     */
+    synchronized void snapshot(UELogExporter exporter) {
+        flush();
+        if (mData != null) {
+            try {
+                exporter.addActiveFile(mDataFile, 0, mDataLength, null);
+                exporter.addActiveFile(mIndexFile, 0, mIndex.size(), null);
+            } catch (IOException e) {
+                closeSegment();
+            }
+        }
+    }
+
+    /**
+     * 关闭当前分段，之后再输出日志时会创建新的分段
+     */
+    public synchronized void close() {
+        flush();
+        closeSegment();
+    }
+
+    /**
+     * 按写入顺序查询日志，只读取时间范围、级别和Tag可能匹配的块
+     *
+     * @param fromMillis 开始时间（包括）
+     * @param toMillis   结束时间（包括）
+     * @param minLevel   最低级别，参考：{@link UELogLevel}
+     * @param tagPattern Tag，支持以*结尾的前缀匹配，null表示所有Tag
+     * @param visitor    逐条接收匹配的日志
+     * @return 匹配的日志条数
+     */
+    public int query(long fromMillis, long toMillis, int minLevel, String tagPattern, UELogRecord.Visitor visitor) {
+        //当前块中的日志也需要能被查询到
+        flush();
+        Query query = new Query(fromMillis, toMillis, minLevel, "*".equals(tagPattern) ? null : tagPattern, visitor);
+        File[] segments;
+        synchronized (this) {
+            segments = listSegments();
+        }
+        for (File indexFile : segments) {
+            try {
+                querySegment(indexFile, query);
+            } catch (IOException e) {
+                //分段可能在查询期间被删除
+            }
+            if (query.mStopped) {
+                break;
+            }
+        }
+        return query.mCount;
+    }
+
+    private static void querySegment(File indexFile, Query query) throws IOException {
+        ByteReader index = new ByteReader(readFile(indexFile));
+        for (byte b : INDEX_MAGIC) {
+            if (index.readByte() != (b & 0xFF)) {
+                throw new IOException("Not an index file: " + indexFile);
+            }
+        }
+        if (index.readByte() != VERSION) {
+            throw new IOException("Unsupported version: " + indexFile);
+        }
+        String indexPath = indexFile.getPath();
+        File dataFile = new File(indexPath.substring(0, indexPath.length() - INDEX_SUFFIX.length()) + DATA_SUFFIX);
+        List<String> tags = new ArrayList<>();
+        BitSet matchedTags = new BitSet();
+        RandomAccessFile data = null;
+        ByteReader block = new ByteReader(new byte[DEFAULT_BLOCK_SIZE]);
+        try {
+            while (index.hasRemaining()) {
+                int entryLength;
+                try {
+                    entryLength = (int) index.readVarint();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (entryLength > index.remaining()) {
+                    //进程崩溃时正在写入的记录
+                    break;
+                }
+                int entryEnd = index.mPosition + entryLength;
+                int type = index.readByte();
+                if (type == ENTRY_TAG) {
+                    int id = (int) index.readVarint();
+                    String tag = index.readString();
+                    while (tags.size() < id) {
+                        tags.add(null);
+                    }
+                    tags.set(id - 1, tag);
+                    if (query.mTagPattern == null || UELogRouter.Sink.matches(query.mTagPattern, tag)) {
+                        matchedTags.set(id);
+                    }
+                } else if (type == ENTRY_BLOCK) {
+                    long offset = index.readVarint();
+                    int length = (int) index.readVarint();
+                    long minTime = index.readFixed(8);
+                    long maxTime = index.readFixed(8);
+                    int levels = index.readByte();
+                    index.readVarint();
+                    int tagCount = (int) index.readVarint();
+                    boolean tagMatched = false;
+                    for (int i = 0; i < tagCount; i++) {
+                        tagMatched |= matchedTags.get((int) index.readVarint());
+                    }
+                    if (!tagMatched || maxTime < query.mFromMillis || minTime > query.mToMillis
+                            || (levels >>> Math.max(0, query.mMinLevel)) == 0) {
+                        index.mPosition = entryEnd;
+                        continue;
+                    }
+                    if (data == null) {
+                        data = new RandomAccessFile(dataFile, "r");
+                    }
+                    block.load(data, offset, length);
+                    if (!queryBlock(block, tags, matchedTags, query)) {
+                        return;
+                    }
+                }
+                index.mPosition = entryEnd;
+            }
+        } finally {
+            if (data != null) {
+                data.close();
+            }
+        }
+    }
+
+    /**
+     * @return 是否继续查询
+     */
+    private static boolean queryBlock(ByteReader block, List<String> tags, BitSet matchedTags, Query query) throws IOException {
+        long time = 0;
+        while (block.hasRemaining()) {
+            time += block.readZigZag();
+            int level = block.readByte();
+            int tagId = (int) block.readVarint();
+            if (time < query.mFromMillis || time > query.mToMillis || level < query.mMinLevel || !matchedTags.get(tagId)) {
+                block.skipString();
+                block.skipString();
+                block.skipString();
+                continue;
+            }
+            String thread = block.readString();
+            String caller = block.readString();
+            String message = block.readString();
+            String tag = tagId > 0 && tagId <= tags.size() ? tags.get(tagId - 1) : "";
+            query.mCount++;
+            if (!query.mVisitor.visit(new UELogRecord(time, level, tag, thread, caller.length() > 0 ? caller : null, message))) {
+                query.mStopped = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) input.length()];
+            input.readFully(bytes);
+            return bytes;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 一次查询的条件和结果
+     */
+    private static final class Query {
+        final long mFromMillis;
+        final long mToMillis;
+        final int mMinLevel;
+        final String mTagPattern;
+        final UELogRecord.Visitor mVisitor;
+        int mCount;
+        boolean mStopped;
+
+        Query(long fromMillis, long toMillis, int minLevel, String tagPattern, UELogRecord.Visitor visitor) {
+            mFromMillis = fromMillis;
+            mToMillis = toMillis;
+            mMinLevel = minLevel;
+            mTagPattern = tagPattern;
+            mVisitor = visitor;
+        }
+    }
+
+    /**
+     * 读取索引和块的内容
+     */
+    private static final class ByteReader {
+        byte[] mBytes;
+        int mPosition;
+        int mLimit;
+
+        ByteReader(byte[] bytes) {
+            mBytes = bytes;
+            mLimit = bytes.length;
+        }
+
+        /**
+         * 读取数据文件中的一个块
+         */
+        void load(RandomAccessFile file, long offset, int length) throws IOException {
+            if (mBytes.length < length) {
+                mBytes = new byte[length];
+            }
+            file.seek(offset);
+            file.readFully(mBytes, 0, length);
+            mPosition = 0;
+            mLimit = length;
+        }
+
+        boolean hasRemaining() {
+            return mPosition < mLimit;
+        }
+
+        int remaining() {
+            return mLimit - mPosition;
+        }
+
+        int readByte() throws IOException {
+            if (mPosition >= mLimit) {
+                throw new EOFException("Corrupted record");
+            }
+            return mBytes[mPosition++] & 0xFF;
+        }
+
+        long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Corrupted varint");
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readFixed(int byteCount) throws IOException {
+            long result = 0;
+            for (int i = 0; i < byteCount; i++) {
+                result |= (long) readByte() << (i * 8);
+            }
+            return result;
+        }
+
+        String readString() throws IOException {
+            int length = stringLength();
+            String value = new String(mBytes, mPosition, length, "UTF-8");
+            mPosition += length;
+            return value;
+        }
+
+        void skipString() throws IOException {
+            int length = stringLength();
+            mPosition += length;
+        }
+
+        private int stringLength() throws IOException {
+            int length = (int) readVarint();
+            if (length < 0 || length > mLimit - mPosition) {
+                throw new EOFException("Corrupted record");
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.ueueo.log;
+
+/**
+ * Json格式化
+ * <p>
+ * 单次遍历Json字符串，一边校验一边把缩进后的结果直接写入输出缓冲区，
+ * 不需要先解析成JSONObject/JSONArray再重新序列化，字符串和数字按原样输出
+ */
+final class UEJsonFormatter {
+
+    private static final int INDENT = 4;
+
+    //期望一个值
+    private static final int EXPECT_VALUE = 0;
+    //'['之后，期望一个值或者']'
+    private static final int EXPECT_VALUE_OR_END = 1;
+    //'{'之后，期望一个key或者'}'
+    private static final int EXPECT_KEY_OR_END = 2;
+    //对象中','之后，期望一个key
+    private static final int EXPECT_KEY = 3;
+    //key之后，期望':'
+    private static final int EXPECT_COLON = 4;
+    //值之后，期望','或者结束符
+    private static final int EXPECT_COMMA_OR_END = 5;
+    //最外层的值已经结束
+    private static final int DONE = 6;
+
+    //字符串或数字超出了长度限制，只读取到限制的位置
+    private static final int TRUNCATED = -2;
+
+    private UEJsonFormatter() {
+    }
+
+    /**
+     * 格式化Json字符串
+     *
+     * @param json      Json字符串
+     * @param out       输出缓冲区
+     * @param newline   换行时写入的内容，可以在换行后加上边框等前缀
+     * @param maxLength 最多输出的Json内容字符数，不包括换行和缩进，超出后截断，0表示不限制
+     * @return Json格式是否正确，格式错误时out恢复为调用前的内容
+     */
+    static boolean format(CharSequence json, StringBuilder out, String newline, int maxLength) {
+        final int start = out.length();
+        final int length = json.length();
+        //true表示对象，false表示数组
+        boolean[] stack = new boolean[16];
+        int depth = 0;
+        int state = EXPECT_VALUE;
+        boolean pendingNewline = false;
+        UEFormatLimit limit = maxLength > 0 ? new UEFormatLimit(out, start, newline, maxLength) : null;
+        int i = 0;
+        while (i < length) {
+            char c = json.charAt(i);
+            if (isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (limit != null && limit.truncate(length)) {
+                return true;
+            }
+            boolean isEnd = c == '}' || c == ']';
+            if (pendingNewline && !isEnd) {
+                appendNewline(out, newline, depth);
+                pendingNewline = false;
+            }
+            switch (state) {
+                case EXPECT_VALUE:
+                case EXPECT_VALUE_OR_END:
+                    if (c == ']' && state == EXPECT_VALUE_OR_END) {
+                        //空数组
+                        out.append(c);
+                        depth--;
+                        pendingNewline = false;
+                        state = depth == 0 ? DONE : EXPECT_COMMA_OR_END;
+                        i++;
+                    } else if (c == '{' || c == '[') {
+                        if (depth == stack.length) {
+                            boolean[] newStack = new boolean[depth * 2];
+                            System.arraycopy(stack, 0, newStack, 0, depth);
+                            stack = newStack;
+                        }
+                        stack[depth++] = c == '{';
+                        out.append(c);
+                        pendingNewline = true;
+                        state = c == '{' ? EXPECT_KEY_OR_END : EXPECT_VALUE_OR_END;
+                        i++;
+                    } else {
+                        int max = scanLimit(limit, i, length);
+                        int end = c == '"' ? scanString(json, i, max) : scanLiteral(json, i, max);
+                        if (end == TRUNCATED) {
+                            out.append(json, i, max);
+                            limit.truncate(length);
+                            return true;
+                        }
+                        if (end < 0) {
+                            out.setLength(start);
+                            return false;
+                        }
+                        out.append(json, i, end);
+                        state = depth == 0 ? DONE : EXPECT_COMMA_OR_END;
+                        i = end;
+                    }
+                    break;
+                case EXPECT_KEY_OR_END:
+                case EXPECT_KEY:
+                    if (c == '}' && state == EXPECT_KEY_OR_END) {
+                        //空对象
+                        out.append(c);
+                        depth--;
+                        pendingNewline = false;
+                        state = depth == 0 ? DONE : EXPECT_COMMA_OR_END;
+                        i++;
+                    } else if (c == '"') {
+                        int max = scanLimit(limit, i, length);
+                        int end = scanString(json, i, max);
+                        if (end == TRUNCATED) {
+                            out.append(json, i, max);
+                            limit.truncate(length);
+                            return true;
+                        }
+                        if (end < 0) {
+                            out.setLength(start);
+                            return false;
+                        }
+                        out.append(json, i, end);
+                        state = EXPECT_COLON;
+                        i = end;
+                    } else {
+                        out.setLength(start);
+                        return false;
+                    }
+                    break;
+                case EXPECT_COLON:
+                    if (c != ':') {
+                        out.setLength(start);
+                        return false;
+                    }
+                    out.append(": ");
+                    state = EXPECT_VALUE;
+                    i++;
+                    break;
+                case EXPECT_COMMA_OR_END:
+                    if (c == ',') {
+                        out.append(',');
+                        appendNewline(out, newline, depth);
+                        state = stack[depth - 1] ? EXPECT_KEY : EXPECT_VALUE;
+                        i++;
+                    } else if (isEnd && (c == '}') == stack[depth - 1]) {
+                        depth--;
+                        appendNewline(out, newline, depth);
+                        out.append(c);
+                        state = depth == 0 ? DONE : EXPECT_COMMA_OR_END;
+                        i++;
+                    } else {
+                        out.setLength(start);
+                        return false;
+                    }
+                    break;
+                default:
+                    //最外层的值之后还有其他内容
+                    out.setLength(start);
+                    return false;
+            }
+        }
+        if (state != DONE) {
+            out.setLength(start);
+            return false;
+        }
+        //最外层的值是字符串或数字时，或者最后一个结束符超出了限制
+        if (limit != null) {
+            limit.truncate(length);
+        }
+        return true;
+    }
+
+    /**
+     * 字符串和数字最多读取到的位置，比剩余的长度多读取一个字符，截断时才能判断是否超出
+     */
+    private static int scanLimit(UEFormatLimit limit, int start, int length) {
+        if (limit == null) {
+            return length;
+        }
+        return (int) Math.min(length, (long) start + limit.remaining() + 1);
+    }
+
+    private static void appendNewline(StringBuilder out, String newline, int depth) {
+        out.append(newline);
+        for (int i = depth * INDENT; i > 0; i--) {
+            out.append(' ');
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * @param max 最多读取到的位置
+     * @return 字符串结束引号之后的位置，字符串没有结束时返回-1，读取到max仍然没有结束时返回{@link #TRUNCATED}
+     */
+    private static int scanString(CharSequence json, int start, int max) {
+        int length = json.length();
+        for (int i = start + 1; i < length; i++) {
+            if (i >= max) {
+                return TRUNCATED;
+            }
+            char c = json.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            } else if (c < 0x20) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param max 最多读取到的位置
+     * @return true、false、null或数字之后的位置，格式错误时返回-1，读取到max仍然没有结束时返回{@link #TRUNCATED}
+     */
+    private static int scanLiteral(CharSequence json, int start, int max) {
+        int length = json.length();
+        int end = start;
+        while (end < length) {
+            char c = json.charAt(end);
+            if (isWhitespace(c) || c == ',' || c == ':' || c == ']' || c == '}') {
+                break;
+            }
+            if (end >= max) {
+                char first = json.charAt(start);
+                if (first == '-' || (first >= '0' && first <= '9') || first == 't' || first == 'f' || first == 'n') {
+                    return TRUNCATED;
+                }
+                return -1;
+            }
+            end++;
+        }
+        if (matches(json, start, end, "true") || matches(json, start, end, "false") || matches(json, start, end, "null")
+                || isNumber(json, start, end)) {
+            return end;
+        }
+        return -1;
+    }
+
+    private static boolean matches(CharSequence json, int start, int end, String literal) {
+        if (end - start != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (json.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumber(CharSequence json, int start, int end) {
+        int i = start;
+        if (i < end && json.charAt(i) == '-') {
+            i++;
+        }
+        int digits = skipDigits(json, i, end);
+        if (digits == i) {
+            return false;
+        }
+        i = digits;
+        if (i < end && json.charAt(i) == '.') {
+            digits = skipDigits(json, i + 1, end);
+            if (digits == i + 1) {
+                return false;
+            }
+            i = digits;
+        }
+        if (i < end && (json.charAt(i) == 'e' || json.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (json.charAt(i) == '+' || json.charAt(i) == '-')) {
+                i++;
+            }
+            digits = skipDigits(json, i, end);
+            if (digits == i) {
+                return false;
+            }
+            i = digits;
+        }
+        return i == end;
+    }
+
+    private static int skipDigits(CharSequence json, int i, int end) {
+        while (i < end && json.charAt(i) >= '0' && json.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+}
@@ -1,5 +1,8 @@
 package com.ueueo.log;
 
+import java.io.File;
+import java.io.Reader;
+
 /**
  * 日志输出
  */
@@ -53,6 +56,124 @@ public final class UELog {
         printer.getLogConfig().tag(tag).methodCount(methodCount).setLogLevel(level).printToFile(printToFile);
     }
 
+    /**
+     * 获取全局配置，可以通过返回的配置对象修改更多的配置项
+     *
+     * @return
+     */
+    public static UELogConfig getLogConfig() {
+        return printer.getLogConfig();
+    }
+
+    /**
+     * 开启异步日志输出
+     * <p>
+     * 调用线程只负责把日志放入预先分配的环形缓冲区，由后台线程统一格式化并输出到各个日志工具
+     *
+     * @param bufferSize     缓冲区能容纳的日志条数
+     * @param overflowPolicy 缓冲区已满时的处理策略，参考：{@link UELogOverflowPolicy}
+     */
+    public static void async(int bufferSize, int overflowPolicy) {
+        printer.getLogConfig().asyncBufferSize(bufferSize).overflowPolicy(overflowPolicy).async(true);
+    }
+
+    /**
+     * 等待异步缓冲区中的日志全部输出，并将文件缓冲区中的日志写入文件
+     */
+    public static void flush() {
+        printer.flush();
+    }
+
+    /**
+     * 最多等待指定时间让异步缓冲区中的日志输出，然后将文件缓冲区中的日志写入文件
+     */
+    static void flush(long timeoutMillis) {
+        printer.flush(timeoutMillis);
+    }
+
+    /**
+     * 输出异步缓冲区中剩余的日志并停止后台线程，之后的日志会同步输出
+     */
+    public static void shutdown() {
+        printer.shutdown();
+    }
+
+    /**
+     * @return 异步模式下因缓冲区已满而被丢弃的日志数量
+     */
+    public static long getDroppedCount() {
+        return printer.getDroppedCount();
+    }
+
+    /**
+     * 把{@link UERingLogTool}中保存的最近的日志输出到其他日志工具，包括需要输出到文件的日志工具
+     *
+     * @return 输出的日志条数
+     */
+    public static int dumpRingLog() {
+        return printer.dumpRingLog();
+    }
+
+    /**
+     * 把{@link UERingLogTool}中保存的最近的日志写入文件
+     *
+     * @param file
+     * @return 写入的日志条数，写入失败时返回-1
+     */
+    public static int dumpRingLog(File file) {
+        return printer.dumpRingLog(file);
+    }
+
+    /**
+     * 把UELOG文件夹中的日志文件打包为一个zip文件，包括manifest.json记录每个文件的大小和CRC。
+     * 正在写入的日志文件只导出当前已写入的内容，导出期间可以继续输出日志
+     *
+     * @param bundle 导出的zip文件，已存在的文件会被覆盖
+     * @return 导出的文件数量，导出失败时返回-1
+     */
+    public static int export(File bundle) {
+        return printer.export(bundle);
+    }
+
+    /**
+     * 从{@link UEIndexedLogTool}中查询日志，只读取可能包含匹配日志的块
+     *
+     * @param fromMillis 开始时间（包括）
+     * @param toMillis   结束时间（包括）
+     * @param minLevel   最低级别，参考：{@link UELogLevel}
+     * @param tagPattern Tag，支持以*结尾的前缀匹配，null表示所有Tag
+     * @param visitor    逐条接收匹配的日志，返回false时停止查询
+     * @return 匹配的日志条数
+     */
+    public static int query(long fromMillis, long toMillis, int minLevel, String tagPattern, UELogRecord.Visitor visitor) {
+        return printer.query(fromMillis, toMillis, minLevel, tagPattern, visitor);
+    }
+
+    /**
+     * 获取日志输出的统计信息，包括各级别日志的数量、被丢弃的日志数量、输出耗时和各个日志工具的输出
+     *
+     * @return
+     */
+    public static UELogStats getStats() {
+        return printer.getStats();
+    }
+
+    /**
+     * 把统计信息作为一条INFO级别的日志输出，Tag为UELogStats
+     */
+    public static void logStats() {
+        printer.logStats();
+    }
+
+    /**
+     * 替换默认的文件日志工具
+     *
+     * @param fileLogTool
+     */
+    public static void setFileLogTool(UEFileLogTool fileLogTool) {
+        printer.getLogConfig().fileLogTool(fileLogTool);
+    }
+
     /**
      * 添加新的日志输入工具
      *
@@ -62,6 +183,16 @@ public final class UELog {
         printer.getLogConfig().addLogTool(logTool);
     }
 
+    /**
+     * 添加新的日志输入工具，并指定它输出的日志级别和Tag
+     *
+     * @param logTool
+     * @param rule
+     */
+    public static void addLogTool(UELogTool logTool, UELogToolRule rule) {
+        printer.getLogConfig().addLogTool(logTool, rule);
+    }
+
     /**
      * 指定当前这条Log信息打印的tag，不受全局配置影响
      *
@@ -82,6 +213,16 @@ public final class UELog {
         return printer.method(methodCount);
     }
 
+    /**
+     * 指定当前这条Log信息的调用位置，不再运行时获取方法调用栈
+     *
+     * @param caller 调用位置，格式为"类名.方法名  (文件名:行号)"
+     * @return
+     */
+    public static UELogPrinter caller(String caller) {
+        return printer.caller(caller);
+    }
+
     /**
      * 指定当前这条Log信息是否打印到文件，不受全局配置影响
      *
@@ -119,34 +260,158 @@ public final class UELog {
         return printer;
     }
 
+    /*
+     * 日志输出方法
+     *
+     * 日志内容支持"{}"占位符（按顺序替换为参数）和String.format格式，包含"%d"等格式时按String.format格式化，"{}"原样输出；
+     * 一个和两个参数的重载不会创建参数数组；
+     * dLazy等方法的UELogSupplier参数只有在日志级别满足输出条件时才会生成日志内容，单独命名避免d(null)等调用有歧义
+     */
+
+    public static void d(String message) {
+        printer.d(message);
+    }
+
+    public static void d(String message, Object arg) {
+        printer.d(message, arg);
+    }
+
+    public static void d(String message, Object arg0, Object arg1) {
+        printer.d(message, arg0, arg1);
+    }
+
     public static void d(String message, Object... args) {
         printer.d(message, args);
     }
 
+    public static void dLazy(UELogSupplier supplier) {
+        printer.dLazy(supplier);
+    }
+
+    public static void e(String message) {
+        printer.e(message);
+    }
+
+    public static void e(String message, Object arg) {
+        printer.e(message, arg);
+    }
+
+    public static void e(String message, Object arg0, Object arg1) {
+        printer.e(message, arg0, arg1);
+    }
+
     public static void e(String message, Object... args) {
-        printer.e(null, message, args);
+        printer.e(message, args);
+    }
+
+    public static void eLazy(UELogSupplier supplier) {
+        printer.eLazy(supplier);
     }
 
     public static void e(Throwable throwable, String message, Object... args) {
         printer.e(throwable, message, args);
     }
 
+    public static void i(String message) {
+        printer.i(message);
+    }
+
+    public static void i(String message, Object arg) {
+        printer.i(message, arg);
+    }
+
+    public static void i(String message, Object arg0, Object arg1) {
+        printer.i(message, arg0, arg1);
+    }
+
     public static void i(String message, Object... args) {
         printer.i(message, args);
     }
 
+    public static void iLazy(UELogSupplier supplier) {
+        printer.iLazy(supplier);
+    }
+
+    public static void v(String message) {
+        printer.v(message);
+    }
+
+    public static void v(String message, Object arg) {
+        printer.v(message, arg);
+    }
+
+    public static void v(String message, Object arg0, Object arg1) {
+        printer.v(message, arg0, arg1);
+    }
+
     public static void v(String message, Object... args) {
         printer.v(message, args);
     }
 
+    public static void vLazy(UELogSupplier supplier) {
+        printer.vLazy(supplier);
+    }
+
+    public static void w(String message) {
+        printer.w(message);
+    }
+
+    public static void w(String message, Object arg) {
+        printer.w(message, arg);
+    }
+
+    public static void w(String message, Object arg0, Object arg1) {
+        printer.w(message, arg0, arg1);
+    }
+
     public static void w(String message, Object... args) {
         printer.w(message, args);
     }
 
+    public static void wLazy(UELogSupplier supplier) {
+        printer.wLazy(supplier);
+    }
+
+    public static void wtf(String message) {
+        printer.wtf(message);
+    }
+
+    public static void wtf(String message, Object arg) {
+        printer.wtf(message, arg);
+    }
+
+    public static void wtf(String message, Object arg0, Object arg1) {
+        printer.wtf(message, arg0, arg1);
+    }
+
     public static void wtf(String message, Object... args) {
         printer.wtf(message, args);
     }
 
+    public static void wtfLazy(UELogSupplier supplier) {
+        printer.wtfLazy(supplier);
+    }
+
+    /**
+     * 分段输出很长的文本，每段作为一条日志输出，参考{@link UELogPrinter#stream(int, CharSequence)}
+     *
+     * @param level   参考：{@link UELogLevel}
+     * @param content
+     */
+    public static void stream(int level, CharSequence content) {
+        printer.stream(level, content);
+    }
+
+    /**
+     * 从reader中分段读取并输出很长的文本，读取完后不会关闭reader
+     *
+     * @param level  参考：{@link UELogLevel}
+     * @param reader
+     */
+    public static void stream(int level, Reader reader) {
+        printer.stream(level, reader);
+    }
+
     public static void json(String json) {
         printer.json(json);
     }
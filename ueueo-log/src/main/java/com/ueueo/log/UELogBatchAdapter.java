@@ -0,0 +1,123 @@
+package com.ueueo.log;
+
+import java.util.List;
+
+/**
+ * 把普通的{@link UELogTool}适配为{@link UELogBatchTool}
+ * <p>
+ * 一批日志逐条输出：实现了{@link UELogEventTool}的日志工具每条日志调用一次，其他日志工具按行调用，
+ * 输出一条日志期间锁住日志工具，避免多行日志被其他线程打断
+ */
+public class UELogBatchAdapter implements UELogBatchTool {
+
+    private final UELogTool mLogTool;
+
+    public UELogBatchAdapter(UELogTool logTool) {
+        if (logTool == null) {
+            throw new NullPointerException("logTool == null");
+        }
+        mLogTool = logTool;
+    }
+
+    public UELogTool getLogTool() {
+        return mLogTool;
+    }
+
+    @Override
+    public void logBatch(List<UELogEvent> events) {
+        for (int i = 0, size = events.size(); i < size; i++) {
+            log(events.get(i));
+        }
+    }
+
+    @Override
+    public void endBatch() {
+        if (mLogTool instanceof UELogBatchTool) {
+            ((UELogBatchTool) mLogTool).endBatch();
+        }
+    }
+
+    @Override
+    public void log(UELogEvent event) {
+        if (mLogTool instanceof UELogEventTool) {
+            ((UELogEventTool) mLogTool).log(event);
+        } else {
+            logLines(mLogTool, event);
+        }
+    }
+
+    @Override
+    public void d(String tag, String message) {
+        mLogTool.d(tag, message);
+    }
+
+    @Override
+    public void e(String tag, String message) {
+        mLogTool.e(tag, message);
+    }
+
+    @Override
+    public void w(String tag, String message) {
+        mLogTool.w(tag, message);
+    }
+
+    @Override
+    public void i(String tag, String message) {
+        mLogTool.i(tag, message);
+    }
+
+    @Override
+    public void v(String tag, String message) {
+        mLogTool.v(tag, message);
+    }
+
+    @Override
+    public void wtf(String tag, String message) {
+        mLogTool.wtf(tag, message);
+    }
+
+    /**
+     * 没有实现{@link UELogEventTool}的日志工具按行输出，输出期间锁住日志工具，避免多行日志被其他线程打断
+     */
+    static void logLines(UELogTool logTool, UELogEvent event) {
+        CharSequence rendered = event.rendered;
+        int length = rendered.length();
+        synchronized (logTool) {
+            int start = 0;
+            while (start <= length) {
+                int end = start;
+                while (end < length && rendered.charAt(end) != '\n') {
+                    end++;
+                }
+                logChunk(logTool, event.level, event.displayTag, rendered.subSequence(start, end).toString());
+                start = end + 1;
+            }
+        }
+    }
+
+    private static void logChunk(UELogTool logTool, int logType, String tag, String chunk) {
+        switch (logType) {
+            case UELogLevel.ERROR:
+                logTool.e(tag, chunk);
+                break;
+            case UELogLevel.INFO:
+                logTool.i(tag, chunk);
+                break;
+            case UELogLevel.VERBOSE:
+                logTool.v(tag, chunk);
+                break;
+            case UELogLevel.WARN:
+                logTool.w(tag, chunk);
+                break;
+            case UELogLevel.ASSERT:
+                logTool.wtf(tag, chunk);
+                break;
+            case UELogLevel.DEBUG:
+                logTool.d(tag, chunk);
+                break;
+            default:
+                logTool.v(tag, chunk);
+                break;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ueueo.log;
+
+import java.util.List;
+
+/**
+ * 按批输出日志的Log工具
+ * <p>
+ * 异步模式下后台线程每次从缓冲区取出一批日志（参考{@link UELogConfig#batch(int, long)}），
+ * 通过{@link #logBatch(List)}一次交给日志工具，之后调用{@link #endBatch()}，
+ * 日志工具可以合并写文件、网络或数据库的开销。同步模式下每条日志单独调用{@link #log(UELogEvent)}和{@link #endBatch()}。
+ * 没有实现此接口的日志工具可以通过{@link UELogBatchAdapter}按批调用
+ */
+public interface UELogBatchTool extends UELogEventTool {
+
+    /**
+     * 输出一批日志，一批日志可能分多次调用
+     * <p>
+     * events和其中的事件只在本次调用中有效，调用结束后会被复用，需要保留的内容必须自行拷贝
+     *
+     * @param events 按输出顺序排列的日志
+     */
+    void logBatch(List<UELogEvent> events);
+
+    /**
+     * 一批日志输出完成
+     */
+    void endBatch();
+}
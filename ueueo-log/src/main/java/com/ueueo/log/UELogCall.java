@@ -0,0 +1,79 @@
+package com.ueueo.log;
+
+/**
+ * 每个线程复用的日志调用信息
+ * <p>
+ * 保存链式调用指定的Tag、方法调用栈数量、是否输出到文件、调用位置和拼接的内容，以及线程复用的日志事件。
+ * 拼接的内容只保存原始参数，确定日志会被输出后才格式化。每条日志输出或被过滤后清空，对象本身不会重新创建
+ */
+final class UELogCall {
+
+    static final int APPEND_TEXT = 0;
+    static final int APPEND_JSON = 1;
+    static final int APPEND_XML = 2;
+    static final int APPEND_OBJECT = 3;
+
+    //没有指定方法调用栈数量
+    static final int UNSET = Integer.MIN_VALUE;
+
+    final UELogEvent event = new UELogEvent();
+
+    String tag;
+    int methodCount = UNSET;
+    //-1表示没有指定，0不输出到文件，1输出到文件
+    int printToFile = -1;
+    String caller;
+    //设置了日志选项或拼接了内容，还没有被日志使用或清空
+    boolean pending;
+
+    //拼接的内容，文本的参数和对象保存在appendPayloads中
+    int appendCount;
+    int[] appendKinds = new int[4];
+    String[] appendMessages = new String[4];
+    Object[] appendPayloads = new Object[4];
+
+    void append(int kind, String message, Object payload) {
+        if (appendCount == appendKinds.length) {
+            int capacity = appendCount * 2;
+            int[] kinds = new int[capacity];
+            String[] messages = new String[capacity];
+            Object[] payloads = new Object[capacity];
+            System.arraycopy(appendKinds, 0, kinds, 0, appendCount);
+            System.arraycopy(appendMessages, 0, messages, 0, appendCount);
+            System.arraycopy(appendPayloads, 0, payloads, 0, appendCount);
+            appendKinds = kinds;
+            appendMessages = messages;
+            appendPayloads = payloads;
+        }
+        appendKinds[appendCount] = kind;
+        appendMessages[appendCount] = message;
+        appendPayloads[appendCount] = payload;
+        appendCount++;
+    }
+
+    /**
+     * 清空这条日志的设置，不需要格式化拼接的内容
+     */
+    void reset() {
+        resetOptions();
+        clearAppends(appendCount);
+    }
+
+    /**
+     * 清空Tag、方法调用栈数量、是否输出到文件和调用位置，拼接的内容保留到日志确定输出或被过滤
+     */
+    void resetOptions() {
+        tag = null;
+        methodCount = UNSET;
+        printToFile = -1;
+        caller = null;
+    }
+
+    void clearAppends(int count) {
+        for (int i = 0; i < count; i++) {
+            appendMessages[i] = null;
+            appendPayloads[i] = null;
+        }
+        appendCount = 0;
+    }
+}
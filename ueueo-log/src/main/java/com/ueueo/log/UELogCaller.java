@@ -0,0 +1,79 @@
+package com.ueueo.log;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 获取输出日志的方法调用栈
+ * <p>
+ * 使用{@link Throwable#getStackTrace()}代替{@link Thread#getStackTrace()}，省去了线程状态检查和额外的虚拟机调用，
+ * 只取需要的调用栈层数，并按调用位置缓存格式化后的字符串，同一调用位置不需要重复拼接字符串
+ */
+final class UELogCaller {
+
+    //缓存的调用位置数量上限，超过后清空重新缓存，避免占用过多内存
+    private static final int MAX_CACHE_SIZE = 1024;
+
+    private static final ConcurrentHashMap<StackTraceElement, String> sFrameCache = new ConcurrentHashMap<>();
+
+    private UELogCaller() {
+    }
+
+    /**
+     * 获取调用日志方法的调用栈
+     *
+     * @param methodCount 需要的调用栈层数
+     * @param frames      保存调用位置的数组，长度不足时会重新创建
+     * @return 保存调用位置的数组，从最内层调用开始，实际层数可能小于methodCount，剩余元素为null
+     */
+    static String[] capture(int methodCount, String[] frames) {
+        StackTraceElement[] trace = new Throwable().getStackTrace();
+        int offset = getStackOffset(trace);
+        if (frames == null || frames.length < methodCount) {
+            frames = new String[methodCount];
+        }
+        for (int i = 0; i < methodCount; i++) {
+            int index = offset + i;
+            frames[i] = offset >= 0 && index < trace.length ? render(trace[index]) : null;
+        }
+        return frames;
+    }
+
+    /**
+     * 格式化调用位置，格式为：类名.方法名  (文件名:行号)
+     *
+     * @param element
+     * @return
+     */
+    static String render(StackTraceElement element) {
+        String frame = sFrameCache.get(element);
+        if (frame == null) {
+            String className = element.getClassName();
+            frame = className.substring(className.lastIndexOf('.') + 1)
+                    + "." + element.getMethodName()
+                    + "  (" + element.getFileName() + ":" + element.getLineNumber() + ")";
+            if (sFrameCache.size() >= MAX_CACHE_SIZE) {
+                sFrameCache.clear();
+            }
+            sFrameCache.put(element, frame);
+        }
+        return frame;
+    }
+
+    /**
+     * Determines the starting index of the stack trace, after method calls made by this library.
+     *
+     * @param trace the stack trace
+     * @return the index of the first caller frame, -1 if not found
+     */
+    private static int getStackOffset(StackTraceElement[] trace) {
+        for (int i = 0; i < trace.length; i++) {
+            String name = trace[i].getClassName();
+            if (!name.equals(UELogCaller.class.getName())
+                    && !name.equals(UELogPrinter.class.getName())
+                    && !name.equals(UELog.class.getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
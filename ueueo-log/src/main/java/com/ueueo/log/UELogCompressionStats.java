@@ -0,0 +1,59 @@
+package com.ueueo.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志文件压缩的统计信息
+ * <p>
+ * 包括边写边压缩和滚动后在后台压缩的日志文件
+ */
+public final class UELogCompressionStats {
+
+    private final AtomicLong mRawBytes = new AtomicLong();
+    private final AtomicLong mCompressedBytes = new AtomicLong();
+    private final AtomicLong mCompressNanos = new AtomicLong();
+
+    UELogCompressionStats() {
+    }
+
+    void record(long rawBytes, long compressedBytes, long nanos) {
+        mRawBytes.addAndGet(rawBytes);
+        mCompressedBytes.addAndGet(compressedBytes);
+        mCompressNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return 压缩前的字节数
+     */
+    public long getRawBytes() {
+        return mRawBytes.get();
+    }
+
+    /**
+     * @return 压缩后的字节数
+     */
+    public long getCompressedBytes() {
+        return mCompressedBytes.get();
+    }
+
+    /**
+     * @return 压缩累计耗时，单位纳秒
+     */
+    public long getCompressNanos() {
+        return mCompressNanos.get();
+    }
+
+    /**
+     * @return 压缩后与压缩前的大小之比，还没有压缩过时返回1
+     */
+    public double getRatio() {
+        long raw = mRawBytes.get();
+        return raw > 0 ? (double) mCompressedBytes.get() / raw : 1;
+    }
+
+    @Override
+    public String toString() {
+        return "raw=" + getRawBytes() + " compressed=" + getCompressedBytes()
+                + " ratio=" + String.format("%.3f", getRatio()) + " cost=" + getCompressNanos() / 1000000 + "ms";
+    }
+}
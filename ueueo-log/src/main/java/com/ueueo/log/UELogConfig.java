@@ -1,7 +1,13 @@
 package com.ueueo.log;
 
-import java.util.ArrayList;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Log打印默认配置
@@ -19,7 +25,12 @@ public final class UELogConfig {
     //是否输出到文件
     private boolean printToFile = false;
 
-    private List<UELogTool> logToolList = new ArrayList<>();
+    private List<UELogTool> logToolList = new CopyOnWriteArrayList<>();
+    //日志工具的输出规则，和日志工具一起编译为路由表
+    private final Map<UELogTool, UELogToolRule> logToolRules = new IdentityHashMap<>();
+    private volatile UELogRouter router;
+    //日志输出的运行统计，路由表中的日志工具共用
+    private final UELogMetrics metrics = new UELogMetrics();
     /**
      * 日志级别，只有大于等于logLevel的日志才会打印
      * <p/>
@@ -27,9 +38,42 @@ public final class UELogConfig {
      */
     private int logLevel = UELogLevel.VERBOSE;
 
+    //是否异步输出日志
+    private volatile boolean async = false;
+    //异步输出时环形缓冲区的大小
+    private int asyncBufferSize = 1024;
+    /**
+     * 异步缓冲区已满时的处理策略
+     * <p/>
+     * 参考：{@link UELogOverflowPolicy}
+     */
+    private int overflowPolicy = UELogOverflowPolicy.BLOCK;
+    //异步输出时每批最多输出的日志条数，以及等待一批日志凑满的最长时间
+    private int batchSize = 64;
+    private long batchLatencyMillis = 0;
+
+    //格式化后Json的最大长度，0表示不限制
+    private int jsonMaxLength = 0;
+    //格式化后Xml的最大字符数，0表示不限制
+    private int xmlMaxLength = 0;
+    //日志限流和重复日志合并，没有开启时为null
+    private int rateLimitPerSecond = 0;
+    private int rateLimitBurst = 0;
+    private long collapseWindowMillis = 0;
+    private volatile UELogFilter filter;
+    //按级别和Tag设置的采样策略，没有设置时为null
+    private final UELogSampler.Rules samplingRules = new UELogSampler.Rules();
+    private volatile UELogSampler sampler;
+
+    //输出对象时共享的Gson，第一次输出对象时创建
+    private volatile Gson gson;
+    //为指定类注册的对象输出格式
+    private final ConcurrentHashMap<Class<?>, UEObjectRenderer<?>> objectRenderers = new ConcurrentHashMap<>();
+
     public UELogConfig() {
         logToolList.add(new UEAndroidLogTool());
         logToolList.add(new UEFileLogTool());
+        updateRouter();
     }
 
     public UELogConfig tag(String tag) {
@@ -56,8 +100,304 @@ public final class UELogConfig {
     }
 
     public UELogConfig addLogTool(UELogTool logTool) {
+        return addLogTool(logTool, null);
+    }
+
+    /**
+     * 添加日志工具，并指定它输出的日志级别和Tag
+     *
+     * @param logTool
+     * @param rule    为null时输出所有日志
+     * @return
+     */
+    public synchronized UELogConfig addLogTool(UELogTool logTool, UELogToolRule rule) {
         if (logTool != null && !logToolList.contains(logTool)) {
             logToolList.add(logTool);
+            if (rule != null) {
+                logToolRules.put(logTool, rule);
+            }
+            updateRouter();
+        }
+        return this;
+    }
+
+    /**
+     * 修改已添加的日志工具输出的日志级别和Tag
+     *
+     * @param logTool
+     * @param rule    为null时输出所有日志
+     * @return
+     */
+    public synchronized UELogConfig logToolRule(UELogTool logTool, UELogToolRule rule) {
+        if (logTool != null) {
+            if (rule != null) {
+                logToolRules.put(logTool, rule);
+            } else {
+                logToolRules.remove(logTool);
+            }
+            updateRouter();
+        }
+        return this;
+    }
+
+    /**
+     * 移除日志工具
+     *
+     * @param logTool
+     * @return
+     */
+    public synchronized UELogConfig removeLogTool(UELogTool logTool) {
+        if (logToolList.remove(logTool)) {
+            logToolRules.remove(logTool);
+            updateRouter();
+        }
+        return this;
+    }
+
+    /**
+     * 是否异步输出日志
+     * <p>
+     * 异步模式下调用线程只负责把日志放入缓冲区，日志的格式化和输出都在后台线程中完成
+     *
+     * @param async
+     * @return
+     */
+    public UELogConfig async(boolean async) {
+        this.async = async;
+        return this;
+    }
+
+    /**
+     * 异步输出时缓冲区能容纳的日志条数，需要在第一次输出异步日志前设置
+     *
+     * @param bufferSize
+     * @return
+     */
+    public UELogConfig asyncBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            bufferSize = 1;
+        }
+        this.asyncBufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * 异步缓冲区已满时的处理策略，需要在第一次输出异步日志前设置
+     *
+     * @param overflowPolicy 参考：{@link UELogOverflowPolicy}
+     * @return
+     */
+    public UELogConfig overflowPolicy(int overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * 异步输出时按批输出日志，需要在第一次输出异步日志前设置
+     * <p>
+     * 后台线程每次从缓冲区取出最多batchSize条日志，一起交给日志工具，实现了{@link UELogBatchTool}的日志工具
+     * （例如{@link UEFileLogTool}）可以合并写入。缓冲区中的日志不足一批时最多等待latencyMillis，
+     * 0表示不等待，有多少输出多少；{@link UELog#flush()}时不等待
+     *
+     * @param batchSize     每批最多输出的日志条数，1表示逐条输出
+     * @param latencyMillis 等待一批日志凑满的最长时间
+     * @return
+     */
+    public UELogConfig batch(int batchSize, long latencyMillis) {
+        this.batchSize = Math.max(1, batchSize);
+        this.batchLatencyMillis = Math.max(0, latencyMillis);
+        return this;
+    }
+
+    /**
+     * 设置格式化后Json的最大字符数，超出部分会被截断，避免输出超大的Json时占用过多内存
+     *
+     * @param jsonMaxLength 0表示不限制
+     * @return
+     */
+    public UELogConfig jsonMaxLength(int jsonMaxLength) {
+        if (jsonMaxLength < 0) {
+            jsonMaxLength = 0;
+        }
+        this.jsonMaxLength = jsonMaxLength;
+        return this;
+    }
+
+    /**
+     * 设置格式化后Xml的最大字符数，超出部分会被截断，避免输出超大的Xml时占用过多内存
+     *
+     * @param xmlMaxLength 0表示不限制
+     * @return
+     */
+    public UELogConfig xmlMaxLength(int xmlMaxLength) {
+        if (xmlMaxLength < 0) {
+            xmlMaxLength = 0;
+        }
+        this.xmlMaxLength = xmlMaxLength;
+        return this;
+    }
+
+    /**
+     * 开启日志限流，同一个Tag、级别和调用位置的日志超过限制后被丢弃，之后会输出被丢弃的日志数量
+     * <p>
+     * 没有输出调用位置时按日志的格式字符串区分位置
+     *
+     * @param permitsPerSecond 每秒允许输出的日志数量，0表示不限流
+     * @param burst            允许连续输出的日志数量
+     * @return
+     */
+    public UELogConfig rateLimit(int permitsPerSecond, int burst) {
+        this.rateLimitPerSecond = permitsPerSecond;
+        this.rateLimitBurst = burst;
+        updateFilter();
+        return this;
+    }
+
+    /**
+     * 开启重复日志合并，和上一条日志完全相同的日志在时间窗口内不输出，之后会输出重复的次数
+     *
+     * @param windowMillis 时间窗口，0表示不合并
+     * @return
+     */
+    public UELogConfig collapseDuplicates(long windowMillis) {
+        this.collapseWindowMillis = windowMillis;
+        updateFilter();
+        return this;
+    }
+
+    private synchronized void updateFilter() {
+        if (rateLimitPerSecond > 0 || collapseWindowMillis > 0) {
+            filter = new UELogFilter(rateLimitPerSecond, rateLimitBurst, collapseWindowMillis);
+        } else {
+            filter = null;
+        }
+    }
+
+    /**
+     * 对指定级别的日志采样输出，用来在正式版本中保留大量的VERBOSE和DEBUG日志
+     * <p>
+     * 没有被采样的日志不会格式化，也不会获取调用栈。输出的日志前面带有采样率，例如<code>[sampled 1/10]</code>
+     *
+     * @param level  参考：{@link UELogLevel}
+     * @param policy 采样策略，null表示取消采样
+     * @return
+     */
+    public synchronized UELogConfig sampling(int level, UELogSamplingPolicy policy) {
+        samplingRules.set(level, policy);
+        sampler = samplingRules.build();
+        return this;
+    }
+
+    /**
+     * 对指定Tag和级别的日志采样输出，Tag的规则优先于级别的规则，多个Tag规则匹配时先设置的优先
+     *
+     * @param tagPattern Tag，支持以<code>*</code>结尾的前缀匹配
+     * @param level      参考：{@link UELogLevel}
+     * @param policy     采样策略，null表示取消这个Tag的采样规则
+     * @return
+     */
+    public synchronized UELogConfig sampling(String tagPattern, int level, UELogSamplingPolicy policy) {
+        samplingRules.set(tagPattern, level, policy);
+        sampler = samplingRules.build();
+        return this;
+    }
+
+    /**
+     * 是否统计日志输出的耗时和各个日志工具的输出，关闭后只统计日志数量，参考{@link UELog#getStats()}
+     *
+     * @param enabled 默认开启
+     * @return
+     */
+    public UELogConfig metrics(boolean enabled) {
+        metrics.setEnabled(enabled);
+        return this;
+    }
+
+    /**
+     * 定时把统计信息作为一条INFO级别的日志输出，Tag为UELogStats
+     *
+     * @param intervalMillis 输出间隔，0表示不输出
+     * @return
+     */
+    public UELogConfig statsInterval(long intervalMillis) {
+        metrics.setReportInterval(intervalMillis);
+        return this;
+    }
+
+    /**
+     * 设置输出对象时使用的Gson，Gson是线程安全的，所有对象的输出共用同一个实例
+     * <p>
+     * 默认的Gson开启了复杂Map Key的序列化，并且不转义Html字符
+     *
+     * @param gson
+     * @return
+     */
+    public UELogConfig gson(Gson gson) {
+        this.gson = gson;
+        return this;
+    }
+
+    /**
+     * 为指定的类注册对象输出格式，输出该类（及其子类）的对象时不再通过Gson反射序列化
+     *
+     * @param clazz
+     * @param renderer
+     * @param <T>
+     * @return
+     */
+    public <T> UELogConfig addObjectRenderer(Class<T> clazz, UEObjectRenderer<? super T> renderer) {
+        if (clazz != null && renderer != null) {
+            objectRenderers.put(clazz, renderer);
+        }
+        return this;
+    }
+
+    /**
+     * 替换默认的文件日志工具，用于自定义文件日志的缓冲、滚动等配置，原来的文件日志工具会被关闭
+     *
+     * @param fileLogTool
+     * @return
+     */
+    public synchronized UELogConfig fileLogTool(UEFileLogTool fileLogTool) {
+        if (fileLogTool == null) {
+            return this;
+        }
+        for (int i = 0; i < logToolList.size(); i++) {
+            UELogTool logTool = logToolList.get(i);
+            if (logTool instanceof UEFileLogTool) {
+                logToolList.set(i, fileLogTool);
+                //新的文件日志工具沿用原来的输出规则
+                UELogToolRule rule = logToolRules.remove(logTool);
+                if (rule != null) {
+                    logToolRules.put(fileLogTool, rule);
+                }
+                updateRouter();
+                if (logTool != fileLogTool) {
+                    //原来的文件日志工具不会再收到日志，写入缓冲区中的日志并关闭日志文件
+                    UEFileLogTool oldTool = (UEFileLogTool) logTool;
+                    oldTool.flush();
+                    oldTool.close();
+                }
+                return this;
+            }
+        }
+        logToolList.add(fileLogTool);
+        updateRouter();
+        return this;
+    }
+
+    /**
+     * 设置当前文件日志工具的日志文件压缩方式
+     *
+     * @param compressMode {@link UEFileLogTool#COMPRESS_NONE}，{@link UEFileLogTool#COMPRESS_ROLLED}
+     *                     或{@link UEFileLogTool#COMPRESS_STREAMING}
+     * @return
+     */
+    public UELogConfig compressLogFiles(int compressMode) {
+        for (UELogTool logTool : logToolList) {
+            if (logTool instanceof UEFileLogTool) {
+                ((UEFileLogTool) logTool).compress(compressMode);
+            }
         }
         return this;
     }
@@ -74,11 +414,34 @@ public final class UELogConfig {
         return logLevel;
     }
 
-    public UELogConfig setLogLevel(int logLevel) {
+    public synchronized UELogConfig setLogLevel(int logLevel) {
         this.logLevel = logLevel;
+        updateRouter();
         return this;
     }
 
+    /**
+     * 重新编译路由表，输出日志的线程不加锁，读取的总是完整的旧表或新表
+     */
+    private synchronized void updateRouter() {
+        router = new UELogRouter(logToolList, logToolRules, logLevel, metrics);
+    }
+
+    UELogMetrics getMetrics() {
+        return metrics;
+    }
+
+    UELogRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * @return 指定级别的日志是否会被输出到某个日志工具
+     */
+    boolean isLoggable(int level) {
+        return router.isLoggable(level);
+    }
+
     String getTag() {
         return tag;
     }
@@ -87,6 +450,69 @@ public final class UELogConfig {
         return printToFile;
     }
 
+    boolean isAsync() {
+        return async;
+    }
+
+    int getAsyncBufferSize() {
+        return asyncBufferSize;
+    }
+
+    int getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getBatchLatencyMillis() {
+        return batchLatencyMillis;
+    }
+
+    int getJsonMaxLength() {
+        return jsonMaxLength;
+    }
+
+    int getXmlMaxLength() {
+        return xmlMaxLength;
+    }
+
+    UELogFilter getFilter() {
+        return filter;
+    }
+
+    UELogSampler getSampler() {
+        return sampler;
+    }
+
+    Gson getGson() {
+        Gson result = gson;
+        if (result == null) {
+            synchronized (this) {
+                result = gson;
+                if (result == null) {
+                    result = new GsonBuilder().enableComplexMapKeySerialization().disableHtmlEscaping().create();
+                    gson = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    UEObjectRenderer<?> getObjectRenderer(Class<?> clazz) {
+        if (objectRenderers.isEmpty()) {
+            return null;
+        }
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            UEObjectRenderer<?> renderer = objectRenderers.get(c);
+            if (renderer != null) {
+                return renderer;
+            }
+        }
+        return null;
+    }
+
     List<UELogTool> getLogToolList() {
         return logToolList;
     }
@@ -0,0 +1,71 @@
+package com.ueueo.log;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器
+ * <p>
+ * 一组计数器按线程分散到多个分段中累加，读取时再合计，多个线程同时计数时不会争用同一个缓存行。
+ * 每个分段占用的空间按缓存行对齐
+ */
+final class UELogCounter {
+
+    //分段数量，为2的幂
+    static final int STRIPES;
+    //64字节缓存行能容纳的long数量
+    private static final int LINE_LONGS = 8;
+
+    static {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < 16) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    private final int mWidth;
+    private final int mStride;
+    private final AtomicLongArray mCells;
+
+    /**
+     * @param width 计数器的数量
+     */
+    UELogCounter(int width) {
+        mWidth = width;
+        //分段之间多留一个缓存行，避免相邻分段的首尾落在同一个缓存行中
+        mStride = (width + LINE_LONGS - 1) / LINE_LONGS * LINE_LONGS + LINE_LONGS;
+        mCells = new AtomicLongArray(mStride * STRIPES);
+    }
+
+    /**
+     * @return 当前线程使用的分段
+     */
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    void increment(int index) {
+        mCells.getAndIncrement(stripe() * mStride + index);
+    }
+
+    void add(int index, long delta) {
+        mCells.getAndAdd(stripe() * mStride + index, delta);
+    }
+
+    /**
+     * @return 所有分段合计的值，和并发的计数之间没有严格的先后关系
+     */
+    long sum(int index) {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += mCells.get(i * mStride + index);
+        }
+        return sum;
+    }
+
+    int width() {
+        return mWidth;
+    }
+}
@@ -0,0 +1,262 @@
+package com.ueueo.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 异步日志分发器
+ * <p>
+ * 调用线程只把日志事件拷贝到预先分配好的环形缓冲区中，
+ * 由单独的后台线程负责日志的格式化和各个{@link UELogTool}的输出。
+ * 后台线程每次加锁取出一批日志，按批交给日志工具
+ */
+final class UELogDispatcher implements Runnable {
+
+    private final UELogPrinter mPrinter;
+    private final int mOverflowPolicy;
+
+    private final UELogEvent[] mRing;
+    private int mHead;
+    private int mCount;
+    //后台线程是否正在输出从缓冲区中取出的日志
+    private boolean mBusy;
+    private boolean mRunning = true;
+    private long mDroppedCount;
+    //缓冲区中日志数量的最大值
+    private int mMaxCount;
+    //后台线程取出的一批日志，与缓冲区交换事件对象，取出日志时不需要创建新对象
+    private final UELogEvent[] mBatch;
+    private final long mBatchLatencyNanos;
+    //正在等待输出完成的flush()调用数量，大于0时不再等待一批日志凑满
+    private int mFlushWaiters;
+
+    private final ReentrantLock mLock = new ReentrantLock();
+    private final Condition mNotEmpty = mLock.newCondition();
+    private final Condition mNotFull = mLock.newCondition();
+    private final Condition mDrained = mLock.newCondition();
+
+    private final Thread mThread;
+
+    /**
+     * @param bufferSize         缓冲区能容纳的日志条数
+     * @param overflowPolicy     参考：{@link UELogOverflowPolicy}
+     * @param batchSize          每批最多输出的日志条数
+     * @param batchLatencyMillis 缓冲区中的日志不足一批时最长等待时间
+     */
+    UELogDispatcher(UELogPrinter printer, int bufferSize, int overflowPolicy, int batchSize, long batchLatencyMillis) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        mPrinter = printer;
+        mOverflowPolicy = overflowPolicy;
+        mRing = new UELogEvent[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            mRing[i] = new UELogEvent();
+        }
+        mBatch = new UELogEvent[Math.max(1, Math.min(batchSize, bufferSize))];
+        for (int i = 0; i < mBatch.length; i++) {
+            mBatch[i] = new UELogEvent();
+        }
+        mBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchLatencyMillis));
+        mThread = new Thread(this, "UELog-Dispatcher");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * 将日志事件放入缓冲区
+     *
+     * @param event 调用线程采集的日志事件，内容会被拷贝，调用后可以复用
+     * @return 日志是否放入了缓冲区，分发器已关闭时返回false
+     */
+    boolean enqueue(UELogEvent event) {
+        final ReentrantLock lock = mLock;
+        lock.lock();
+        try {
+            if (!mRunning) {
+                return false;
+            }
+            if (mCount == mRing.length) {
+                switch (mOverflowPolicy) {
+                    case UELogOverflowPolicy.DROP_NEWEST:
+                        mDroppedCount++;
+                        return true;
+                    case UELogOverflowPolicy.DROP_OLDEST:
+                        mRing[mHead].reset();
+                        mHead = (mHead + 1) % mRing.length;
+                        mCount--;
+                        mDroppedCount++;
+                        break;
+                    case UELogOverflowPolicy.BLOCK:
+                    default:
+                        while (mCount == mRing.length && mRunning) {
+                            mNotFull.awaitUninterruptibly();
+                        }
+                        if (!mRunning) {
+                            return false;
+                        }
+                        break;
+                }
+            }
+            mRing[(mHead + mCount) % mRing.length].copyFrom(event);
+            mCount++;
+            if (mCount > mMaxCount) {
+                mMaxCount = mCount;
+            }
+            mNotEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        final ReentrantLock lock = mLock;
+        final UELogEvent[] batch = mBatch;
+        while (true) {
+            int count;
+            lock.lock();
+            try {
+                mBusy = false;
+                while (mCount == 0) {
+                    mDrained.signalAll();
+                    if (!mRunning) {
+                        return;
+                    }
+                    mNotEmpty.awaitUninterruptibly();
+                }
+                awaitBatch();
+                count = Math.min(mCount, batch.length);
+                for (int i = 0; i < count; i++) {
+                    UELogEvent event = mRing[mHead];
+                    mRing[mHead] = batch[i];
+                    batch[i] = event;
+                    mHead = (mHead + 1) % mRing.length;
+                }
+                mCount -= count;
+                mBusy = true;
+                mNotFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                mPrinter.dispatchBatch(batch, count);
+            } catch (RuntimeException e) {
+                //某个日志工具出错不能影响后续日志的输出
+            }
+            for (int i = 0; i < count; i++) {
+                batch[i].reset();
+            }
+        }
+    }
+
+    /**
+     * 缓冲区中的日志不足一批时等待更多日志，超时、flush或者关闭时立即返回，调用时必须持有锁
+     */
+    private void awaitBatch() {
+        long nanos = mBatchLatencyNanos;
+        while (nanos > 0 && mCount < mBatch.length && mRunning && mFlushWaiters == 0) {
+            try {
+                nanos = mNotEmpty.awaitNanos(nanos);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 等待缓冲区中的日志全部输出完成
+     *
+     * @param timeoutMillis 最长等待时间
+     */
+    void flush(long timeoutMillis) {
+        if (isDispatchThread()) {
+            return;
+        }
+        final ReentrantLock lock = mLock;
+        lock.lock();
+        try {
+            mFlushWaiters++;
+            //后台线程可能正在等待一批日志凑满
+            mNotEmpty.signal();
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while ((mCount > 0 || mBusy) && mThread.isAlive() && nanos > 0) {
+                try {
+                    nanos = mDrained.awaitNanos(nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            mFlushWaiters--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止接收新的日志，输出缓冲区中剩余的日志后结束后台线程
+     *
+     * @param timeoutMillis 最长等待时间
+     */
+    void shutdown(long timeoutMillis) {
+        final ReentrantLock lock = mLock;
+        lock.lock();
+        try {
+            mRunning = false;
+            mNotEmpty.signalAll();
+            mNotFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (!isDispatchThread()) {
+            try {
+                mThread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    boolean isDispatchThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    /**
+     * @return 缓冲区中等待输出的日志数量
+     */
+    int getQueueSize() {
+        final ReentrantLock lock = mLock;
+        lock.lock();
+        try {
+            return mCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 缓冲区中曾经等待输出的最大日志数量
+     */
+    int getMaxQueueSize() {
+        final ReentrantLock lock = mLock;
+        lock.lock();
+        try {
+            return mMaxCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDroppedCount() {
+        final ReentrantLock lock = mLock;
+        lock.lock();
+        try {
+            return mDroppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
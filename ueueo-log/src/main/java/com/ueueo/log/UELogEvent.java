@@ -0,0 +1,203 @@
+package com.ueueo.log;
+
+import java.util.List;
+
+/**
+ * 一条日志事件
+ * <p>
+ * 在调用线程中采集日志的原始信息，格式化和排版由{@link UELogPrinter}完成后交给{@link UELogEventTool}输出。
+ * 事件对象会被复用，只在{@link UELogEventTool#log(UELogEvent)}调用期间有效
+ */
+public final class UELogEvent {
+
+    //日志内容的类型
+    static final int CONTENT_TEXT = 0;
+    static final int CONTENT_JSON = 1;
+    static final int CONTENT_OBJECT = 2;
+    static final int CONTENT_XML = 3;
+
+    //单条日志排版缓冲区保留的最大容量，超过后释放，避免偶尔的超长日志一直占用内存
+    private static final int MAX_RENDER_CAPACITY = 64 * 1024;
+
+    int level;
+    String tag;
+    String threadName;
+    long timeMillis;
+    boolean printToFile;
+    int methodCount;
+    //调用位置，从最内层调用开始，数组在事件复用时保留
+    String[] callerFrames;
+    int callerFrameCount;
+    String message;
+    int contentType = CONTENT_TEXT;
+    //要输出的对象
+    Object payload;
+    int argCount;
+    Object arg0;
+    Object arg1;
+    Object[] args;
+    UELogSupplier supplier;
+    Throwable throwable;
+    List<String> appendMessages;
+    //还没有格式化的拼接内容，经过过滤后才格式化到appendMessages
+    UELogCall pendingAppends;
+    //采样输出时的采样率，大于1时输出的日志带有采样率
+    int sampleRate;
+    //开始输出日志的时间，用来统计耗时，没有统计时为0
+    long startNanos;
+
+    //以下为格式化和排版的结果
+    String displayTag;
+    String formattedMessage;
+    final StringBuilder rendered = new StringBuilder(256);
+    //事件正在被使用，同一线程中嵌套输出日志时不能复用
+    boolean inUse;
+
+    UELogEvent() {
+    }
+
+    /**
+     * @return 日志级别，参考：{@link UELogLevel}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return 日志的Tag
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * @return 输出时显示的Tag，开启线程信息时包含线程名
+     */
+    public String getDisplayTag() {
+        return displayTag;
+    }
+
+    /**
+     * @return 输出日志的线程名
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return 输出日志的时间
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return 调用位置的数量
+     */
+    public int getCallerFrameCount() {
+        return callerFrameCount;
+    }
+
+    /**
+     * @param index 0为最内层调用
+     * @return 调用位置，格式为"类名.方法名  (文件名:行号)"
+     */
+    public String getCallerFrame(int index) {
+        return callerFrames[index];
+    }
+
+    /**
+     * @return 格式化后的日志内容，json日志为原始的Json字符串，对象日志为序列化后的内容（每行带有边框前缀）
+     */
+    public String getMessage() {
+        return formattedMessage;
+    }
+
+    /**
+     * @return 拼接的日志内容，没有时为null
+     */
+    public List<String> getAppendMessages() {
+        return appendMessages;
+    }
+
+    /**
+     * @return 是否需要输出到文件
+     */
+    public boolean isPrintToFile() {
+        return printToFile;
+    }
+
+    /**
+     * @return 排版后的完整日志，每行之间用'\n'分隔
+     */
+    public CharSequence getRendered() {
+        return rendered;
+    }
+
+    /**
+     * @return 长度至少为count的调用位置数组
+     */
+    String[] frames(int count) {
+        if (callerFrames == null || callerFrames.length < count) {
+            callerFrames = new String[count];
+        }
+        return callerFrames;
+    }
+
+    void copyFrom(UELogEvent event) {
+        level = event.level;
+        tag = event.tag;
+        threadName = event.threadName;
+        timeMillis = event.timeMillis;
+        printToFile = event.printToFile;
+        methodCount = event.methodCount;
+        callerFrameCount = event.callerFrameCount;
+        if (callerFrameCount > 0) {
+            String[] frames = frames(callerFrameCount);
+            System.arraycopy(event.callerFrames, 0, frames, 0, callerFrameCount);
+        }
+        message = event.message;
+        contentType = event.contentType;
+        payload = event.payload;
+        argCount = event.argCount;
+        arg0 = event.arg0;
+        arg1 = event.arg1;
+        args = event.args;
+        supplier = event.supplier;
+        throwable = event.throwable;
+        appendMessages = event.appendMessages;
+        sampleRate = event.sampleRate;
+    }
+
+    /**
+     * 清空对外部对象的引用，避免复用的事件对象导致内存无法回收
+     */
+    void reset() {
+        tag = null;
+        threadName = null;
+        if (callerFrames != null) {
+            for (int i = 0; i < callerFrameCount; i++) {
+                callerFrames[i] = null;
+            }
+        }
+        callerFrameCount = 0;
+        message = null;
+        contentType = CONTENT_TEXT;
+        payload = null;
+        argCount = 0;
+        arg0 = null;
+        arg1 = null;
+        args = null;
+        supplier = null;
+        throwable = null;
+        appendMessages = null;
+        pendingAppends = null;
+        sampleRate = 0;
+        displayTag = null;
+        formattedMessage = null;
+        rendered.setLength(0);
+        if (rendered.capacity() > MAX_RENDER_CAPACITY) {
+            rendered.trimToSize();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ueueo.log;
+
+/**
+ * 按整条日志输出的Log工具
+ * <p>
+ * 每条日志只调用一次{@link #log(UELogEvent)}，多行日志（边框、调用栈、Json等）已经排版到同一个缓冲区中，
+ * 由工具自己决定如何分段输出；没有实现此接口的{@link UELogTool}仍然按行调用
+ */
+public interface UELogEventTool extends UELogTool {
+
+    /**
+     * 输出一条日志
+     * <p>
+     * event只在本次调用中有效，调用结束后会被复用，需要保留的内容必须自行拷贝
+     *
+     * @param event
+     */
+    void log(UELogEvent event);
+}
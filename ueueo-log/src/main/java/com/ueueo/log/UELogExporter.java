@@ -0,0 +1,429 @@
+package com.ueueo.log;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 把日志文件夹打包为一个zip文件
+ * <p>
+ * 逐个文件流式写入，不会把整个文件读入内存：已经压缩的.gz文件不再压缩，通过{@link FileChannel#transferTo}直接拷贝；
+ * 其他文件分段压缩。正在写入的文件由日志工具在导出前登记快照（参考{@link UELogFileWriter#snapshot}），
+ * 只导出快照时已写入文件的内容，日志可以继续写入，不需要暂停。最后写入manifest.json记录所有文件的信息
+ * <p>
+ * 非线程安全，每次导出创建一个实例
+ */
+final class UELogExporter {
+
+    static final String MANIFEST_NAME = "manifest.json";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    //zip文件中的条目数量和偏移量只支持16位和32位
+    private static final int MAX_ENTRY_COUNT = 0xFFFF;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private final File mRootDir;
+    //正在写入的文件登记的快照，按文件路径索引
+    private final Map<String, Snapshot> mActiveFiles = new HashMap<>();
+
+    private FileChannel mOutput;
+    private long mPosition;
+    private final List<Entry> mEntries = new ArrayList<>();
+    private final ByteBuffer mHeader = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] mInput = new byte[COPY_BUFFER_SIZE];
+    private final byte[] mDeflated = new byte[COPY_BUFFER_SIZE];
+    private final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 mCrc = new CRC32();
+
+    /**
+     * @param rootDir 要导出的日志文件夹
+     */
+    UELogExporter(File rootDir) {
+        mRootDir = rootDir;
+    }
+
+    /**
+     * 登记正在写入的文件，只导出从offset开始的length个字节
+     *
+     * @param exportAs 导出时使用的文件名，null表示使用原文件名
+     */
+    void addActiveFile(File file, long offset, long length, File exportAs) {
+        mActiveFiles.put(file.getAbsolutePath(), new Snapshot(offset, length, exportAs != null ? exportAs : file));
+    }
+
+    /**
+     * 导出日志文件夹中的所有文件
+     *
+     * @param bundle 导出的zip文件，已存在的文件会被覆盖
+     * @return 导出的文件数量，不包括manifest.json
+     * @throws IOException
+     */
+    int export(File bundle) throws IOException {
+        File parent = bundle.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        FileOutputStream out = new FileOutputStream(bundle);
+        mOutput = out.getChannel();
+        mPosition = 0;
+        try {
+            exportDir(mRootDir, "", bundle.getAbsoluteFile());
+            int fileCount = mEntries.size();
+            writeManifest();
+            writeCentralDirectory();
+            return fileCount;
+        } finally {
+            mDeflater.end();
+            out.close();
+        }
+    }
+
+    private void exportDir(File dir, String prefix, File bundle) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                exportDir(file, prefix + file.getName() + "/", bundle);
+            } else if (!file.equals(bundle) && !file.getName().endsWith(UELogFileRoller.TEMP_SUFFIX)) {
+                exportFile(file, prefix);
+            }
+            if (mEntries.size() >= MAX_ENTRY_COUNT - 1) {
+                return;
+            }
+        }
+    }
+
+    private void exportFile(File file, String prefix) throws IOException {
+        Snapshot snapshot = mActiveFiles.get(file.getAbsolutePath());
+        FileInputStream in;
+        try {
+            //先打开文件，之后即使文件被滚动清理删除也能读取完整的内容
+            in = new FileInputStream(file);
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            FileChannel channel = in.getChannel();
+            long offset = 0;
+            long length;
+            String name = prefix + file.getName();
+            if (snapshot != null) {
+                offset = snapshot.mOffset;
+                length = Math.min(snapshot.mLength, channel.size() - offset);
+                name = prefix + exportName(file, snapshot.mExportAs);
+            } else if (file.getName().endsWith(UEMappedLogFileWriter.FILE_SUFFIX)) {
+                //上次进程没有正常关闭的内存映射日志文件
+                offset = UEMappedLogFileWriter.HEADER_SIZE;
+                length = UEMappedLogFileWriter.readContentLength(channel);
+                name = prefix + exportName(file, new File(file.getParentFile(), UEMappedLogFileWriter.getLogFileName(file)));
+            } else {
+                length = channel.size();
+            }
+            if (length < 0 || length > MAX_SIZE || mPosition > MAX_SIZE) {
+                return;
+            }
+            Entry entry = new Entry(name, file.lastModified(), length, snapshot != null);
+            if (name.endsWith(UELogFileRoller.GZIP_SUFFIX)) {
+                writeStored(entry, channel, offset);
+            } else {
+                writeDeflated(entry, channel, offset);
+            }
+            mEntries.add(entry);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return 按exportAs命名，exportAs是另一个已存在的文件时在原文件名后加上.log，避免zip中出现同名的条目
+     */
+    private static String exportName(File file, File exportAs) {
+        if (exportAs.equals(file) || !exportAs.exists()) {
+            return exportAs.getName();
+        }
+        return file.getName() + ".log";
+    }
+
+    /**
+     * 不压缩，先计算CRC，再通过transferTo直接拷贝文件内容
+     */
+    private void writeStored(Entry entry, FileChannel channel, long offset) throws IOException {
+        mCrc.reset();
+        ByteBuffer buffer = ByteBuffer.wrap(mInput);
+        long position = 0;
+        while (position < entry.mSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), entry.mSize - position));
+            int read = channel.read(buffer, offset + position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file: " + entry.mName);
+            }
+            mCrc.update(mInput, 0, read);
+            position += read;
+        }
+        entry.mMethod = METHOD_STORED;
+        entry.mFlags = FLAG_UTF8;
+        entry.mCrc = mCrc.getValue();
+        entry.mCompressedSize = entry.mSize;
+        writeLocalHeader(entry);
+        position = 0;
+        while (position < entry.mSize) {
+            long transferred = channel.transferTo(offset + position, entry.mSize - position, mOutput);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of file: " + entry.mName);
+            }
+            position += transferred;
+        }
+        mPosition += entry.mSize;
+    }
+
+    /**
+     * 分段读取并压缩，压缩后的大小和CRC写在内容之后的数据描述中
+     */
+    private void writeDeflated(Entry entry, FileChannel channel, long offset) throws IOException {
+        beginDeflate(entry);
+        ByteBuffer buffer = ByteBuffer.wrap(mInput);
+        long position = 0;
+        while (position < entry.mSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), entry.mSize - position));
+            int read = channel.read(buffer, offset + position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file: " + entry.mName);
+            }
+            deflate(entry, mInput, read);
+            position += read;
+        }
+        endDeflate(entry);
+    }
+
+    private void beginDeflate(Entry entry) throws IOException {
+        entry.mMethod = METHOD_DEFLATED;
+        entry.mFlags = FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+        writeLocalHeader(entry);
+        mCrc.reset();
+        mDeflater.reset();
+    }
+
+    private void deflate(Entry entry, byte[] bytes, int length) throws IOException {
+        mCrc.update(bytes, 0, length);
+        mDeflater.setInput(bytes, 0, length);
+        while (!mDeflater.needsInput()) {
+            entry.mCompressedSize += writeDeflated();
+        }
+    }
+
+    private void endDeflate(Entry entry) throws IOException {
+        mDeflater.finish();
+        while (!mDeflater.finished()) {
+            entry.mCompressedSize += writeDeflated();
+        }
+        entry.mCrc = mCrc.getValue();
+        ByteBuffer header = beginHeader();
+        header.putInt(DATA_DESCRIPTOR_SIGNATURE);
+        header.putInt((int) entry.mCrc);
+        header.putInt((int) entry.mCompressedSize);
+        header.putInt((int) entry.mSize);
+        writeHeader(header);
+    }
+
+    private int writeDeflated() throws IOException {
+        int count = mDeflater.deflate(mDeflated);
+        if (count > 0) {
+            ByteBuffer output = ByteBuffer.wrap(mDeflated, 0, count);
+            while (output.hasRemaining()) {
+                mOutput.write(output);
+            }
+            mPosition += count;
+        }
+        return count;
+    }
+
+    private void writeManifest() throws IOException {
+        StringWriter manifest = new StringWriter();
+        JsonWriter writer = new JsonWriter(manifest);
+        writer.setIndent("  ");
+        writer.beginObject();
+        writer.name("createdAt").value(System.currentTimeMillis());
+        writer.name("root").value(mRootDir.getAbsolutePath());
+        writer.name("files").beginArray();
+        for (Entry entry : mEntries) {
+            writer.beginObject();
+            writer.name("name").value(entry.mName);
+            writer.name("size").value(entry.mSize);
+            writer.name("compressedSize").value(entry.mCompressedSize);
+            writer.name("crc32").value(Long.toHexString(entry.mCrc));
+            writer.name("lastModified").value(entry.mLastModified);
+            writer.name("active").value(entry.mActive);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.close();
+        byte[] bytes = manifest.toString().getBytes("UTF-8");
+        Entry entry = new Entry(MANIFEST_NAME, System.currentTimeMillis(), bytes.length, false);
+        beginDeflate(entry);
+        deflate(entry, bytes, bytes.length);
+        endDeflate(entry);
+        mEntries.add(entry);
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.mOffset = mPosition;
+        boolean descriptor = (entry.mFlags & FLAG_DATA_DESCRIPTOR) != 0;
+        ByteBuffer header = beginHeader();
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) VERSION);
+        header.putShort((short) entry.mFlags);
+        header.putShort((short) entry.mMethod);
+        header.putInt(entry.mDosTime);
+        header.putInt(descriptor ? 0 : (int) entry.mCrc);
+        header.putInt(descriptor ? 0 : (int) entry.mCompressedSize);
+        header.putInt(descriptor ? 0 : (int) entry.mSize);
+        header.putShort((short) entry.mNameBytes.length);
+        header.putShort((short) 0);
+        writeHeader(header);
+        writeBytes(entry.mNameBytes);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long start = mPosition;
+        for (Entry entry : mEntries) {
+            ByteBuffer header = beginHeader();
+            header.putInt(CENTRAL_HEADER_SIGNATURE);
+            header.putShort((short) VERSION);
+            header.putShort((short) VERSION);
+            header.putShort((short) entry.mFlags);
+            header.putShort((short) entry.mMethod);
+            header.putInt(entry.mDosTime);
+            header.putInt((int) entry.mCrc);
+            header.putInt((int) entry.mCompressedSize);
+            header.putInt((int) entry.mSize);
+            header.putShort((short) entry.mNameBytes.length);
+            //扩展字段、注释、磁盘号、内部属性、外部属性
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putInt(0);
+            header.putInt((int) entry.mOffset);
+            writeHeader(header);
+            writeBytes(entry.mNameBytes);
+        }
+        ByteBuffer header = beginHeader();
+        header.putInt(END_SIGNATURE);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) mEntries.size());
+        header.putShort((short) mEntries.size());
+        header.putInt((int) (mPosition - start));
+        header.putInt((int) start);
+        header.putShort((short) 0);
+        writeHeader(header);
+    }
+
+    private ByteBuffer beginHeader() {
+        mHeader.clear();
+        return mHeader;
+    }
+
+    private void writeHeader(ByteBuffer header) throws IOException {
+        header.flip();
+        mPosition += header.remaining();
+        while (header.hasRemaining()) {
+            mOutput.write(header);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        mPosition += bytes.length;
+        while (buffer.hasRemaining()) {
+            mOutput.write(buffer);
+        }
+    }
+
+    /**
+     * 正在写入的文件导出时的快照
+     */
+    private static final class Snapshot {
+        final long mOffset;
+        final long mLength;
+        final File mExportAs;
+
+        Snapshot(long offset, long length, File exportAs) {
+            mOffset = offset;
+            mLength = length;
+            mExportAs = exportAs;
+        }
+    }
+
+    /**
+     * zip文件中的一个条目
+     */
+    private static final class Entry {
+        final String mName;
+        final byte[] mNameBytes;
+        final long mLastModified;
+        final int mDosTime;
+        final long mSize;
+        final boolean mActive;
+        int mMethod;
+        int mFlags;
+        long mCrc;
+        long mCompressedSize;
+        long mOffset;
+
+        Entry(String name, long lastModified, long size, boolean active) throws IOException {
+            mName = name;
+            mNameBytes = name.getBytes("UTF-8");
+            mLastModified = lastModified;
+            mDosTime = toDosTime(lastModified);
+            mSize = size;
+            mActive = active;
+        }
+
+        private static int toDosTime(long time) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(time);
+            int year = calendar.get(Calendar.YEAR);
+            if (year < 1980) {
+                return (1 << 21) | (1 << 16);
+            }
+            return (year - 1980) << 25
+                    | (calendar.get(Calendar.MONTH) + 1) << 21
+                    | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                    | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                    | calendar.get(Calendar.MINUTE) << 5
+                    | calendar.get(Calendar.SECOND) >> 1;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.ueueo.log;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 日志文件读取
+ * <p>
+ * 不依赖Android，可以在电脑上运行。.gz文件会自动解压，边写边压缩的文件末尾不完整时读取到最后一次同步刷新为止，
+ * 旧版本在崩溃后未结束的数据后面追加的gzip数据段无法解压，读取到追加的位置为止：
+ * <pre>
+ * java -cp ueueo-log.jar com.ueueo.log.UELogFileReader "2018-01-01 12:00.log.gz"
+ * </pre>
+ */
+public final class UELogFileReader {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private UELogFileReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: UELogFileReader <file>...");
+            System.exit(1);
+        }
+        for (String path : args) {
+            InputStream in = open(new File(path));
+            try {
+                copy(in, System.out);
+            } finally {
+                in.close();
+            }
+        }
+        System.out.flush();
+    }
+
+    /**
+     * 打开日志文件
+     *
+     * @param file 文本日志文件或者.gz压缩的日志文件
+     * @return 日志文件解压后的内容
+     * @throws IOException
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        if (!file.getName().endsWith(UELogFileRoller.GZIP_SUFFIX)) {
+            return in;
+        }
+        try {
+            return new TruncationTolerantInputStream(file, new GZIPInputStream(in, BUFFER_SIZE));
+        } catch (EOFException e) {
+            //只写入了不完整的gzip文件头
+            in.close();
+            return new TruncationTolerantInputStream(file, null);
+        }
+    }
+
+    /**
+     * 将日志文件解压后的内容写入out
+     *
+     * @param file 文本日志文件或者.gz压缩的日志文件
+     * @param out
+     * @throws IOException
+     */
+    public static void copy(File file, OutputStream out) throws IOException {
+        InputStream in = open(file);
+        try {
+            copy(in, out);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * 压缩数据意外结束，或者未结束的数据后面是新的gzip数据段时当作文件结束处理
+     * <p>
+     * 解压出错时，出错的那次读取中已经解压的内容也会丢失，所以重新打开文件，每次只提供一个字节的压缩数据，
+     * 出错时之前的数据都已经解压，跳过已经读取的内容后读取到出错的位置
+     */
+    private static final class TruncationTolerantInputStream extends FilterInputStream {
+        private final File mFile;
+        private long mPosition;
+        private boolean mReopened;
+        private boolean mEnd;
+
+        TruncationTolerantInputStream(File file, InputStream in) {
+            super(in);
+            mFile = file;
+            mEnd = in == null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (mEnd) {
+                return -1;
+            }
+            try {
+                int read = in.read(b, off, len);
+                if (read < 0) {
+                    mEnd = true;
+                } else {
+                    mPosition += read;
+                }
+                return read;
+            } catch (EOFException e) {
+                mEnd = true;
+                return -1;
+            } catch (ZipException e) {
+                if (mReopened || !reopen()) {
+                    mEnd = true;
+                    return -1;
+                }
+                return read(b, off, len);
+            }
+        }
+
+        /**
+         * 重新打开文件并跳过已经读取的内容，之后逐字节提供压缩数据
+         *
+         * @return 是否成功跳过已经读取的内容
+         */
+        private boolean reopen() throws IOException {
+            in.close();
+            InputStream file = new BufferedInputStream(new FileInputStream(mFile), BUFFER_SIZE);
+            in = new GZIPInputStream(new FilterInputStream(file) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return super.read(b, off, Math.min(len, 1));
+                }
+            }, BUFFER_SIZE);
+            mReopened = true;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = mPosition;
+            try {
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        return false;
+                    }
+                    remaining -= read;
+                }
+            } catch (EOFException | ZipException e) {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.ueueo.log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 日志文件滚动的后台处理
+ * <p>
+ * 负责关闭已滚动的日志文件、压缩，以及按数量和大小清理旧的日志文件，
+ * 所有耗时的文件操作都在后台线程中执行，不会阻塞写日志的线程，所有文件日志工具共用同一个后台线程
+ */
+final class UELogFileRoller {
+
+    static final String GZIP_SUFFIX = ".gz";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    private static final Comparator<File> OLDEST_FIRST = new Comparator<File>() {
+        @Override
+        public int compare(File lhs, File rhs) {
+            long l = lhs.lastModified();
+            long r = rhs.lastModified();
+            if (l != r) {
+                return l < r ? -1 : 1;
+            }
+            return lhs.getName().compareTo(rhs.getName());
+        }
+    };
+
+    //所有文件日志工具共用一个后台线程，第一次滚动或清理时才创建
+    private static ExecutorService sExecutor;
+
+    private volatile int mMaxFileCount;
+    private volatile long mMaxTotalSize;
+    private volatile boolean mCompress;
+    private final UELogCompressionStats mStats = new UELogCompressionStats();
+    //正在写入的日志文件，清理时在后台线程中读取，排队的任务不会删除之后才打开的文件
+    private final Set<File> mActiveFiles = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "UELog-FileRoller");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    void setMaxFileCount(int maxFileCount) {
+        mMaxFileCount = maxFileCount;
+    }
+
+    void setMaxTotalSize(long maxTotalSize) {
+        mMaxTotalSize = maxTotalSize;
+    }
+
+    void setCompress(boolean compress) {
+        mCompress = compress;
+    }
+
+    UELogCompressionStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * 登记正在写入的日志文件，清理时会跳过
+     */
+    void activate(File file) {
+        mActiveFiles.add(file);
+    }
+
+    /**
+     * 日志文件已关闭，之后可以被清理
+     */
+    void deactivate(File file) {
+        mActiveFiles.remove(file);
+    }
+
+    /**
+     * 在后台关闭已滚动的日志文件，然后压缩并清理旧文件
+     *
+     * @param writer 已滚动的日志文件写入器，调用后不能再使用
+     */
+    void roll(final UELogFileWriter writer) {
+        deactivate(writer.getFile());
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+                File sealedFile = writer.getSealedFile();
+                //边写边压缩的文件已经是.gz文件
+                if (mCompress && sealedFile.exists() && !sealedFile.getName().endsWith(GZIP_SUFFIX)) {
+                    compress(sealedFile);
+                }
+                cleanup(sealedFile.getParentFile());
+            }
+        });
+    }
+
+    /**
+     * 在后台清理日志文件夹中超出数量和大小限制的旧文件
+     *
+     * @param logDir
+     */
+    void cleanupAsync(final File logDir) {
+        if (mMaxFileCount <= 0 && mMaxTotalSize <= 0) {
+            return;
+        }
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                cleanup(logDir);
+            }
+        });
+    }
+
+    private void cleanup(File logDir) {
+        int maxFileCount = mMaxFileCount;
+        long maxTotalSize = mMaxTotalSize;
+        if (maxFileCount <= 0 && maxTotalSize <= 0) {
+            return;
+        }
+        File[] files = logDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> segments = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(segments, OLDEST_FIRST);
+        int count = segments.size();
+        long totalSize = 0;
+        for (File file : segments) {
+            totalSize += file.length();
+        }
+        for (File file : segments) {
+            boolean overCount = maxFileCount > 0 && count > maxFileCount;
+            boolean overSize = maxTotalSize > 0 && totalSize > maxTotalSize;
+            if (!overCount && !overSize) {
+                break;
+            }
+            if (file.getName().endsWith(UEMappedLogFileWriter.FILE_SUFFIX) || mActiveFiles.contains(file)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                count--;
+                totalSize -= length;
+            }
+        }
+    }
+
+    private void compress(File file) {
+        File gzipFile = new File(file.getParentFile(), file.getName() + GZIP_SUFFIX);
+        //压缩完成后再改名，导出日志时不会读到不完整的压缩文件
+        File tempFile = new File(file.getParentFile(), gzipFile.getName() + TEMP_SUFFIX);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        FileInputStream in = null;
+        GZIPOutputStream out = null;
+        long start = System.nanoTime();
+        try {
+            in = new FileInputStream(file);
+            out = new GZIPOutputStream(new FileOutputStream(tempFile), COPY_BUFFER_SIZE);
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.finish();
+        } catch (IOException e) {
+            tempFile.delete();
+            return;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                }
+            }
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        if (!tempFile.renameTo(gzipFile)) {
+            tempFile.delete();
+            return;
+        }
+        mStats.record(file.length(), gzipFile.length(), System.nanoTime() - start);
+        gzipFile.setLastModified(file.lastModified());
+        file.delete();
+    }
+}
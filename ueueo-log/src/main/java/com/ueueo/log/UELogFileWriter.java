@@ -0,0 +1,104 @@
+package com.ueueo.log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 日志文件写入器
+ * <p>
+ * 已编码为UTF-8的日志写入{@link #mBuffer}，缓冲区写满后由子类决定如何继续写入
+ * <p>
+ * 非线程安全，由{@link UEFileLogTool}负责同步
+ */
+abstract class UELogFileWriter implements Flushable, Closeable {
+
+    protected final File mFile;
+    protected ByteBuffer mBuffer;
+    private long mLastFlushTime;
+    //缓冲区中有没有写入文件的日志，由UEFileLogTool在写入后设置
+    boolean mDirty;
+    //到达此时间后日志文件需要滚动，0表示不按时间滚动
+    long mRollTime;
+
+    UELogFileWriter(File file) {
+        mFile = file;
+        mLastFlushTime = System.currentTimeMillis();
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * @return 关闭后最终保存日志内容的文件
+     */
+    File getSealedFile() {
+        return mFile;
+    }
+
+    /**
+     * @return 日志文件当前的大小（包括缓冲区中还未写入文件的日志）
+     */
+    abstract long length();
+
+    /**
+     * 将调用线程中编码好的日志拷贝到缓冲区
+     *
+     * @param bytes 从position到limit的内容会被全部写入
+     * @throws IOException
+     */
+    void write(ByteBuffer bytes) throws IOException {
+        int limit = bytes.limit();
+        while (bytes.hasRemaining()) {
+            if (!mBuffer.hasRemaining()) {
+                onBufferFull();
+            }
+            bytes.limit(Math.min(limit, bytes.position() + mBuffer.remaining()));
+            mBuffer.put(bytes);
+            bytes.limit(limit);
+        }
+    }
+
+    /**
+     * 按顺序写入一批编码好的日志，默认逐条拷贝到缓冲区
+     *
+     * @param buffers 每个的position到limit的内容会被全部写入
+     * @param count   写入前count个
+     * @throws IOException
+     */
+    void write(ByteBuffer[] buffers, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            write(buffers[i]);
+        }
+    }
+
+    /**
+     * 缓冲区已写满，子类需要腾出{@link #mBuffer}的空间以便继续写入
+     *
+     * @throws IOException
+     */
+    protected abstract void onBufferFull() throws IOException;
+
+    /**
+     * 导出日志时登记文件当前的内容，之后继续写入的日志不会被导出，调用前需要先{@link #flush()}
+     */
+    void snapshot(UELogExporter exporter) {
+        exporter.addActiveFile(mFile, 0, length(), null);
+    }
+
+    /**
+     * @return 距离上一次写入文件的时间
+     */
+    long getMillisSinceFlush(long now) {
+        return now - mLastFlushTime;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mLastFlushTime = System.currentTimeMillis();
+        mDirty = false;
+    }
+}
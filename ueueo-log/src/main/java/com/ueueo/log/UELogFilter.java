@@ -0,0 +1,204 @@
+package com.ueueo.log;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 日志限流和重复日志合并
+ * <p>
+ * 在调用线程中、日志格式化之前执行，所有状态都是固定大小的原子数组，不加锁也不会随日志数量增长：
+ * <ul>
+ * <li>限流：按Tag、级别和调用位置（没有调用位置时为日志的格式字符串）计算出的哈希值选择一个令牌桶，
+ * 令牌不足的日志被丢弃，下一条通过的日志之前会输出被丢弃的数量。哈希冲突时两个位置共用一个令牌桶</li>
+ * <li>合并：和上一条日志内容完全相同（按内容和参数的哈希值判断）的日志在时间窗口内不输出，
+ * 之后出现的第一条日志之前会输出上一条日志重复的次数</li>
+ * </ul>
+ */
+final class UELogFilter {
+
+    /**
+     * 日志作为重复日志被合并
+     */
+    static final long REJECT_DUPLICATE = -1;
+    /**
+     * 日志被限流丢弃
+     */
+    static final long REJECT_RATE_LIMIT = -2;
+
+    private static final int SLOT_COUNT = 256;
+    //令牌以千分之一为单位保存，低22位为令牌数，其余为距离创建时间的毫秒数
+    private static final int TOKEN_BITS = 22;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long TOKEN_UNIT = 1000;
+    static final int MAX_BURST = (int) (TOKEN_MASK / TOKEN_UNIT);
+
+    private final long mBaseMillis = System.currentTimeMillis();
+
+    private final int mPermitsPerSecond;
+    private final long mBurstTokens;
+    private final AtomicLongArray mSlotStates;
+    private final AtomicIntegerArray mSlotDropped;
+
+    private final long mCollapseWindowMillis;
+    private final AtomicLong mLastKey = new AtomicLong();
+    private final AtomicLong mLastEmitMillis = new AtomicLong();
+    private final AtomicInteger mRepeated = new AtomicInteger();
+
+    /**
+     * @param permitsPerSecond     每个位置每秒允许输出的日志数量，0表示不限流
+     * @param burst                每个位置允许连续输出的日志数量
+     * @param collapseWindowMillis 重复日志合并的时间窗口，0表示不合并
+     */
+    UELogFilter(int permitsPerSecond, int burst, long collapseWindowMillis) {
+        mPermitsPerSecond = Math.max(0, permitsPerSecond);
+        mBurstTokens = Math.max(1, Math.min(burst, MAX_BURST)) * TOKEN_UNIT;
+        mCollapseWindowMillis = Math.max(0, collapseWindowMillis);
+        if (mPermitsPerSecond > 0) {
+            mSlotStates = new AtomicLongArray(SLOT_COUNT);
+            //所有令牌桶开始时都是满的
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                mSlotStates.set(i, mBurstTokens);
+            }
+            mSlotDropped = new AtomicIntegerArray(SLOT_COUNT);
+        } else {
+            mSlotStates = null;
+            mSlotDropped = null;
+        }
+    }
+
+    /**
+     * 判断日志是否可以输出
+     *
+     * @param event 已采集完信息的日志事件
+     * @return {@link #REJECT_DUPLICATE}或{@link #REJECT_RATE_LIMIT}表示丢弃；否则高32位为上一条日志被合并的次数，低32位为同一位置之前被限流丢弃的数量
+     */
+    long accept(UELogEvent event) {
+        long now = event.timeMillis - mBaseMillis;
+        int repeated = 0;
+        if (mCollapseWindowMillis > 0) {
+            long key = contentKey(event);
+            long lastKey = mLastKey.get();
+            if (key == lastKey && now - mLastEmitMillis.get() < mCollapseWindowMillis) {
+                mRepeated.incrementAndGet();
+                return REJECT_DUPLICATE;
+            }
+            mLastKey.set(key);
+            mLastEmitMillis.set(now);
+            repeated = mRepeated.getAndSet(0);
+        }
+        int dropped = 0;
+        if (mPermitsPerSecond > 0) {
+            long key = siteKey(event);
+            int slot = (int) (key ^ (key >>> 32)) & (SLOT_COUNT - 1);
+            if (!acquire(slot, Math.max(0, now))) {
+                mSlotDropped.incrementAndGet(slot);
+                return REJECT_RATE_LIMIT;
+            }
+            dropped = mSlotDropped.getAndSet(slot, 0);
+        }
+        return ((long) repeated << 32) | dropped;
+    }
+
+    /**
+     * 从令牌桶中取出一个令牌，哈希冲突的位置共用同一个令牌桶，不会互相重新装满令牌
+     */
+    private boolean acquire(int slot, long now) {
+        while (true) {
+            long state = mSlotStates.get(slot);
+            long last = state >>> TOKEN_BITS;
+            long tokens = state & TOKEN_MASK;
+            if (now > last) {
+                //每毫秒补充mPermitsPerSecond个千分之一令牌
+                tokens = Math.min(mBurstTokens, tokens + (now - last) * mPermitsPerSecond);
+                last = now;
+            }
+            boolean acquired = tokens >= TOKEN_UNIT;
+            if (acquired) {
+                tokens -= TOKEN_UNIT;
+            }
+            if (mSlotStates.compareAndSet(slot, state, (last << TOKEN_BITS) | tokens)) {
+                return acquired;
+            }
+        }
+    }
+
+    /**
+     * @return 限流时区分位置的哈希值：Tag、级别、调用位置或格式字符串
+     */
+    private static long siteKey(UELogEvent event) {
+        long h = hash(event.tag) * 31 + event.level;
+        if (event.callerFrameCount > 0 && event.callerFrames[0] != null) {
+            h = h * 31 + event.callerFrames[0].hashCode();
+        } else if (event.supplier != null) {
+            h = h * 31 + event.supplier.getClass().hashCode();
+        } else if (event.payload != null) {
+            h = h * 31 + event.payload.getClass().hashCode();
+        } else {
+            h = h * 31 + hash(event.message);
+        }
+        return mix(h);
+    }
+
+    /**
+     * @return 合并重复日志时比较的哈希值：位置、日志内容、参数和拼接的内容
+     */
+    private static long contentKey(UELogEvent event) {
+        long h = siteKey(event) * 31 + hash(event.message);
+        if (event.payload != null) {
+            h = h * 31 + System.identityHashCode(event.payload);
+        }
+        if (event.supplier != null) {
+            h = h * 31 + System.identityHashCode(event.supplier);
+        }
+        if (event.throwable != null) {
+            h = h * 31 + event.throwable.getClass().hashCode();
+        }
+        for (int i = 0; i < event.argCount; i++) {
+            Object arg = event.args != null ? event.args[i] : (i == 0 ? event.arg0 : event.arg1);
+            h = h * 31 + argHash(arg);
+        }
+        UELogCall call = event.pendingAppends;
+        if (call != null) {
+            //拼接的内容还没有格式化，按原始内容和参数计算
+            for (int i = 0; i < call.appendCount; i++) {
+                h = h * 31 + call.appendKinds[i];
+                h = h * 31 + hash(call.appendMessages[i]);
+                Object payload = call.appendPayloads[i];
+                if (payload instanceof Object[]) {
+                    for (Object arg : (Object[]) payload) {
+                        h = h * 31 + argHash(arg);
+                    }
+                } else {
+                    h = h * 31 + argHash(payload);
+                }
+            }
+        } else if (event.appendMessages != null) {
+            for (int i = 0; i < event.appendMessages.size(); i++) {
+                h = h * 31 + hash(event.appendMessages.get(i));
+            }
+        }
+        return mix(h);
+    }
+
+    private static int argHash(Object arg) {
+        if (arg == null) {
+            return 0;
+        }
+        if (arg instanceof String || arg instanceof Number || arg instanceof Boolean || arg instanceof Character) {
+            return arg.hashCode();
+        }
+        //其他对象的hashCode()可能比较耗时，只按对象本身区分
+        return System.identityHashCode(arg);
+    }
+
+    private static int hash(String value) {
+        return value != null ? value.hashCode() : 0;
+    }
+
+    private static long mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
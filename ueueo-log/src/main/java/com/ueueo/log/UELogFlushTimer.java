@@ -0,0 +1,63 @@
+package com.ueueo.log;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 定时把日志工具缓冲的日志写入文件
+ * <p>
+ * 日志工具只在写入日志时检查刷新间隔，进程空闲时缓冲区中最后的日志不会被写入。
+ * 日志工具在缓冲了没有写入的日志时调用{@link #schedule(long)}，同一时间最多只有一个等待中的任务，
+ * 所有日志工具共用一个后台线程
+ */
+final class UELogFlushTimer implements Runnable {
+
+    private static ScheduledExecutorService sExecutor;
+
+    private final Runnable mTask;
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+
+    /**
+     * @param task 在后台线程中执行的刷新任务，需要自己加锁
+     */
+    UELogFlushTimer(Runnable task) {
+        mTask = task;
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "UELog-Flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * 在指定时间后执行刷新任务，已经有等待中的任务时不做处理
+     *
+     * @param delayMillis 毫秒数
+     */
+    void schedule(long delayMillis) {
+        if (mScheduled.compareAndSet(false, true)) {
+            getExecutor().schedule(this, Math.max(1, delayMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        mScheduled.set(false);
+        try {
+            mTask.run();
+        } catch (RuntimeException e) {
+        }
+    }
+}
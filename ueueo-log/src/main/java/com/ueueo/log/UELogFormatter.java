@@ -0,0 +1,132 @@
+package com.ueueo.log;
+
+import java.util.Arrays;
+
+/**
+ * 日志内容格式化
+ * <p>
+ * 日志内容中包含"%s"、"%d"等格式时使用{@link String#format(String, Object...)}格式化，兼容之前的用法，
+ * 此时"{}"原样输出，例如"body={} code=%d"；
+ * 没有任何格式时按顺序使用参数替换"{}"占位符（"\\{}"表示不替换）
+ */
+final class UELogFormatter {
+
+    private static final String PLACEHOLDER = "{}";
+    private static final char ESCAPE_CHAR = '\\';
+    private static final int MAX_BUILDER_CAPACITY = 16 * 1024;
+
+    /**
+     * 每个线程复用的StringBuilder，参数的toString()中又输出日志时不能复用同一个
+     */
+    private static final ThreadLocal<StringBuilder> localBuilder = new ThreadLocal<>();
+
+    private UELogFormatter() {
+    }
+
+    /**
+     * 格式化日志内容
+     *
+     * @param pattern  日志内容
+     * @param argCount 参数个数
+     * @param arg0     第一个参数，args不为空时忽略
+     * @param arg1     第二个参数，args不为空时忽略
+     * @param args     参数数组
+     * @return
+     */
+    static String format(String pattern, int argCount, Object arg0, Object arg1, Object[] args) {
+        if (pattern == null || argCount == 0) {
+            return pattern;
+        }
+        if (pattern.indexOf(PLACEHOLDER) < 0 || hasConversion(pattern)) {
+            if (args == null) {
+                args = argCount == 1 ? new Object[]{arg0} : new Object[]{arg0, arg1};
+            }
+            return String.format(pattern, args);
+        }
+        StringBuilder builder = localBuilder.get();
+        if (builder == null) {
+            builder = new StringBuilder(256);
+        } else {
+            localBuilder.set(null);
+        }
+        try {
+            builder.setLength(0);
+            formatTo(builder, pattern, argCount, arg0, arg1, args);
+            return builder.toString();
+        } finally {
+            if (builder.capacity() <= MAX_BUILDER_CAPACITY) {
+                localBuilder.set(builder);
+            }
+        }
+    }
+
+    /**
+     * @return 是否包含String.format的格式，即'%'之后跟着可选的参数索引、标志、宽度和精度，然后是一个字母或者'%'
+     */
+    private static boolean hasConversion(String pattern) {
+        int length = pattern.length();
+        int index = pattern.indexOf('%');
+        while (index >= 0) {
+            int i = index + 1;
+            while (i < length && "0123456789$-#+ ,(<.".indexOf(pattern.charAt(i)) >= 0) {
+                i++;
+            }
+            if (i < length) {
+                char c = pattern.charAt(i);
+                if (c == '%' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    return true;
+                }
+            }
+            index = pattern.indexOf('%', index + 1);
+        }
+        return false;
+    }
+
+    private static void formatTo(StringBuilder out, String pattern, int argCount, Object arg0, Object arg1, Object[] args) {
+        int start = 0;
+        int argIndex = 0;
+        while (argIndex < argCount) {
+            int index = pattern.indexOf(PLACEHOLDER, start);
+            if (index < 0) {
+                break;
+            }
+            if (index > 0 && pattern.charAt(index - 1) == ESCAPE_CHAR) {
+                if (index > 1 && pattern.charAt(index - 2) == ESCAPE_CHAR) {
+                    //"\\{}"表示转义字符本身，占位符仍然替换
+                    out.append(pattern, start, index - 1);
+                } else {
+                    out.append(pattern, start, index - 1).append(PLACEHOLDER);
+                    start = index + PLACEHOLDER.length();
+                    continue;
+                }
+            } else {
+                out.append(pattern, start, index);
+            }
+            Object arg = args != null ? args[argIndex] : (argIndex == 0 ? arg0 : arg1);
+            appendArg(out, arg);
+            argIndex++;
+            start = index + PLACEHOLDER.length();
+        }
+        out.append(pattern, start, pattern.length());
+    }
+
+    private static void appendArg(StringBuilder out, Object arg) {
+        if (arg == null) {
+            out.append("null");
+        } else if (arg instanceof String) {
+            out.append((String) arg);
+        } else if (arg instanceof Integer) {
+            out.append(((Integer) arg).intValue());
+        } else if (arg instanceof Long) {
+            out.append(((Long) arg).longValue());
+        } else if (arg instanceof Object[]) {
+            out.append(Arrays.deepToString((Object[]) arg));
+        } else {
+            try {
+                out.append(arg);
+            } catch (RuntimeException e) {
+                out.append("[").append(arg.getClass().getName()).append(" toString() failed: ").append(e).append("]");
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ueueo.log;
+
+/**
+ * 耗时分布直方图
+ * <p>
+ * 按2的幂分段，每段再等分为8个桶，相对误差不超过12.5%。记录时只对当前线程分段中的一个桶原子加1，不加锁；
+ * 计算分位数时合计所有分段，得到的是近似值
+ */
+final class UELogHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    //最大记录约2^40纳秒（约18分钟），超出的记录在最后一个桶中
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final UELogCounter mBuckets = new UELogCounter(BUCKET_COUNT);
+
+    /**
+     * @param nanos 耗时，单位纳秒
+     */
+    void record(long nanos) {
+        mBuckets.increment(bucketOf(nanos));
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return 桶的中间值
+     */
+    static long valueOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        long lower = (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) / 2;
+    }
+
+    /**
+     * 合计所有分段的桶
+     */
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mBuckets.sum(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total);
+    }
+
+    static final class Snapshot {
+        private final long[] mCounts;
+        final long mTotal;
+
+        Snapshot(long[] counts, long total) {
+            mCounts = counts;
+            mTotal = total;
+        }
+
+        /**
+         * @param percentile 0到100之间
+         * @return 分位数的近似值，没有记录时返回0
+         */
+        long percentile(double percentile) {
+            if (mTotal == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(mTotal * Math.min(100, Math.max(0, percentile)) / 100);
+            if (rank < 1) {
+                rank = 1;
+            }
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank) {
+                    return valueOf(i);
+                }
+            }
+            return valueOf(mCounts.length - 1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ueueo.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志文件中每一行的格式
+ * <p>
+ * 格式字符串在配置时编译一次，输出时按编译结果直接写入字节缓冲区，支持的占位符：
+ * <ul>
+ * <li>%d：时间，格式为yyyy-MM-dd HH:mm:ss.SSS</li>
+ * <li>%level：级别字母，V、D、I、W、E</li>
+ * <li>%tag：Tag，开启显示线程信息时包含线程名</li>
+ * <li>%thread：线程名</li>
+ * <li>%msg：日志内容中的一行</li>
+ * <li>%%：%字符</li>
+ * </ul>
+ */
+public final class UELogLayout {
+
+    /**
+     * 默认格式，例如：2018-01-01 12:00:00.000: D/UEUEO: message
+     */
+    public static final String DEFAULT_PATTERN = "%d: %level/%tag: %msg";
+
+    static final int TOKEN_LITERAL = 0;
+    static final int TOKEN_TIME = 1;
+    static final int TOKEN_LEVEL = 2;
+    static final int TOKEN_TAG = 3;
+    static final int TOKEN_THREAD = 4;
+    static final int TOKEN_MESSAGE = 5;
+
+    private static final String[] TOKEN_NAMES = {null, "d", "level", "tag", "thread", "msg"};
+
+    static final UELogLayout DEFAULT = compile(DEFAULT_PATTERN);
+
+    private final String mPattern;
+    final int[] mTokens;
+    //与mTokens对应，只有TOKEN_LITERAL有值
+    final String[] mLiterals;
+
+    private UELogLayout(String pattern, int[] tokens, String[] literals) {
+        mPattern = pattern;
+        mTokens = tokens;
+        mLiterals = literals;
+    }
+
+    /**
+     * 编译日志行格式
+     *
+     * @param pattern 格式字符串，例如{@link #DEFAULT_PATTERN}
+     * @return
+     * @throws IllegalArgumentException 包含不支持的占位符
+     */
+    public static UELogLayout compile(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern cannot be null");
+        }
+        List<Integer> tokens = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (pattern.startsWith("%", i + 1)) {
+                literal.append('%');
+                i += 2;
+                continue;
+            }
+            int token = matchToken(pattern, i + 1);
+            if (token < 0) {
+                throw new IllegalArgumentException("Unknown layout token at " + i + ": " + pattern);
+            }
+            if (literal.length() > 0) {
+                tokens.add(TOKEN_LITERAL);
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            tokens.add(token);
+            literals.add(null);
+            i += 1 + TOKEN_NAMES[token].length();
+        }
+        if (literal.length() > 0) {
+            tokens.add(TOKEN_LITERAL);
+            literals.add(literal.toString());
+        }
+        int[] tokenArray = new int[tokens.size()];
+        for (int j = 0; j < tokenArray.length; j++) {
+            tokenArray[j] = tokens.get(j);
+        }
+        return new UELogLayout(pattern, tokenArray, literals.toArray(new String[literals.size()]));
+    }
+
+    /**
+     * @return 匹配的最长占位符，没有匹配时返回-1
+     */
+    private static int matchToken(String pattern, int start) {
+        int result = -1;
+        for (int token = TOKEN_TIME; token < TOKEN_NAMES.length; token++) {
+            String name = TOKEN_NAMES[token];
+            if (pattern.startsWith(name, start) && (result < 0 || name.length() > TOKEN_NAMES[result].length())) {
+                result = token;
+            }
+        }
+        return result;
+    }
+
+    public String getPattern() {
+        return mPattern;
+    }
+
+    @Override
+    public String toString() {
+        return mPattern;
+    }
+}
@@ -0,0 +1,165 @@
+package com.ueueo.log;
+
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 按{@link UELogLayout}把日志直接编码为UTF-8字节
+ * <p>
+ * 每个线程一个实例，精确到秒的时间前缀只在跨秒时重新格式化，其余时间只写入毫秒部分
+ */
+final class UELogLineEncoder {
+
+    //按Log优先级索引的级别字母
+    private static final byte[] LEVEL_LETTERS = {'V', 'V', 'V', 'D', 'I', 'W', 'E', 'E'};
+
+    //编码缓冲区保留的最大容量，超过后释放，避免偶尔的超长日志一直占用内存
+    private static final int MAX_CAPACITY = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte[] LINE_END = {'\r', '\n'};
+
+    private final SimpleDateFormat mSecondFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final Date mDate = new Date();
+    private long mCachedSecond = Long.MIN_VALUE;
+    private final byte[] mSecondPrefix = new byte[19];
+    private int mSecondPrefixLength;
+
+    private byte[] mBytes = new byte[INITIAL_CAPACITY];
+    private ByteBuffer mBuffer = ByteBuffer.wrap(mBytes);
+    private int mPosition;
+
+    /**
+     * 编码一条日志，msg中的每一行都按格式输出为单独的一行，以\r\n结束
+     *
+     * @return 编码后的内容，position为0，limit为内容长度，下一次编码前有效
+     */
+    ByteBuffer encode(UELogLayout layout, int priority, String tag, String thread, CharSequence msg, long time) {
+        mPosition = 0;
+        byte level = priority >= 0 && priority < LEVEL_LETTERS.length ? LEVEL_LETTERS[priority] : (byte) 'V';
+        int[] tokens = layout.mTokens;
+        String[] literals = layout.mLiterals;
+        int length = msg.length();
+        int start = 0;
+        while (start <= length) {
+            int end = start;
+            while (end < length && msg.charAt(end) != '\n') {
+                end++;
+            }
+            for (int i = 0; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case UELogLayout.TOKEN_TIME:
+                        writeTime(time);
+                        break;
+                    case UELogLayout.TOKEN_LEVEL:
+                        ensureCapacity(1);
+                        mBytes[mPosition++] = level;
+                        break;
+                    case UELogLayout.TOKEN_TAG:
+                        writeUtf8(tag, 0, tag.length());
+                        break;
+                    case UELogLayout.TOKEN_THREAD:
+                        if (thread != null) {
+                            writeUtf8(thread, 0, thread.length());
+                        }
+                        break;
+                    case UELogLayout.TOKEN_MESSAGE:
+                        writeUtf8(msg, start, end);
+                        break;
+                    default:
+                        writeUtf8(literals[i], 0, literals[i].length());
+                        break;
+                }
+            }
+            writeBytes(LINE_END, LINE_END.length);
+            start = end + 1;
+        }
+        mBuffer.clear();
+        mBuffer.limit(mPosition);
+        return mBuffer;
+    }
+
+    /**
+     * 偶尔的超长日志之后释放缓冲区
+     */
+    void recycle() {
+        if (mBytes.length > MAX_CAPACITY) {
+            mBytes = new byte[INITIAL_CAPACITY];
+            mBuffer = ByteBuffer.wrap(mBytes);
+        }
+    }
+
+    /**
+     * 写入yyyy-MM-dd HH:mm:ss.SSS格式的时间
+     */
+    private void writeTime(long time) {
+        long second = time / 1000;
+        if (second != mCachedSecond) {
+            mDate.setTime(second * 1000);
+            String prefix = mSecondFormat.format(mDate);
+            mSecondPrefixLength = Math.min(prefix.length(), mSecondPrefix.length);
+            for (int i = 0; i < mSecondPrefixLength; i++) {
+                mSecondPrefix[i] = (byte) prefix.charAt(i);
+            }
+            mCachedSecond = second;
+        }
+        writeBytes(mSecondPrefix, mSecondPrefixLength);
+        int millis = (int) (time - second * 1000);
+        ensureCapacity(4);
+        mBytes[mPosition++] = '.';
+        mBytes[mPosition++] = (byte) ('0' + millis / 100);
+        mBytes[mPosition++] = (byte) ('0' + millis / 10 % 10);
+        mBytes[mPosition++] = (byte) ('0' + millis % 10);
+    }
+
+    private void writeBytes(byte[] bytes, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, 0, mBytes, mPosition, length);
+        mPosition += length;
+    }
+
+    /**
+     * 按UTF-8编码写入，不成对的代理字符写为'?'
+     */
+    private void writeUtf8(CharSequence text, int start, int end) {
+        //每个字符最多3个字节（代理对为2个字符4个字节）
+        ensureCapacity((end - start) * 3);
+        byte[] bytes = mBytes;
+        int position = mPosition;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | (c >> 6));
+                bytes[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xE0 | (c >> 12));
+                bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        mPosition = position;
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = mPosition + extra;
+        if (required <= mBytes.length) {
+            return;
+        }
+        int capacity = Math.max(mBytes.length * 2, required);
+        byte[] bytes = new byte[capacity];
+        System.arraycopy(mBytes, 0, bytes, 0, mPosition);
+        mBytes = bytes;
+        mBuffer = ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,114 @@
+package com.ueueo.log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志输出的运行统计
+ * <p>
+ * 所有计数都使用{@link UELogCounter}按线程分段累加，耗时记录在{@link UELogHistogram}中，记录时不加锁。
+ * 只在读取统计信息时才合计，参考{@link UELogStats}
+ */
+final class UELogMetrics {
+
+    //0到UELogLevel.NONE为各级别日志的数量，之后为被丢弃的日志数量
+    static final int NO_ROUTE = UELogLevel.NONE + 1;
+    static final int RATE_LIMITED = UELogLevel.NONE + 2;
+    static final int COLLAPSED = UELogLevel.NONE + 3;
+    static final int SAMPLED = UELogLevel.NONE + 4;
+    private static final int COUNTER_WIDTH = UELogLevel.NONE + 5;
+
+    private final UELogCounter mCounts = new UELogCounter(COUNTER_WIDTH);
+    private final UELogHistogram mLogLatency = new UELogHistogram();
+    private final ConcurrentHashMap<UELogTool, Sink> mSinks = new ConcurrentHashMap<>();
+
+    private volatile boolean mEnabled = true;
+    //定时输出统计日志的间隔，0表示不输出
+    private volatile long mReportIntervalMillis;
+    private final AtomicLong mNextReportMillis = new AtomicLong();
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    void setReportInterval(long intervalMillis) {
+        mReportIntervalMillis = intervalMillis;
+        mNextReportMillis.set(System.currentTimeMillis() + intervalMillis);
+    }
+
+    /**
+     * 到达输出统计日志的时间时返回true，多个线程同时判断时只有一个线程返回true
+     */
+    boolean shouldReport(long now) {
+        long interval = mReportIntervalMillis;
+        if (interval <= 0) {
+            return false;
+        }
+        long next = mNextReportMillis.get();
+        return now >= next && mNextReportMillis.compareAndSet(next, now + interval);
+    }
+
+    void count(int index) {
+        mCounts.increment(index);
+    }
+
+    long getCount(int index) {
+        return mCounts.sum(index);
+    }
+
+    void recordLogLatency(long nanos) {
+        mLogLatency.record(nanos);
+    }
+
+    UELogHistogram getLogLatency() {
+        return mLogLatency;
+    }
+
+    /**
+     * @return 日志工具的统计，日志工具被替换后重新添加时继续累计
+     */
+    Sink sink(UELogTool logTool) {
+        Sink sink = mSinks.get(logTool);
+        if (sink == null) {
+            sink = new Sink();
+            Sink previous = mSinks.putIfAbsent(logTool, sink);
+            if (previous != null) {
+                sink = previous;
+            }
+        }
+        return sink;
+    }
+
+    /**
+     * 一个日志工具的统计
+     */
+    static final class Sink {
+        private static final int CALLS = 0;
+        private static final int CHARS = 1;
+
+        private final UELogCounter mCounts = new UELogCounter(2);
+        private final UELogHistogram mLatency = new UELogHistogram();
+
+        void record(long nanos, int chars) {
+            mCounts.increment(CALLS);
+            mCounts.add(CHARS, chars);
+            mLatency.record(nanos);
+        }
+
+        long getCalls() {
+            return mCounts.sum(CALLS);
+        }
+
+        long getChars() {
+            return mCounts.sum(CHARS);
+        }
+
+        UELogHistogram getLatency() {
+            return mLatency;
+        }
+    }
+}
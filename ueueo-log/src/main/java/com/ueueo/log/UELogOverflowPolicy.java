@@ -0,0 +1,13 @@
+package com.ueueo.log;
+
+/**
+ * 异步日志缓冲区已满时的处理策略
+ */
+public class UELogOverflowPolicy {
+    //阻塞输出日志的线程，直到缓冲区有空闲位置
+    public static final int BLOCK = 1;
+    //丢弃缓冲区中最旧的一条日志，为当前日志腾出位置
+    public static final int DROP_OLDEST = 2;
+    //丢弃当前要输出的日志
+    public static final int DROP_NEWEST = 3;
+}
@@ -3,26 +3,17 @@ package com.ueueo.log;
 import android.text.TextUtils;
 import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 日志打印机
@@ -32,35 +23,33 @@ import javax.xml.transform.stream.StreamSource;
 public final class UELogPrinter {
 
     /**
-     * Json缩紧
+     * 等待异步日志输出完成的最长时间
      */
-    private static final int JSON_INDENT = 4;
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
 
     /**
-     * The minimum stack trace index, starts at this class after two native calls.
+     * 分段输出长文本时每段的最大字符数
      */
-    private static final int MIN_STACK_OFFSET = 3;
+    private static final int STREAM_PIECE_CHARS = 8 * 1024;
 
     /**
-     * Drawing toolbox
+     * 定时输出统计信息的Tag
      */
-    private static final char TOP_LEFT_CORNER = '╔';
-    private static final char BOTTOM_LEFT_CORNER = '╚';
-    private static final char MIDDLE_CORNER = '╟';
-    private static final char HORIZONTAL_DOUBLE_LINE = '║';
-    private static final String DOUBLE_DIVIDER = "════════════════════════════════════════════";
-    private static final String SINGLE_DIVIDER = "────────────────────────────────────────────";
-    private static final String TOP_BORDER = TOP_LEFT_CORNER + DOUBLE_DIVIDER + DOUBLE_DIVIDER;
-    private static final String BOTTOM_BORDER = BOTTOM_LEFT_CORNER + DOUBLE_DIVIDER + DOUBLE_DIVIDER;
-    private static final String MIDDLE_BORDER = MIDDLE_CORNER + SINGLE_DIVIDER + SINGLE_DIVIDER;
+    private static final String STATS_TAG = "UELogStats";
+
     /**
-     * Localize single tag and method count for each thread
+     * 每个线程复用的调用信息，保存链式调用的设置和用来采集日志信息的事件
      */
-    private final ThreadLocal<String> localTag = new ThreadLocal<>();
-    private final ThreadLocal<Integer> localMethodCount = new ThreadLocal<>();
-    private final ThreadLocal<Boolean> localIsPrintToFile = new ThreadLocal<>();
+    private final ThreadLocal<UELogCall> localCall = new ThreadLocal<>();
+    //有链式调用设置还没有被日志使用的线程数量，为0时过滤掉的日志不需要读取ThreadLocal
+    private final AtomicInteger mPendingCalls = new AtomicInteger();
 
-    private final ThreadLocal<List<String>> localMessageList = new ThreadLocal<>();
+    /**
+     * 异步模式下的日志分发器，第一次输出异步日志时创建
+     */
+    private volatile UELogDispatcher mDispatcher;
+    //已关闭的分发器丢弃的日志数量
+    private final AtomicLong mDroppedCount = new AtomicLong();
 
     /**
      * It is used to determine log settings such as method count, thread info visibility
@@ -69,18 +58,33 @@ public final class UELogPrinter {
 
     public UELogPrinter tag(String tag) {
         if (tag != null) {
-            localTag.set(tag);
+            getPendingCall().tag = tag;
         }
         return this;
     }
 
     public UELogPrinter method(int methodCount) {
-        localMethodCount.set(methodCount);
+        getPendingCall().methodCount = methodCount;
+        return this;
+    }
+
+    /**
+     * 指定当前这条日志的调用位置，不再获取方法调用栈
+     * <p>
+     * 可以由编译期插桩或代码生成传入"类名.方法名  (文件名:行号)"形式的常量，避免运行时获取调用栈的开销
+     *
+     * @param caller 调用位置
+     * @return
+     */
+    public UELogPrinter caller(String caller) {
+        if (caller != null) {
+            getPendingCall().caller = caller;
+        }
         return this;
     }
 
     public UELogPrinter file(boolean isPrintToFile) {
-        localIsPrintToFile.set(isPrintToFile);
+        getPendingCall().printToFile = isPrintToFile ? 1 : 0;
         return this;
     }
 
@@ -88,308 +92,1072 @@ public final class UELogPrinter {
         return mLogConfig;
     }
 
+    /**
+     * 拼接的内容在日志确定输出后才格式化，参数在输出前不要修改
+     */
     public UELogPrinter append(String message, Object... args) {
-        String msg = createMessage(message, args);
-        if (!TextUtils.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
+        getPendingCall().append(UELogCall.APPEND_TEXT, message, args);
         return this;
     }
 
     public UELogPrinter appendJson(String json) {
-        String msg = parseJsonMessage(json);
-        if (!TextUtils.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
+        getPendingCall().append(UELogCall.APPEND_JSON, json, null);
         return this;
     }
 
     public UELogPrinter appendXml(String xml) {
-        String msg = parseXmlMessage(xml);
-        if (!TextUtils.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
+        getPendingCall().append(UELogCall.APPEND_XML, xml, null);
         return this;
     }
 
     public UELogPrinter appendObject(Object obj) {
-        String msg = parseObjectMessage(obj);
-        if (!TextUtils.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
+        getPendingCall().append(UELogCall.APPEND_OBJECT, null, obj);
         return this;
     }
 
+    public void d(String message) {
+        log(UELogLevel.DEBUG, message);
+    }
+
+    public void d(String message, Object arg) {
+        log(UELogLevel.DEBUG, message, arg);
+    }
+
+    public void d(String message, Object arg0, Object arg1) {
+        log(UELogLevel.DEBUG, message, arg0, arg1);
+    }
+
     public void d(String message, Object... args) {
-        log(UELogLevel.DEBUG, message, args);
+        log(UELogLevel.DEBUG, (Throwable) null, message, args);
+    }
+
+    public void dLazy(UELogSupplier supplier) {
+        log(UELogLevel.DEBUG, supplier);
+    }
+
+    public void e(String message) {
+        log(UELogLevel.ERROR, message);
+    }
+
+    public void e(String message, Object arg) {
+        log(UELogLevel.ERROR, message, arg);
+    }
+
+    public void e(String message, Object arg0, Object arg1) {
+        log(UELogLevel.ERROR, message, arg0, arg1);
     }
 
     public void e(String message, Object... args) {
-        e(null, message, args);
+        log(UELogLevel.ERROR, (Throwable) null, message, args);
+    }
+
+    public void eLazy(UELogSupplier supplier) {
+        log(UELogLevel.ERROR, supplier);
     }
 
     public void e(Throwable throwable, String message, Object... args) {
-        if (throwable != null && message != null) {
-            message += " : " + Log.getStackTraceString(throwable);
-        }
-        if (throwable != null && message == null) {
-            message = throwable.toString();
-        }
-        if (message == null) {
-            message = "No message/exception is set";
-        }
-        log(UELogLevel.ERROR, message, args);
+        log(UELogLevel.ERROR, throwable, message, args);
+    }
+
+    public void w(String message) {
+        log(UELogLevel.WARN, message);
+    }
+
+    public void w(String message, Object arg) {
+        log(UELogLevel.WARN, message, arg);
+    }
+
+    public void w(String message, Object arg0, Object arg1) {
+        log(UELogLevel.WARN, message, arg0, arg1);
     }
 
     public void w(String message, Object... args) {
-        log(UELogLevel.WARN, message, args);
+        log(UELogLevel.WARN, (Throwable) null, message, args);
+    }
+
+    public void wLazy(UELogSupplier supplier) {
+        log(UELogLevel.WARN, supplier);
+    }
+
+    public void i(String message) {
+        log(UELogLevel.INFO, message);
+    }
+
+    public void i(String message, Object arg) {
+        log(UELogLevel.INFO, message, arg);
+    }
+
+    public void i(String message, Object arg0, Object arg1) {
+        log(UELogLevel.INFO, message, arg0, arg1);
     }
 
     public void i(String message, Object... args) {
-        log(UELogLevel.INFO, message, args);
+        log(UELogLevel.INFO, (Throwable) null, message, args);
+    }
+
+    public void iLazy(UELogSupplier supplier) {
+        log(UELogLevel.INFO, supplier);
+    }
+
+    public void v(String message) {
+        log(UELogLevel.VERBOSE, message);
+    }
+
+    public void v(String message, Object arg) {
+        log(UELogLevel.VERBOSE, message, arg);
+    }
+
+    public void v(String message, Object arg0, Object arg1) {
+        log(UELogLevel.VERBOSE, message, arg0, arg1);
     }
 
     public void v(String message, Object... args) {
-        log(UELogLevel.VERBOSE, message, args);
+        log(UELogLevel.VERBOSE, (Throwable) null, message, args);
+    }
+
+    public void vLazy(UELogSupplier supplier) {
+        log(UELogLevel.VERBOSE, supplier);
+    }
+
+    public void wtf(String message) {
+        log(UELogLevel.ASSERT, message);
+    }
+
+    public void wtf(String message, Object arg) {
+        log(UELogLevel.ASSERT, message, arg);
+    }
+
+    public void wtf(String message, Object arg0, Object arg1) {
+        log(UELogLevel.ASSERT, message, arg0, arg1);
     }
 
     public void wtf(String message, Object... args) {
-        log(UELogLevel.ASSERT, message, args);
+        log(UELogLevel.ASSERT, (Throwable) null, message, args);
     }
 
-    public void json(String json) {
-        d(parseJsonMessage(json));
+    public void wtfLazy(UELogSupplier supplier) {
+        log(UELogLevel.ASSERT, supplier);
     }
 
     /**
      * Formats the json content and print it
+     * <p>
+     * Json在输出时才格式化，直接写入日志的排版缓冲区，开启异步输出时在后台线程中格式化
+     *
+     * @param json the json content
+     */
+    public void json(String json) {
+        if (!mLogConfig.isLoggable(UELogLevel.DEBUG)) {
+            discardCall();
+            return;
+        }
+        if (TextUtils.isEmpty(json)) {
+            d("Empty/Null json content");
+            return;
+        }
+        UELogEvent event = obtainEvent(UELogLevel.DEBUG, null);
+        if (event == null) {
+            return;
+        }
+        event.message = json;
+        event.contentType = UELogEvent.CONTENT_JSON;
+        publish(event);
+    }
+
+    /**
+     * Formats the xml content and print it
+     * <p>
+     * Xml在输出时才格式化，直接写入日志的排版缓冲区，开启异步输出时在后台线程中格式化
      *
      * @param xml the xml content
      */
     public void xml(String xml) {
-        d(parseXmlMessage(xml));
+        if (!mLogConfig.isLoggable(UELogLevel.DEBUG)) {
+            discardCall();
+            return;
+        }
+        if (TextUtils.isEmpty(xml)) {
+            d("Empty/Null xml content");
+            return;
+        }
+        UELogEvent event = obtainEvent(UELogLevel.DEBUG, null);
+        if (event == null) {
+            return;
+        }
+        event.message = xml;
+        event.contentType = UELogEvent.CONTENT_XML;
+        publish(event);
     }
 
     /**
      * Formats the obj content and print it
+     * <p>
+     * 对象在输出时才序列化，直接写入日志的排版缓冲区。开启异步输出时在后台线程中序列化，输出前不要修改对象
      *
-     * @param obj the xml content
+     * @param obj the object
      */
     public void object(Object obj) {
-        d(parseObjectMessage(obj));
+        if (!mLogConfig.isLoggable(UELogLevel.DEBUG)) {
+            discardCall();
+            return;
+        }
+        if (obj == null) {
+            d("Null object content");
+            return;
+        }
+        UELogEvent event = obtainEvent(UELogLevel.DEBUG, obj.getClass());
+        if (event == null) {
+            return;
+        }
+        event.payload = obj;
+        event.contentType = UELogEvent.CONTENT_OBJECT;
+        publish(event);
     }
 
     /**
-     * This method is synchronized in order to avoid messy of logs' order.
+     * 分段输出很长的文本，每段最多{@link #STREAM_PIECE_CHARS}个字符，作为一条日志输出，不会把全部内容复制为一个字符串
+     * <p>
+     * 每段的内容前面带有序号，例如<code>[part 1]</code>，最后一段带有总段数，例如<code>[part 3/3]</code>。
+     * 路由、限流和采样按第一段判断，被丢弃时不再读取之后的内容
+     *
+     * @param logType 参考：{@link UELogLevel}
+     * @param content 文本内容，输出前不要修改
      */
-    private synchronized void log(int logType, String msg, Object... args) {
-        if (logType < mLogConfig.getLogLevel()) {
+    public void stream(int logType, CharSequence content) {
+        if (content == null) {
+            log(logType, "Null stream content");
             return;
         }
-        String tag = getTag();
-        boolean isPrintToFile = getIsPrintToFile();
-        if (mLogConfig.isShowThreadInfo()) {
-            tag += "[" + Thread.currentThread().getName() + "]";
+        stream(logType, new CharSequenceReader(content));
+    }
+
+    /**
+     * 从reader中分段读取并输出很长的文本，参考{@link #stream(int, CharSequence)}
+     * <p>
+     * 在调用线程中读取，读取完后不会关闭reader
+     *
+     * @param logType 参考：{@link UELogLevel}
+     * @param reader  文本内容
+     */
+    public void stream(int logType, Reader reader) {
+        if (!mLogConfig.isLoggable(logType)) {
+            discardCall();
+            return;
+        }
+        if (reader == null) {
+            log(logType, "Null stream content");
+            return;
+        }
+        UELogEvent event = obtainEvent(logType, null);
+        if (event == null) {
+            return;
+        }
+        //读取时reader可能在同一线程中输出日志，先格式化拼接的内容
+        formatAppends(event);
+        //之后的每一段使用和第一段相同的Tag、级别和时间，不再经过限流和采样
+        UELogEvent template = createNote(event, null);
+        template.sampleRate = event.sampleRate;
+        char[] buffer = new char[STREAM_PIECE_CHARS];
+        int count = 0;
+        int part = 0;
+        String pending = null;
+        String error = null;
+        boolean eof = false;
+        try {
+            while (true) {
+                while (!eof && count < buffer.length) {
+                    try {
+                        int n = reader.read(buffer, count, buffer.length - count);
+                        if (n < 0) {
+                            eof = true;
+                        } else {
+                            count += n;
+                        }
+                    } catch (IOException e) {
+                        error = e.toString();
+                        eof = true;
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                //优先在后半段的最后一个换行处分段，不拆分代理对
+                int end = count;
+                int next = count;
+                if (!eof) {
+                    for (int i = count - 1; i >= count / 2; i--) {
+                        if (buffer[i] == '\n') {
+                            end = i;
+                            next = i + 1;
+                            break;
+                        }
+                    }
+                    if (end == count && Character.isHighSurrogate(buffer[count - 1])) {
+                        end = count - 1;
+                        next = end;
+                    }
+                }
+                String piece = new String(buffer, 0, end);
+                System.arraycopy(buffer, next, buffer, 0, count - next);
+                count -= next;
+                if (pending != null) {
+                    part++;
+                    if (!publishPiece(event, template, "[part " + part + "] " + pending, part)) {
+                        return;
+                    }
+                }
+                pending = piece;
+            }
+            part++;
+            if (pending == null) {
+                pending = "";
+            }
+            String message = part == 1 && error == null ? pending : "[part " + part + "/" + part + "] " + pending;
+            if (error != null) {
+                message += "\nRead stream failed : " + error;
+            }
+            publishPiece(event, template, message, part);
+        } finally {
+            if (part == 0 && event.inUse) {
+                //读取时出现异常，第一段还没有输出
+                finish(event);
+            }
         }
-        String message = createMessage(msg, args);
-        int methodCount = getMethodCount();
+    }
 
-        if (TextUtils.isEmpty(message)) {
-            message = "Empty/NULL log message";
+    /**
+     * 第一段经过路由和限流后输出，之后的每一段直接输出
+     *
+     * @return 是否继续输出之后的内容
+     */
+    private boolean publishPiece(UELogEvent event, UELogEvent template, String message, int part) {
+        if (part == 1) {
+            event.message = message;
+            return publish(event);
         }
+        UELogEvent piece = createNote(template, message);
+        piece.sampleRate = template.sampleRate;
+        output(piece);
+        return true;
+    }
 
-        List<String> appendMsgList = localMessageList.get();
-        localMessageList.remove();
+    private void log(int logType, String msg) {
+        if (!mLogConfig.isLoggable(logType)) {
+            discardCall();
+            return;
+        }
+        UELogEvent event = obtainEvent(logType, msg);
+        if (event == null) {
+            return;
+        }
+        event.message = msg;
+        publish(event);
+    }
 
-        if (methodCount <= 0 && (appendMsgList == null || appendMsgList.size() == 0) && !message.contains(System.getProperty("line.separator"))) {
-            //如果只是单行日志，则不加边框直接输出
-            logChunk(logType, tag, message, isPrintToFile);
+    private void log(int logType, String msg, Object arg) {
+        if (!mLogConfig.isLoggable(logType)) {
+            discardCall();
+            return;
+        }
+        UELogEvent event = obtainEvent(logType, msg);
+        if (event == null) {
+            return;
+        }
+        event.message = msg;
+        event.argCount = 1;
+        event.arg0 = arg;
+        publish(event);
+    }
+
+    private void log(int logType, String msg, Object arg0, Object arg1) {
+        if (!mLogConfig.isLoggable(logType)) {
+            discardCall();
+            return;
+        }
+        UELogEvent event = obtainEvent(logType, msg);
+        if (event == null) {
+            return;
+        }
+        event.message = msg;
+        event.argCount = 2;
+        event.arg0 = arg0;
+        event.arg1 = arg1;
+        publish(event);
+    }
+
+    private void log(int logType, Throwable throwable, String msg, Object[] args) {
+        if (!mLogConfig.isLoggable(logType)) {
+            discardCall();
+            return;
+        }
+        UELogEvent event = obtainEvent(logType, msg);
+        if (event == null) {
+            return;
+        }
+        event.throwable = throwable;
+        event.message = msg;
+        event.argCount = args != null ? args.length : 0;
+        event.args = args;
+        publish(event);
+    }
+
+    private void log(int logType, UELogSupplier supplier) {
+        if (!mLogConfig.isLoggable(logType)) {
+            discardCall();
+            return;
+        }
+        UELogEvent event = obtainEvent(logType, supplier != null ? supplier.getClass() : null);
+        if (event == null) {
+            return;
+        }
+        event.supplier = supplier;
+        publish(event);
+    }
+
+    /**
+     * 在调用线程中采集日志的公共信息，日志内容由调用方填充
+     *
+     * @param site 采样时区分调用位置，调用方指定了调用位置时使用指定的位置
+     * @return 没有被采样时返回null，日志的内容不需要再处理
+     */
+    private UELogEvent obtainEvent(int logType, Object site) {
+        UELogCall call = getCall();
+        //链式调用的设置由这条日志使用，之后都会被清空
+        clearPending(call);
+        UELogEvent event = call.event;
+        if (event.inUse) {
+            //日志工具输出时又在同一线程中输出日志
+            event = new UELogEvent();
+        }
+        event.inUse = true;
+        event.startNanos = mLogConfig.getMetrics().isEnabled() ? System.nanoTime() : 0;
+        event.level = logType;
+        event.tag = getTag(call);
+        event.printToFile = call.printToFile >= 0 ? call.printToFile == 1 : mLogConfig.isPrintToFile();
+        event.threadName = Thread.currentThread().getName();
+        event.timeMillis = System.currentTimeMillis();
+        event.methodCount = call.methodCount != UELogCall.UNSET ? call.methodCount : mLogConfig.getMethodCount();
+        String caller = call.caller;
+        if (event.methodCount < 0) {
+            call.reset();
+            finish(event);
+            throw new IllegalStateException("methodCount cannot be negative");
+        }
+        UELogSampler sampler = mLogConfig.getSampler();
+        if (sampler != null) {
+            //在获取调用栈和格式化之前采样
+            event.sampleRate = sampler.sample(logType, event.tag, caller != null ? caller : site);
+            if (event.sampleRate == 0) {
+                call.reset();
+                UELogMetrics metrics = mLogConfig.getMetrics();
+                metrics.count(Math.max(0, Math.min(logType, UELogLevel.NONE)));
+                metrics.count(UELogMetrics.SAMPLED);
+                finish(event);
+                return null;
+            }
+        }
+        if (caller != null) {
+            //调用位置已由调用方指定，不需要获取调用栈
+            event.callerFrames = event.frames(1);
+            event.callerFrames[0] = caller;
+            event.callerFrameCount = event.methodCount > 0 ? 1 : 0;
+        } else if (event.methodCount > 0) {
+            event.callerFrames = UELogCaller.capture(event.methodCount, event.callerFrames);
+            event.callerFrameCount = event.methodCount;
         } else {
-            logTopBorder(logType, tag, isPrintToFile);
-            logHeaderContent(logType, tag, methodCount, isPrintToFile);
+            event.callerFrameCount = 0;
+        }
+        if (call.appendCount > 0) {
+            //拼接的内容保留在线程的调用信息中，经过路由和过滤后才格式化
+            event.pendingAppends = call;
+        }
+        call.resetOptions();
+        return event;
+    }
+
+    private UELogCall getCall() {
+        UELogCall call = localCall.get();
+        if (call == null) {
+            call = new UELogCall();
+            localCall.set(call);
+        }
+        return call;
+    }
+
+    /**
+     * 链式调用设置日志选项或拼接内容时获取线程的调用信息，并标记为有未使用的设置
+     */
+    private UELogCall getPendingCall() {
+        UELogCall call = getCall();
+        if (!call.pending) {
+            call.pending = true;
+            mPendingCalls.incrementAndGet();
+        }
+        return call;
+    }
+
+    private void clearPending(UELogCall call) {
+        if (call.pending) {
+            call.pending = false;
+            mPendingCalls.decrementAndGet();
+        }
+    }
+
+    /**
+     * 日志不输出时清空链式调用的设置，避免影响这个线程的下一条日志
+     * <p>
+     * 没有任何线程有未使用的设置时直接返回，过滤掉的日志只需要读取一次计数
+     */
+    private void discardCall() {
+        if (mPendingCalls.get() == 0) {
+            return;
+        }
+        UELogCall call = localCall.get();
+        if (call != null && call.pending) {
+            clearPending(call);
+            call.reset();
+        }
+    }
+
+    /**
+     * 格式化日志还没有格式化的拼接内容
+     */
+    private void formatAppends(UELogEvent event) {
+        UELogCall call = event.pendingAppends;
+        if (call != null) {
+            event.pendingAppends = null;
+            event.appendMessages = formatAppends(call);
+        }
+    }
 
-            if (methodCount > 0) {
-                logDivider(logType, tag, isPrintToFile);
+    /**
+     * 日志确定输出后格式化拼接的内容
+     */
+    private List<String> formatAppends(UELogCall call) {
+        int count = call.appendCount;
+        //格式化对象时可能在同一线程中输出日志，先取出拼接的内容
+        int[] kinds = call.appendKinds;
+        String[] messages = call.appendMessages;
+        Object[] payloads = call.appendPayloads;
+        call.appendCount = 0;
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String msg;
+            switch (kinds[i]) {
+                case UELogCall.APPEND_JSON:
+                    msg = parseJsonMessage(messages[i]);
+                    break;
+                case UELogCall.APPEND_XML:
+                    msg = parseXmlMessage(messages[i]);
+                    break;
+                case UELogCall.APPEND_OBJECT:
+                    msg = parseObjectMessage(payloads[i]);
+                    break;
+                default:
+                    msg = createMessage(messages[i], (Object[]) payloads[i]);
+                    break;
             }
+            if (!TextUtils.isEmpty(msg)) {
+                result.add(msg);
+            }
+            messages[i] = null;
+            payloads[i] = null;
+        }
+        return result.isEmpty() ? null : result;
+    }
 
-            if (appendMsgList != null && appendMsgList.size() > 0) {
-                for (String appendMsg : appendMsgList) {
-                    logContent(logType, tag, appendMsg, isPrintToFile);
-                    logDivider(logType, tag, isPrintToFile);
-                }
+    /**
+     * 经过路由、限流和重复日志合并后输出
+     *
+     * @return 日志是否被输出
+     */
+    private boolean publish(UELogEvent event) {
+        UELogMetrics metrics = mLogConfig.getMetrics();
+        metrics.count(Math.max(0, Math.min(event.level, UELogLevel.NONE)));
+        if (mLogConfig.getRouter().route(event.level, event.printToFile).length == 0) {
+            //没有日志工具输出这条日志，不需要格式化
+            metrics.count(UELogMetrics.NO_ROUTE);
+            finish(event);
+            return false;
+        }
+        UELogFilter filter = mLogConfig.getFilter();
+        if (filter != null) {
+            long result = filter.accept(event);
+            if (result < 0) {
+                metrics.count(result == UELogFilter.REJECT_DUPLICATE ? UELogMetrics.COLLAPSED : UELogMetrics.RATE_LIMITED);
+                finish(event);
+                return false;
+            }
+            int repeated = (int) (result >>> 32);
+            int dropped = (int) result;
+            if (repeated > 0) {
+                output(createNote(event, "Previous log repeated " + repeated + " times"));
             }
-            logContent(logType, tag, message, isPrintToFile);
-            logBottomBorder(logType, tag, isPrintToFile);
+            if (dropped > 0) {
+                output(createNote(event, dropped + " similar logs were suppressed by rate limit"));
+            }
+        }
+        formatAppends(event);
+        output(event);
+        finish(event);
+        return true;
+    }
+
+    /**
+     * 释放调用线程的事件，记录日志输出的耗时，到达时间时输出统计信息
+     */
+    private void finish(UELogEvent event) {
+        long start = event.startNanos;
+        long time = event.timeMillis;
+        UELogCall call = event.pendingAppends;
+        if (call != null) {
+            //日志被过滤，拼接的内容不需要格式化
+            call.clearAppends(call.appendCount);
         }
+        event.reset();
+        event.inUse = false;
+        UELogMetrics metrics = mLogConfig.getMetrics();
+        if (start != 0) {
+            metrics.recordLogLatency(System.nanoTime() - start);
+        }
+        if (metrics.shouldReport(time)) {
+            logStats();
+        }
+    }
+
+    /**
+     * 创建限流和合并的提示日志，和被过滤的日志使用相同的Tag和级别
+     */
+    private UELogEvent createNote(UELogEvent event, String message) {
+        UELogEvent note = new UELogEvent();
+        note.level = event.level;
+        note.tag = event.tag;
+        note.printToFile = event.printToFile;
+        note.threadName = event.threadName;
+        note.timeMillis = event.timeMillis;
+        note.message = message;
+        return note;
     }
 
-    private void logTopBorder(int logType, String tag, boolean printToFile) {
-        logChunk(logType, tag, TOP_BORDER, printToFile);
+    /**
+     * 同步模式下直接输出，异步模式下放入分发器的缓冲区
+     */
+    private void output(UELogEvent event) {
+        UELogDispatcher dispatcher = getDispatcher();
+        if (dispatcher == null || dispatcher.isDispatchThread() || !dispatcher.enqueue(event)) {
+            //同步模式下不持有全局锁，在调用线程中排版到线程自己的事件缓冲区，每个日志工具保证整条日志不被其他线程打断
+            dispatch(event);
+        }
+    }
+
+    /**
+     * 格式化日志事件并输出到各个日志工具
+     * <p>
+     * 同步模式下在调用线程中并发执行，异步模式下只在分发线程中执行
+     */
+    void dispatch(UELogEvent event) {
+        dispatch(event, false);
     }
 
-    private void logHeaderContent(int logType, String tag, int methodCount, boolean printToFile) {
-        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-        String level = "";
+    /**
+     * 输出{@link UERingLogTool}中保存的日志，不再输出到环形缓冲区和{@link UEIndexedLogTool}
+     */
+    void replay(UELogEvent event) {
+        dispatch(event, true);
+    }
 
-        int stackOffset = getStackOffset(trace);
+    private void dispatch(UELogEvent event, boolean replay) {
+        UELogRouter.Sink[] sinks = mLogConfig.getRouter().route(event.level, event.printToFile);
+        boolean timed = mLogConfig.getMetrics().isEnabled();
+        boolean rendered = false;
+        for (UELogRouter.Sink sink : sinks) {
+            if (sink.mTagged && !sink.accept(event.level, event.tag)) {
+                continue;
+            }
+            if (sink.mMessageOnly) {
+                if (replay) {
+                    continue;
+                }
+                //只需要格式化后的日志内容，不需要排版
+                if (event.displayTag == null) {
+                    format(event);
+                }
+            } else if (!rendered) {
+                render(event);
+                rendered = true;
+            }
+            long start = timed ? System.nanoTime() : 0;
+            if (sink.mEventTool) {
+                ((UELogEventTool) sink.mLogTool).log(event);
+                if (sink.mBatchCapable) {
+                    //同步模式下每条日志就是一批
+                    sink.mBatchTool.endBatch();
+                }
+            } else {
+                UELogBatchAdapter.logLines(sink.mLogTool, event);
+            }
+            if (timed) {
+                sink.mMetrics.record(System.nanoTime() - start, outputLength(sink, event));
+            }
+        }
+    }
 
-        //corresponding method count with the current stack may exceeds the stack trace. Trims the count
-        if (methodCount + stackOffset > trace.length) {
-            methodCount = trace.length - stackOffset - 1;
+    /**
+     * 按批输出日志事件，只在异步模式的分发线程中执行
+     * <p>
+     * 先为每条日志选出要输出的日志工具并完成排版，再把每个日志工具的日志一次交给它输出，
+     * 没有实现{@link UELogBatchTool}的日志工具通过{@link UELogBatchAdapter}逐条输出
+     */
+    void dispatchBatch(UELogEvent[] events, int count) {
+        if (count == 1) {
+            dispatch(events[0], false);
+            return;
+        }
+        UELogRouter router = mLogConfig.getRouter();
+        UELogRouter.Sink[] sinks = router.getSinks();
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    prepareBatch(router, events[i]);
+                } catch (RuntimeException e) {
+                    //一条日志排版出错不能影响同一批的其他日志
+                }
+            }
+            boolean timed = mLogConfig.getMetrics().isEnabled();
+            for (UELogRouter.Sink sink : sinks) {
+                List<UELogEvent> pending = sink.mPending;
+                if (pending.isEmpty()) {
+                    continue;
+                }
+                long start = timed ? System.nanoTime() : 0;
+                try {
+                    sink.mBatchTool.logBatch(pending);
+                    sink.mBatchTool.endBatch();
+                } catch (RuntimeException e) {
+                    //某个日志工具出错不能影响其他日志工具的输出
+                }
+                if (timed) {
+                    //按批输出时每条日志的耗时取平均值
+                    long nanos = (System.nanoTime() - start) / pending.size();
+                    for (int i = 0, size = pending.size(); i < size; i++) {
+                        sink.mMetrics.record(nanos, outputLength(sink, pending.get(i)));
+                    }
+                }
+            }
+        } finally {
+            for (UELogRouter.Sink sink : sinks) {
+                sink.mPending.clear();
+            }
         }
+    }
 
-        for (int i = methodCount; i > 0; i--) {
-            int stackIndex = i + stackOffset;
-            if (stackIndex >= trace.length) {
+    /**
+     * 格式化和排版一条日志，并放入要输出的日志工具的待输出列表
+     */
+    private void prepareBatch(UELogRouter router, UELogEvent event) {
+        boolean rendered = false;
+        for (UELogRouter.Sink sink : router.route(event.level, event.printToFile)) {
+            if (sink.mTagged && !sink.accept(event.level, event.tag)) {
                 continue;
             }
-            StringBuilder builder = new StringBuilder();
-            builder.append("║ ")
-                    .append(level)
-                    .append(getSimpleClassName(trace[stackIndex].getClassName()))
-                    .append(".")
-                    .append(trace[stackIndex].getMethodName())
-                    .append(" ")
-                    .append(" (")
-                    .append(trace[stackIndex].getFileName())
-                    .append(":")
-                    .append(trace[stackIndex].getLineNumber())
-                    .append(")");
-            level += "   ";
-            logChunk(logType, tag, builder.toString(), printToFile);
-        }
-    }
-
-    private void logBottomBorder(int logType, String tag, boolean printToFile) {
-        logChunk(logType, tag, BOTTOM_BORDER, printToFile);
-    }
-
-    private void logDivider(int logType, String tag, boolean printToFile) {
-        logChunk(logType, tag, MIDDLE_BORDER, printToFile);
-    }
-
-    private void logContent(int logType, String tag, String chunk, boolean printToFile) {
-        String[] lines = chunk.split(System.getProperty("line.separator"));
-        for (String line : lines) {
-            logChunk(logType, tag, HORIZONTAL_DOUBLE_LINE + " " + line, printToFile);
-        }
-    }
-
-    private void logChunk(int logType, String tag, String chunk, boolean printToFile) {
-        List<UELogTool> logTools = mLogConfig.getLogToolList();
-        for (UELogTool logTool : logTools) {
-            if (!(logTool instanceof UEFileLogTool) || printToFile) {
-                switch (logType) {
-                    case UELogLevel.ERROR:
-                        logTool.e(tag, chunk);
-                        break;
-                    case UELogLevel.INFO:
-                        logTool.i(tag, chunk);
-                        break;
-                    case UELogLevel.VERBOSE:
-                        logTool.v(tag, chunk);
-                        break;
-                    case UELogLevel.WARN:
-                        logTool.w(tag, chunk);
-                        break;
-                    case UELogLevel.ASSERT:
-                        logTool.wtf(tag, chunk);
-                        break;
-                    case UELogLevel.DEBUG:
-                        logTool.d(tag, chunk);
-                        break;
-                    default:
-                        logTool.v(tag, chunk);
-                        break;
+            if (sink.mMessageOnly) {
+                if (event.displayTag == null) {
+                    format(event);
                 }
+            } else if (!rendered) {
+                render(event);
+                rendered = true;
             }
+            sink.mPending.add(event);
         }
+    }
 
+    private static int outputLength(UELogRouter.Sink sink, UELogEvent event) {
+        return sink.mMessageOnly ? event.formattedMessage.length() : event.rendered.length();
     }
 
-    private String getSimpleClassName(String name) {
-        int lastIndex = name.lastIndexOf(".");
-        return name.substring(lastIndex + 1);
+    /**
+     * 格式化日志内容，对象日志序列化后的文本同时保存在message中
+     */
+    private void format(UELogEvent event) {
+        String tag = event.tag;
+        if (mLogConfig.isShowThreadInfo()) {
+            tag += "[" + event.threadName + "]";
+        }
+        event.displayTag = tag;
+        event.rendered.setLength(0);
+        String sampleNote = event.sampleRate > 1 ? "[sampled 1/" + event.sampleRate + "]" : null;
+        if (sampleNote != null && event.contentType != UELogEvent.CONTENT_TEXT) {
+            //Json、Xml和对象日志的采样率作为拼接的内容输出，拼接内容的列表可能和其他事件共用，不能直接修改
+            List<String> appendMessages = new ArrayList<>();
+            if (event.appendMessages != null) {
+                appendMessages.addAll(event.appendMessages);
+            }
+            appendMessages.add(sampleNote);
+            event.appendMessages = appendMessages;
+        }
+        if (event.contentType == UELogEvent.CONTENT_OBJECT) {
+            //对象序列化为不带边框的文本，排版时再加上边框，借用排版缓冲区避免创建新的缓冲区
+            StringBuilder out = event.rendered;
+            if (!UEObjectFormatter.format(event.payload, mLogConfig, out, "\n")) {
+                out.setLength(0);
+                out.append("Invalid object content");
+            }
+            event.message = out.toString();
+            out.setLength(0);
+            event.formattedMessage = sampleNote != null ? sampleNote + " " + event.message : event.message;
+            return;
+        }
+        String message = event.contentType == UELogEvent.CONTENT_TEXT ? createMessage(event) : event.message;
+        if (TextUtils.isEmpty(message)) {
+            message = "Empty/NULL log message";
+        }
+        //只输出日志内容的日志工具使用formattedMessage，Json和Xml排版时使用原始内容
+        event.formattedMessage = sampleNote != null ? sampleNote + " " + message : message;
     }
 
     /**
-     * @return the appropriate tag based on local or global
+     * 格式化日志内容，并将整条日志排版到事件的缓冲区中
      */
-    private String getTag() {
-        String tag = localTag.get();
-        if (!TextUtils.isEmpty(tag)) {
-            localTag.remove();
-            return tag;
+    private void render(UELogEvent event) {
+        if (event.displayTag == null) {
+            format(event);
         }
-        tag = mLogConfig.getTag();
-        if (!TextUtils.isEmpty(tag)) {
-            return tag;
-        } else {
-            return UELogConfig.DEFAULT_TAG;
+        if (event.contentType == UELogEvent.CONTENT_OBJECT) {
+            //对象日志总是带边框，内容为format(UELogEvent)序列化后的文本
+            StringBuilder out = event.rendered;
+            UELogRenderer.beginBlock(out, event.appendMessages, event.callerFrames, event.callerFrameCount);
+            UELogRenderer.appendContent(out, event.message);
+            UELogRenderer.endBlock(out);
+            return;
         }
+        String message = event.contentType == UELogEvent.CONTENT_TEXT ? event.formattedMessage : event.message;
+        int maxLength = event.contentType == UELogEvent.CONTENT_XML ? mLogConfig.getXmlMaxLength() : mLogConfig.getJsonMaxLength();
+        UELogRenderer.render(event.rendered, message, event.contentType, maxLength,
+                event.appendMessages, event.callerFrames, event.callerFrameCount);
+    }
+
+    /**
+     * 等待异步缓冲区中的日志全部输出，并将各个日志工具缓冲的日志写出
+     */
+    public void flush() {
+        flush(FLUSH_TIMEOUT_MILLIS);
     }
 
-    private boolean getIsPrintToFile() {
-        Boolean printToFile = localIsPrintToFile.get();
-        if (printToFile != null) {
-            localIsPrintToFile.remove();
-            return printToFile;
+    /**
+     * 最多等待指定时间让异步缓冲区中的日志输出，然后将各个日志工具缓冲的日志写出
+     *
+     * @param timeoutMillis 等待异步缓冲区的最长时间
+     */
+    void flush(long timeoutMillis) {
+        UELogDispatcher dispatcher = mDispatcher;
+        if (dispatcher != null) {
+            dispatcher.flush(timeoutMillis);
         }
-        return this.mLogConfig.isPrintToFile();
+        flushLogTools();
     }
 
-    private String createMessage(String message, Object... args) {
-        return args.length == 0 ? message : String.format(message, args);
+    /**
+     * 把{@link UERingLogTool}中保存的日志输出到其他日志工具，日志按需要输出到文件处理
+     *
+     * @return 输出的日志条数
+     */
+    public int dumpRingLog() {
+        flush();
+        int count = 0;
+        for (UELogTool logTool : mLogConfig.getLogToolList()) {
+            if (logTool instanceof UERingLogTool) {
+                count += ((UERingLogTool) logTool).replay(this);
+            }
+        }
+        flushLogTools();
+        return count;
     }
 
-    private int getMethodCount() {
-        Integer count = localMethodCount.get();
-        int result = mLogConfig.getMethodCount();
-        if (count != null) {
-            localMethodCount.remove();
-            result = count;
+    /**
+     * 把日志文件夹打包为zip文件，正在写入的日志文件只导出当前已写入的内容，导出期间可以继续输出日志
+     *
+     * @param bundle 导出的zip文件，已存在的文件会被覆盖
+     * @return 导出的文件数量，导出失败时返回-1
+     */
+    public int export(File bundle) {
+        flush();
+        UELogExporter exporter = new UELogExporter(UEFileLogTool.getLogRootDir());
+        for (UELogTool logTool : mLogConfig.getLogToolList()) {
+            if (logTool instanceof UEFileLogTool) {
+                ((UEFileLogTool) logTool).snapshot(exporter);
+            } else if (logTool instanceof UEBinaryLogTool) {
+                ((UEBinaryLogTool) logTool).snapshot(exporter);
+            } else if (logTool instanceof UEIndexedLogTool) {
+                ((UEIndexedLogTool) logTool).snapshot(exporter);
+            }
         }
-        if (result < 0) {
-            throw new IllegalStateException("methodCount cannot be negative");
+        try {
+            return exporter.export(bundle);
+        } catch (IOException e) {
+            bundle.delete();
+            return -1;
+        }
+    }
+
+    /**
+     * 从{@link UEIndexedLogTool}中查询日志，查询前先输出异步缓冲区中的日志
+     *
+     * @return 匹配的日志条数
+     */
+    public int query(long fromMillis, long toMillis, int minLevel, String tagPattern, UELogRecord.Visitor visitor) {
+        UELogDispatcher dispatcher = mDispatcher;
+        if (dispatcher != null) {
+            dispatcher.flush(FLUSH_TIMEOUT_MILLIS);
         }
-        return result;
+        int count = 0;
+        for (UELogTool logTool : mLogConfig.getLogToolList()) {
+            if (logTool instanceof UEIndexedLogTool) {
+                count += ((UEIndexedLogTool) logTool).query(fromMillis, toMillis, minLevel, tagPattern, visitor);
+            }
+        }
+        return count;
     }
 
     /**
-     * Determines the starting index of the stack trace, after method calls made by this class.
+     * 把{@link UERingLogTool}中保存的日志写入文件，已存在的文件会被覆盖
      *
-     * @param trace the stack trace
-     * @return the stack offset
+     * @param file
+     * @return 写入的日志条数，写入失败时返回-1
      */
-    private int getStackOffset(StackTraceElement[] trace) {
-        for (int i = MIN_STACK_OFFSET; i < trace.length; i++) {
-            StackTraceElement e = trace[i];
-            String name = e.getClassName();
-            if (!name.equals(UELogPrinter.class.getName()) && !name.equals(UELog.class.getName())) {
-                return --i;
+    public int dumpRingLog(File file) {
+        flush();
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            int count = 0;
+            for (UELogTool logTool : mLogConfig.getLogToolList()) {
+                if (logTool instanceof UERingLogTool) {
+                    count += ((UERingLogTool) logTool).dump(out);
+                }
+            }
+            return count;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    private void flushLogTools() {
+        for (UELogTool logTool : mLogConfig.getLogToolList()) {
+            if (logTool instanceof Flushable) {
+                try {
+                    ((Flushable) logTool).flush();
+                } catch (IOException e) {
+                }
             }
         }
-        return -1;
+    }
+
+    /**
+     * 输出异步缓冲区中剩余的日志并停止后台分发线程，之后的日志会在调用线程中同步输出
+     */
+    public void shutdown() {
+        mLogConfig.async(false);
+        UELogDispatcher dispatcher;
+        synchronized (this) {
+            dispatcher = mDispatcher;
+            mDispatcher = null;
+        }
+        if (dispatcher != null) {
+            mDroppedCount.addAndGet(dispatcher.getDroppedCount());
+            dispatcher.shutdown(FLUSH_TIMEOUT_MILLIS);
+        }
+        flushLogTools();
+    }
+
+    /**
+     * @return 异步模式下因缓冲区已满而被丢弃的日志数量
+     */
+    public long getDroppedCount() {
+        UELogDispatcher dispatcher = mDispatcher;
+        long dropped = mDroppedCount.get();
+        return dispatcher != null ? dropped + dispatcher.getDroppedCount() : dropped;
+    }
+
+    /**
+     * @return 日志输出的统计信息快照
+     */
+    public UELogStats getStats() {
+        UELogDispatcher dispatcher = mDispatcher;
+        return new UELogStats(mLogConfig.getMetrics(), mLogConfig.getRouter(), getDroppedCount(),
+                dispatcher != null ? dispatcher.getQueueSize() : 0, dispatcher != null ? dispatcher.getMaxQueueSize() : 0);
+    }
+
+    /**
+     * 把统计信息作为一条INFO级别的日志输出
+     */
+    public void logStats() {
+        tag(STATS_TAG).method(0).i(getStats().toString());
+    }
+
+    private UELogDispatcher getDispatcher() {
+        if (!mLogConfig.isAsync()) {
+            return null;
+        }
+        UELogDispatcher dispatcher = mDispatcher;
+        if (dispatcher == null) {
+            synchronized (this) {
+                dispatcher = mDispatcher;
+                if (dispatcher == null && mLogConfig.isAsync()) {
+                    dispatcher = new UELogDispatcher(this, mLogConfig.getAsyncBufferSize(), mLogConfig.getOverflowPolicy(),
+                            mLogConfig.getBatchSize(), mLogConfig.getBatchLatencyMillis());
+                    mDispatcher = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * @return the appropriate tag based on local or global
+     */
+    private String getTag(UELogCall call) {
+        String tag = call.tag;
+        if (!TextUtils.isEmpty(tag)) {
+            return tag;
+        }
+        tag = mLogConfig.getTag();
+        if (!TextUtils.isEmpty(tag)) {
+            return tag;
+        } else {
+            return UELogConfig.DEFAULT_TAG;
+        }
+    }
+
+    private String createMessage(String message, Object... args) {
+        return UELogFormatter.format(message, args != null ? args.length : 0, null, null, args);
+    }
+
+    private String createMessage(UELogEvent event) {
+        String message;
+        if (event.supplier != null) {
+            message = event.supplier.get();
+        } else {
+            message = UELogFormatter.format(event.message, event.argCount, event.arg0, event.arg1, event.args);
+        }
+        Throwable throwable = event.throwable;
+        if (throwable != null && message != null) {
+            message += " : " + Log.getStackTraceString(throwable);
+        }
+        if (throwable != null && message == null) {
+            message = throwable.toString();
+        }
+        if (message == null && event.level == UELogLevel.ERROR) {
+            message = "No message/exception is set";
+        }
+        return message;
     }
 
     /**
@@ -399,22 +1167,17 @@ public final class UELogPrinter {
      * @return
      */
     private String parseXmlMessage(String xml) {
-        if (UELogLevel.DEBUG < mLogConfig.getLogLevel()) {
+        if (!mLogConfig.isLoggable(UELogLevel.DEBUG)) {
             //因为对象输出是以debug级别输出的，所以如果日志级别配置高于DEBUG等级，则不会输出，所以也不需要进行字符串格式化
             return null;
         }
         if (!TextUtils.isEmpty(xml)) {
-            try {
-                Source xmlInput = new StreamSource(new StringReader(xml));
-                StreamResult xmlOutput = new StreamResult(new StringWriter());
-                Transformer transformer = TransformerFactory.newInstance().newTransformer();
-                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-                transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-                transformer.transform(xmlInput, xmlOutput);
-                return xmlOutput.getWriter().toString().replaceFirst(">", ">\n");
-            } catch (TransformerException e) {
-                return "Invalid xml content";
+            StringBuilder builder = new StringBuilder(xml.length() + (xml.length() >> 1));
+            if (UEXmlFormatter.format(xml, builder, "\n", mLogConfig.getXmlMaxLength())) {
+                return builder.toString();
             }
+            //格式错误时输出原始内容，和xml(String)相同
+            return xml;
         } else {
             return "Empty/Null xml content";
         }
@@ -427,26 +1190,17 @@ public final class UELogPrinter {
      * @return
      */
     private String parseJsonMessage(String json) {
-        if (UELogLevel.DEBUG < mLogConfig.getLogLevel()) {
+        if (!mLogConfig.isLoggable(UELogLevel.DEBUG)) {
             //因为对象输出是以debug级别输出的，所以如果日志级别配置高于DEBUG等级，则不会输出，所以也不需要进行字符串格式化
             return null;
         }
         if (!TextUtils.isEmpty(json)) {
-            try {
-                json = json.trim();
-                if (json.startsWith("{")) {
-                    JSONObject jsonObject = new JSONObject(json);
-                    String message = jsonObject.toString(JSON_INDENT);
-                    return message;
-                } else if (json.startsWith("[")) {
-                    JSONArray jsonArray = new JSONArray(json);
-                    String message = jsonArray.toString(JSON_INDENT);
-                    return message;
-                } else {
-                    return "Invalid json content";
-                }
-            } catch (JSONException e) {
-                return "Invalid json content";
+            StringBuilder builder = new StringBuilder(json.length() + (json.length() >> 1));
+            if (UEJsonFormatter.format(json, builder, "\n", mLogConfig.getJsonMaxLength())) {
+                return builder.toString();
+            } else {
+                //格式错误时输出原始内容
+                return json;
             }
         } else {
             return "Empty/Null json content";
@@ -460,35 +1214,55 @@ public final class UELogPrinter {
      * @return
      */
     private String parseObjectMessage(Object obj) {
-        if (UELogLevel.DEBUG < mLogConfig.getLogLevel()) {
+        if (!mLogConfig.isLoggable(UELogLevel.DEBUG)) {
             //因为对象输出是以debug级别输出的，所以如果日志级别配置高于DEBUG等级，则不会输出，所以也不需要进行字符串格式化
             return null;
         }
         if (obj != null) {
-            try {
-                if (obj instanceof List) {
-                    JSONArray jsonArray = new JSONArray();
-                    for (Object o : (List) obj) {
-                        JSONObject jo = new JSONObject(new Gson().toJson(o));
-                        jsonArray.put(jo);
-                    }
-                    String message = jsonArray.toString(JSON_INDENT);
-                    return message;
-                } else if (obj instanceof Map) {
-                    Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-                    JSONObject jsonObject = new JSONObject(gson.toJson(obj));
-                    String message = jsonObject.toString(JSON_INDENT);
-                    return message;
-                } else {
-                    JSONObject jsonObject = new JSONObject(new Gson().toJson(obj));
-                    String message = jsonObject.toString(JSON_INDENT);
-                    return message;
-                }
-            } catch (JSONException e) {
+            StringBuilder builder = new StringBuilder(256);
+            if (UEObjectFormatter.format(obj, mLogConfig, builder, "\n")) {
+                return builder.toString();
+            } else {
                 return "Invalid object content";
             }
         } else {
             return "Null object content";
         }
     }
+
+    /**
+     * 按需读取CharSequence中的内容，不会复制整个内容
+     */
+    private static final class CharSequenceReader extends Reader {
+        private final CharSequence mContent;
+        private int mPosition;
+
+        CharSequenceReader(CharSequence content) {
+            mContent = content;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            int end = Math.min(mContent.length(), mPosition + length);
+            if (mPosition >= end) {
+                return length == 0 ? 0 : -1;
+            }
+            if (mContent instanceof String) {
+                ((String) mContent).getChars(mPosition, end, buffer, offset);
+            } else if (mContent instanceof StringBuilder) {
+                ((StringBuilder) mContent).getChars(mPosition, end, buffer, offset);
+            } else {
+                for (int i = mPosition; i < end; i++) {
+                    buffer[offset++] = mContent.charAt(i);
+                }
+            }
+            int count = end - mPosition;
+            mPosition = end;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package com.ueueo.log;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 从{@link UEIndexedLogTool}中查询出的一条日志
+ */
+public final class UELogRecord {
+
+    private static final String LEVEL_LETTERS = "VVDIWEAN";
+
+    private final long mTimeMillis;
+    private final int mLevel;
+    private final String mTag;
+    private final String mThreadName;
+    private final String mCaller;
+    private final String mMessage;
+
+    UELogRecord(long timeMillis, int level, String tag, String threadName, String caller, String message) {
+        mTimeMillis = timeMillis;
+        mLevel = level;
+        mTag = tag;
+        mThreadName = threadName;
+        mCaller = caller;
+        mMessage = message;
+    }
+
+    public long getTimeMillis() {
+        return mTimeMillis;
+    }
+
+    /**
+     * @return 参考：{@link UELogLevel}
+     */
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public String getTag() {
+        return mTag;
+    }
+
+    public String getThreadName() {
+        return mThreadName;
+    }
+
+    /**
+     * @return 调用日志方法的位置，没有记录时为null
+     */
+    public String getCaller() {
+        return mCaller;
+    }
+
+    /**
+     * @return 格式化后的日志内容，不包括边框和拼接的内容
+     */
+    public String getMessage() {
+        return mMessage;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(64 + mMessage.length());
+        builder.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(mTimeMillis)))
+                .append(' ').append(mLevel >= 0 && mLevel < LEVEL_LETTERS.length() ? LEVEL_LETTERS.charAt(mLevel) : 'V')
+                .append('/').append(mTag)
+                .append('[').append(mThreadName).append("]: ");
+        if (mCaller != null) {
+            builder.append('[').append(mCaller).append("] ");
+        }
+        return builder.append(mMessage).toString();
+    }
+
+    /**
+     * 按写入顺序逐条接收查询结果
+     */
+    public interface Visitor {
+
+        /**
+         * @param record
+         * @return 是否继续查询
+         */
+        boolean visit(UELogRecord record);
+    }
+}
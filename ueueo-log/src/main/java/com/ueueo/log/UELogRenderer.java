@@ -0,0 +1,147 @@
+package com.ueueo.log;
+
+import java.util.List;
+
+/**
+ * 日志排版
+ * <p>
+ * 将一条日志的边框、调用栈和内容一次性排版到同一个缓冲区中，每行之间用'\n'分隔，
+ * 不依赖Android的类，可以在离线解码日志时复用相同的排版
+ */
+final class UELogRenderer {
+
+    /**
+     * Drawing toolbox
+     */
+    static final char TOP_LEFT_CORNER = '╔';
+    static final char BOTTOM_LEFT_CORNER = '╚';
+    static final char MIDDLE_CORNER = '╟';
+    static final char HORIZONTAL_DOUBLE_LINE = '║';
+    static final String DOUBLE_DIVIDER = "════════════════════════════════════════════";
+    static final String SINGLE_DIVIDER = "────────────────────────────────────────────";
+    static final String TOP_BORDER = TOP_LEFT_CORNER + DOUBLE_DIVIDER + DOUBLE_DIVIDER;
+    static final String BOTTOM_BORDER = BOTTOM_LEFT_CORNER + DOUBLE_DIVIDER + DOUBLE_DIVIDER;
+    static final String MIDDLE_BORDER = MIDDLE_CORNER + SINGLE_DIVIDER + SINGLE_DIVIDER;
+
+    private static final String FRAME_INDENT = "   ";
+    static final String CONTENT_NEWLINE = "\n" + HORIZONTAL_DOUBLE_LINE + " ";
+
+    private UELogRenderer() {
+    }
+
+    /**
+     * 排版一条文本、Json或Xml日志
+     *
+     * @param out            排版结果，每行之间用'\n'分隔，末尾没有换行
+     * @param message        日志内容
+     * @param contentType    日志内容的类型，Json和Xml内容会格式化后直接写入out
+     * @param maxLength      格式化后Json或Xml的最大长度，0表示不限制
+     * @param appendMessages 拼接的日志内容，可以为null
+     * @param frames         调用位置，从最内层调用开始
+     * @param frameCount     调用位置的数量
+     */
+    static void render(StringBuilder out, String message, int contentType, int maxLength,
+                       List<String> appendMessages, String[] frames, int frameCount) {
+        if (isSingleLine(message, contentType, appendMessages, frameCount)) {
+            //如果只是单行日志，则不加边框直接输出
+            out.append(message);
+            return;
+        }
+        beginBlock(out, appendMessages, frames, frameCount);
+        if (contentType == UELogEvent.CONTENT_JSON) {
+            appendJson(out, message, maxLength);
+        } else if (contentType == UELogEvent.CONTENT_XML) {
+            appendXml(out, message, maxLength);
+        } else {
+            appendContent(out, message);
+        }
+        endBlock(out);
+    }
+
+    /**
+     * @return 是否为不需要边框的单行日志
+     */
+    static boolean isSingleLine(String message, int contentType, List<String> appendMessages, int frameCount) {
+        return frameCount <= 0 && (appendMessages == null || appendMessages.size() == 0)
+                && contentType == UELogEvent.CONTENT_TEXT && message.indexOf('\n') < 0;
+    }
+
+    /**
+     * 输出上边框、调用位置和拼接的日志内容
+     */
+    static void beginBlock(StringBuilder out, List<String> appendMessages, String[] frames, int frameCount) {
+        out.append(TOP_BORDER);
+        int indent = 0;
+        //输出顺序为从最外层调用到最内层调用
+        for (int i = frameCount - 1; i >= 0; i--) {
+            if (frames[i] == null) {
+                continue;
+            }
+            out.append('\n').append(HORIZONTAL_DOUBLE_LINE).append(' ');
+            for (int j = 0; j < indent; j++) {
+                out.append(FRAME_INDENT);
+            }
+            out.append(frames[i]);
+            indent++;
+        }
+        if (frameCount > 0) {
+            out.append('\n').append(MIDDLE_BORDER);
+        }
+        if (appendMessages != null) {
+            for (int i = 0; i < appendMessages.size(); i++) {
+                appendContent(out, appendMessages.get(i));
+                out.append('\n').append(MIDDLE_BORDER);
+            }
+        }
+    }
+
+    /**
+     * 输出下边框
+     */
+    static void endBlock(StringBuilder out) {
+        out.append('\n').append(BOTTOM_BORDER);
+    }
+
+    /**
+     * Json格式化后直接写入out，格式错误时输出原始内容
+     */
+    static void appendJson(StringBuilder out, String json, int maxLength) {
+        int mark = out.length();
+        out.append(CONTENT_NEWLINE);
+        if (!UEJsonFormatter.format(json, out, CONTENT_NEWLINE, maxLength)) {
+            out.setLength(mark);
+            appendContent(out, json);
+        }
+    }
+
+    /**
+     * Xml格式化后直接写入out，格式错误时输出原始内容
+     */
+    static void appendXml(StringBuilder out, String xml, int maxLength) {
+        int mark = out.length();
+        out.append(CONTENT_NEWLINE);
+        if (!UEXmlFormatter.format(xml, out, CONTENT_NEWLINE, maxLength)) {
+            out.setLength(mark);
+            appendContent(out, xml);
+        }
+    }
+
+    /**
+     * 内容的每一行前加上边框，末尾的空行会被忽略
+     */
+    static void appendContent(StringBuilder out, String content) {
+        int end = content.length();
+        while (end > 0 && content.charAt(end - 1) == '\n') {
+            end--;
+        }
+        int start = 0;
+        do {
+            int lineEnd = content.indexOf('\n', start);
+            if (lineEnd < 0 || lineEnd > end) {
+                lineEnd = end;
+            }
+            out.append('\n').append(HORIZONTAL_DOUBLE_LINE).append(' ').append(content, start, lineEnd);
+            start = lineEnd + 1;
+        } while (start < end);
+    }
+}
@@ -0,0 +1,210 @@
+package com.ueueo.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日志路由表
+ * <p>
+ * 由日志工具和它们的{@link UELogToolRule}编译而成，创建后不可修改，配置变化时整体替换。
+ * 输出日志时按级别和是否输出到文件直接取出要输出的日志工具数组，不需要遍历判断；
+ * 只有设置了Tag规则的日志工具才需要再按Tag判断，判断结果按Tag缓存
+ */
+final class UELogRouter {
+
+    private static final Sink[] NO_SINKS = new Sink[0];
+    //每个日志工具最多缓存的Tag数量
+    private static final int MAX_CACHED_TAGS = 256;
+
+    private final Sink[] mSinks;
+    //按[是否输出到文件][日志级别]索引的日志工具
+    private final Sink[][][] mRoutes = new Sink[2][UELogLevel.NONE + 1][];
+    private final int mMinLevel;
+
+    /**
+     * @param logTools 所有的日志工具
+     * @param rules    日志工具的输出规则，没有规则的日志工具输出所有日志
+     * @param logLevel 全局的日志级别
+     * @param metrics  日志工具的统计
+     */
+    UELogRouter(List<UELogTool> logTools, Map<UELogTool, UELogToolRule> rules, int logLevel, UELogMetrics metrics) {
+        mSinks = new Sink[logTools.size()];
+        int minLevel = UELogLevel.NONE;
+        for (int i = 0; i < mSinks.length; i++) {
+            UELogTool logTool = logTools.get(i);
+            mSinks[i] = new Sink(logTool, rules.get(logTool), metrics.sink(logTool));
+            minLevel = Math.min(minLevel, mSinks[i].mLowestLevel);
+        }
+        mMinLevel = Math.max(minLevel, logLevel);
+        List<Sink> route = new ArrayList<>(mSinks.length);
+        for (int printToFile = 0; printToFile < 2; printToFile++) {
+            for (int level = 0; level <= UELogLevel.NONE; level++) {
+                route.clear();
+                if (level >= logLevel && level < UELogLevel.NONE) {
+                    for (Sink sink : mSinks) {
+                        if (level >= sink.mLowestLevel && (printToFile == 1 || !sink.mPrintToFileOnly)) {
+                            route.add(sink);
+                        }
+                    }
+                }
+                mRoutes[printToFile][level] = route.isEmpty() ? NO_SINKS : route.toArray(new Sink[route.size()]);
+            }
+        }
+    }
+
+    /**
+     * @return 指定级别的日志是否可能被某个日志工具输出
+     */
+    boolean isLoggable(int level) {
+        return level >= mMinLevel;
+    }
+
+    /**
+     * @param level       日志级别
+     * @param printToFile 是否输出到文件
+     * @return 可能输出这条日志的日志工具，设置了Tag规则的日志工具还需要通过{@link Sink#accept(int, String)}判断
+     */
+    Sink[] route(int level, boolean printToFile) {
+        if (level < 0 || level > UELogLevel.NONE) {
+            level = level < 0 ? 0 : UELogLevel.NONE;
+        }
+        return mRoutes[printToFile ? 1 : 0][level];
+    }
+
+    /**
+     * @return 所有的日志工具，按添加的顺序
+     */
+    Sink[] getSinks() {
+        return mSinks;
+    }
+
+    /**
+     * 路由表中的一个日志工具
+     */
+    static final class Sink {
+        final UELogTool mLogTool;
+        final boolean mEventTool;
+        //按批输出时使用，没有实现UELogBatchTool的日志工具通过适配器逐条输出
+        final UELogBatchTool mBatchTool;
+        //日志工具本身实现了UELogBatchTool，同步模式下每条日志输出后调用endBatch()
+        final boolean mBatchCapable;
+        //一批日志中需要输出到这个日志工具的日志，只在分发线程中使用
+        final List<UELogEvent> mPending = new ArrayList<>();
+        //只需要格式化后的日志内容，不需要排版
+        final boolean mMessageOnly;
+        final UELogMetrics.Sink mMetrics;
+        //是否设置了Tag规则
+        final boolean mTagged;
+        private final boolean mPrintToFileOnly;
+        private final int mMinLevel;
+        //包括Tag规则在内可能输出的最低级别
+        private final int mLowestLevel;
+        private final String[] mIncludeTags;
+        private final String[] mExcludeTags;
+        private final String[] mLevelTags;
+        private final int[] mTagLevels;
+        private final ConcurrentHashMap<String, Integer> mTagCache;
+
+        Sink(UELogTool logTool, UELogToolRule rule, UELogMetrics.Sink metrics) {
+            mLogTool = logTool;
+            mMetrics = metrics;
+            mEventTool = logTool instanceof UELogEventTool;
+            mBatchCapable = logTool instanceof UELogBatchTool;
+            mBatchTool = mBatchCapable ? (UELogBatchTool) logTool : new UELogBatchAdapter(logTool);
+            mMessageOnly = logTool instanceof UERingLogTool || logTool instanceof UEIndexedLogTool;
+            if (rule != null && rule.printToFileOnly != null) {
+                mPrintToFileOnly = rule.printToFileOnly;
+            } else {
+                mPrintToFileOnly = logTool instanceof UEFileLogTool || logTool instanceof UEBinaryLogTool
+                        || logTool instanceof UEIndexedLogTool;
+            }
+            if (rule == null) {
+                mMinLevel = UELogLevel.VERBOSE;
+                mLowestLevel = UELogLevel.VERBOSE;
+                mIncludeTags = null;
+                mExcludeTags = null;
+                mLevelTags = null;
+                mTagLevels = null;
+                mTagged = false;
+                mTagCache = null;
+                return;
+            }
+            mMinLevel = rule.minLevel;
+            mIncludeTags = rule.includeTags.toArray(new String[rule.includeTags.size()]);
+            mExcludeTags = rule.excludeTags.toArray(new String[rule.excludeTags.size()]);
+            mLevelTags = new String[rule.tagLevels.size()];
+            mTagLevels = new int[mLevelTags.length];
+            int lowestLevel = mMinLevel;
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : rule.tagLevels.entrySet()) {
+                mLevelTags[i] = entry.getKey();
+                mTagLevels[i] = entry.getValue();
+                lowestLevel = Math.min(lowestLevel, mTagLevels[i]);
+                i++;
+            }
+            mLowestLevel = lowestLevel;
+            mTagged = mIncludeTags.length > 0 || mExcludeTags.length > 0 || mLevelTags.length > 0;
+            mTagCache = mTagged ? new ConcurrentHashMap<String, Integer>() : null;
+        }
+
+        /**
+         * @return 日志工具是否输出指定级别和Tag的日志
+         */
+        boolean accept(int level, String tag) {
+            if (!mTagged) {
+                return level >= mMinLevel;
+            }
+            if (tag == null) {
+                tag = "";
+            }
+            Integer minLevel = mTagCache.get(tag);
+            if (minLevel == null) {
+                minLevel = levelFor(tag);
+                if (mTagCache.size() < MAX_CACHED_TAGS) {
+                    mTagCache.put(tag, minLevel);
+                }
+            }
+            return level >= minLevel;
+        }
+
+        /**
+         * @return 指定Tag的日志输出的最低级别，不输出时返回{@link UELogLevel#NONE}
+         */
+        private int levelFor(String tag) {
+            if (matchesAny(mExcludeTags, tag)) {
+                return UELogLevel.NONE;
+            }
+            if (mIncludeTags.length > 0 && !matchesAny(mIncludeTags, tag)) {
+                return UELogLevel.NONE;
+            }
+            for (int i = 0; i < mLevelTags.length; i++) {
+                if (matches(mLevelTags[i], tag)) {
+                    return mTagLevels[i];
+                }
+            }
+            return mMinLevel;
+        }
+
+        private static boolean matchesAny(String[] patterns, String tag) {
+            for (String pattern : patterns) {
+                if (matches(pattern, tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static boolean matches(String pattern, String tag) {
+            if (pattern == null) {
+                return false;
+            }
+            int last = pattern.length() - 1;
+            if (last >= 0 && pattern.charAt(last) == '*') {
+                return tag.regionMatches(0, pattern, 0, last);
+            }
+            return pattern.equals(tag);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ueueo.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按级别和Tag选择日志的采样策略
+ * <p>
+ * 配置修改时整体替换，每个Tag第一次输出日志时匹配规则，之后从缓存中读取
+ */
+final class UELogSampler {
+
+    private static final int MAX_CACHED_TAGS = 256;
+
+    //按级别索引的默认策略
+    private final UELogSamplingPolicy[] mLevelPolicies;
+    //按添加顺序匹配的Tag规则，先添加的优先
+    private final String[] mTagPatterns;
+    private final UELogSamplingPolicy[][] mTagPolicies;
+    private final ConcurrentHashMap<String, UELogSamplingPolicy[]> mTagCache = new ConcurrentHashMap<>();
+
+    UELogSampler(UELogSamplingPolicy[] levelPolicies, List<String> tagPatterns, List<UELogSamplingPolicy[]> tagPolicies) {
+        mLevelPolicies = levelPolicies.clone();
+        mTagPatterns = tagPatterns.toArray(new String[tagPatterns.size()]);
+        mTagPolicies = new UELogSamplingPolicy[tagPolicies.size()][];
+        for (int i = 0; i < mTagPolicies.length; i++) {
+            mTagPolicies[i] = tagPolicies.get(i).clone();
+        }
+    }
+
+    /**
+     * @param level 日志级别
+     * @param tag   日志的Tag
+     * @param site  调用位置，可以为null
+     * @return 0表示丢弃，否则为日志的采样率
+     */
+    int sample(int level, String tag, Object site) {
+        if (level < 0 || level >= mLevelPolicies.length) {
+            return 1;
+        }
+        UELogSamplingPolicy policy = mTagPolicies.length == 0 ? mLevelPolicies[level] : policies(tag)[level];
+        if (policy == null) {
+            return 1;
+        }
+        int hash = (tag.hashCode() * 31 + level) * 31 + (site != null ? site.hashCode() : 0);
+        return policy.sample(hash) ? policy.getRate() : 0;
+    }
+
+    private UELogSamplingPolicy[] policies(String tag) {
+        UELogSamplingPolicy[] policies = mTagCache.get(tag);
+        if (policies != null) {
+            return policies;
+        }
+        policies = mLevelPolicies.clone();
+        for (int level = 0; level < policies.length; level++) {
+            for (int i = 0; i < mTagPatterns.length; i++) {
+                if (mTagPolicies[i][level] != null && UELogRouter.Sink.matches(mTagPatterns[i], tag)) {
+                    policies[level] = mTagPolicies[i][level];
+                    break;
+                }
+            }
+        }
+        if (mTagCache.size() < MAX_CACHED_TAGS) {
+            mTagCache.put(tag, policies);
+        }
+        return policies;
+    }
+
+    /**
+     * 采样配置，由{@link UELogConfig}修改后编译为{@link UELogSampler}
+     */
+    static final class Rules {
+        private final UELogSamplingPolicy[] mLevelPolicies = new UELogSamplingPolicy[UELogLevel.NONE + 1];
+        private final List<String> mTagPatterns = new ArrayList<>();
+        private final List<UELogSamplingPolicy[]> mTagPolicies = new ArrayList<>();
+
+        void set(int level, UELogSamplingPolicy policy) {
+            if (level >= 0 && level < mLevelPolicies.length) {
+                mLevelPolicies[level] = policy;
+            }
+        }
+
+        void set(String tagPattern, int level, UELogSamplingPolicy policy) {
+            if (tagPattern == null || level < 0 || level >= mLevelPolicies.length) {
+                return;
+            }
+            int index = mTagPatterns.indexOf(tagPattern);
+            if (index < 0) {
+                if (policy == null) {
+                    return;
+                }
+                mTagPatterns.add(tagPattern);
+                mTagPolicies.add(new UELogSamplingPolicy[mLevelPolicies.length]);
+                index = mTagPatterns.size() - 1;
+            }
+            mTagPolicies.get(index)[level] = policy;
+        }
+
+        /**
+         * @return 没有任何采样规则时返回null
+         */
+        UELogSampler build() {
+            boolean empty = true;
+            for (UELogSamplingPolicy policy : mLevelPolicies) {
+                empty &= policy == null;
+            }
+            for (UELogSamplingPolicy[] policies : mTagPolicies) {
+                for (UELogSamplingPolicy policy : policies) {
+                    empty &= policy == null;
+                }
+            }
+            return empty ? null : new UELogSampler(mLevelPolicies, mTagPatterns, mTagPolicies);
+        }
+    }
+}
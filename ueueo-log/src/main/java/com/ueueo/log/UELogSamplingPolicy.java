@@ -0,0 +1,83 @@
+package com.ueueo.log;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 日志采样策略，参考{@link UELogConfig#sampling(int, UELogSamplingPolicy)}
+ * <p>
+ * 采样在日志格式化和获取调用栈之前执行，没有被采样的日志直接丢弃。输出的日志带有采样率，日志条数乘以采样率即为实际的日志数量
+ */
+public final class UELogSamplingPolicy {
+
+    private static final int SLOT_COUNT = 256;
+
+    //每个线程的随机数状态，避免多个线程竞争同一个随机数生成器
+    private static final ThreadLocal<long[]> localSeed = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            long seed = System.nanoTime() ^ Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            return new long[]{seed != 0 ? seed : 1};
+        }
+    };
+
+    private final int mRate;
+    //按位置计数，为null时为随机采样。哈希冲突时两个位置共用一个计数
+    private final AtomicIntegerArray mSlotCounts;
+
+    private UELogSamplingPolicy(int rate, boolean deterministic) {
+        mRate = Math.max(1, rate);
+        mSlotCounts = deterministic && mRate > 1 ? new AtomicIntegerArray(SLOT_COUNT) : null;
+    }
+
+    /**
+     * 随机采样，每条日志以1/rate的概率输出
+     *
+     * @param rate 采样率，1表示全部输出
+     * @return
+     */
+    public static UELogSamplingPolicy random(int rate) {
+        return new UELogSamplingPolicy(rate, false);
+    }
+
+    /**
+     * 按调用位置计数，同一个Tag、级别和调用位置的日志每rate条输出第一条
+     * <p>
+     * 没有指定调用位置时按日志的格式字符串区分位置，Supplier和对象日志按类型区分，Json、Xml和分段输出的长文本只按Tag和级别区分
+     *
+     * @param rate 采样率，1表示全部输出
+     * @return
+     */
+    public static UELogSamplingPolicy everyNth(int rate) {
+        return new UELogSamplingPolicy(rate, true);
+    }
+
+    public int getRate() {
+        return mRate;
+    }
+
+    public boolean isDeterministic() {
+        return mSlotCounts != null;
+    }
+
+    /**
+     * @param siteHash Tag、级别和调用位置的哈希值
+     * @return 日志是否输出
+     */
+    boolean sample(int siteHash) {
+        if (mRate == 1) {
+            return true;
+        }
+        if (mSlotCounts != null) {
+            int slot = (siteHash ^ (siteHash >>> 16)) & (SLOT_COUNT - 1);
+            return (mSlotCounts.getAndIncrement(slot) & Integer.MAX_VALUE) % mRate == 0;
+        }
+        //xorshift64
+        long[] seed = localSeed.get();
+        long x = seed[0];
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed[0] = x;
+        return ((x >>> 1) % mRate) == 0;
+    }
+}
@@ -0,0 +1,304 @@
+package com.ueueo.log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 日志输出的统计信息快照
+ * <p>
+ * 从开始输出日志起累计，低于日志级别直接返回的日志不计算在内。耗时为近似值，相对误差不超过12.5%
+ */
+public final class UELogStats {
+
+    private final long[] mLevelCounts = new long[UELogLevel.NONE + 1];
+    private final long mNoRouteCount;
+    private final long mRateLimitedCount;
+    private final long mCollapsedCount;
+    private final long mSampledCount;
+    private final long mOverflowCount;
+    private final int mQueueSize;
+    private final int mMaxQueueSize;
+    private final long mLogP50Nanos;
+    private final long mLogP99Nanos;
+    private final List<SinkStats> mSinks;
+
+    UELogStats(UELogMetrics metrics, UELogRouter router, long overflowCount, int queueSize, int maxQueueSize) {
+        for (int level = 0; level < mLevelCounts.length; level++) {
+            mLevelCounts[level] = metrics.getCount(level);
+        }
+        mNoRouteCount = metrics.getCount(UELogMetrics.NO_ROUTE);
+        mRateLimitedCount = metrics.getCount(UELogMetrics.RATE_LIMITED);
+        mCollapsedCount = metrics.getCount(UELogMetrics.COLLAPSED);
+        mSampledCount = metrics.getCount(UELogMetrics.SAMPLED);
+        mOverflowCount = overflowCount;
+        mQueueSize = queueSize;
+        mMaxQueueSize = maxQueueSize;
+        UELogHistogram.Snapshot latency = metrics.getLogLatency().snapshot();
+        mLogP50Nanos = latency.percentile(50);
+        mLogP99Nanos = latency.percentile(99);
+        List<SinkStats> sinks = new ArrayList<>();
+        for (UELogRouter.Sink sink : router.getSinks()) {
+            sinks.add(new SinkStats(sink.mLogTool, metrics.sink(sink.mLogTool)));
+        }
+        mSinks = Collections.unmodifiableList(sinks);
+    }
+
+    /**
+     * @param level 参考：{@link UELogLevel}
+     * @return 指定级别的日志数量
+     */
+    public long getCount(int level) {
+        return level >= 0 && level < mLevelCounts.length ? mLevelCounts[level] : 0;
+    }
+
+    /**
+     * @return 所有级别的日志数量
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : mLevelCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return 没有日志工具需要输出而被丢弃的日志数量
+     */
+    public long getNoRouteCount() {
+        return mNoRouteCount;
+    }
+
+    /**
+     * @return 被限流丢弃的日志数量
+     */
+    public long getRateLimitedCount() {
+        return mRateLimitedCount;
+    }
+
+    /**
+     * @return 作为重复日志被合并的日志数量
+     */
+    public long getCollapsedCount() {
+        return mCollapsedCount;
+    }
+
+    /**
+     * @return 采样时没有被选中而被丢弃的日志数量
+     */
+    public long getSampledCount() {
+        return mSampledCount;
+    }
+
+    /**
+     * @return 异步缓冲区已满而被丢弃的日志数量
+     */
+    public long getOverflowCount() {
+        return mOverflowCount;
+    }
+
+    /**
+     * @return 所有被丢弃的日志数量
+     */
+    public long getDroppedCount() {
+        return mNoRouteCount + mRateLimitedCount + mCollapsedCount + mSampledCount + mOverflowCount;
+    }
+
+    /**
+     * @return 异步缓冲区中等待输出的日志数量
+     */
+    public int getQueueSize() {
+        return mQueueSize;
+    }
+
+    /**
+     * @return 异步缓冲区中曾经等待输出的最大日志数量
+     */
+    public int getMaxQueueSize() {
+        return mMaxQueueSize;
+    }
+
+    /**
+     * @return 调用日志输出方法耗时的中位数，单位纳秒，异步模式下只包括放入缓冲区的耗时
+     */
+    public long getLogP50Nanos() {
+        return mLogP50Nanos;
+    }
+
+    /**
+     * @return 调用日志输出方法耗时的99分位数，单位纳秒
+     */
+    public long getLogP99Nanos() {
+        return mLogP99Nanos;
+    }
+
+    /**
+     * @return 各个日志工具的统计
+     */
+    public List<SinkStats> getSinks() {
+        return mSinks;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(256);
+        builder.append("logs=").append(getTotalCount()).append(" (");
+        String letters = "?VDIWEA";
+        for (int level = UELogLevel.VERBOSE; level <= UELogLevel.ASSERT; level++) {
+            if (level > UELogLevel.VERBOSE) {
+                builder.append(' ');
+            }
+            builder.append(letters.charAt(level)).append(':').append(mLevelCounts[level]);
+        }
+        builder.append(") dropped=").append(getDroppedCount())
+                .append(" (noRoute:").append(mNoRouteCount)
+                .append(" rateLimited:").append(mRateLimitedCount)
+                .append(" collapsed:").append(mCollapsedCount)
+                .append(" sampled:").append(mSampledCount)
+                .append(" overflow:").append(mOverflowCount)
+                .append(") queue=").append(mQueueSize).append('/').append(mMaxQueueSize)
+                .append(" log p50=");
+        appendNanos(builder, mLogP50Nanos);
+        builder.append(" p99=");
+        appendNanos(builder, mLogP99Nanos);
+        for (SinkStats sink : mSinks) {
+            builder.append(" | ").append(sink);
+        }
+        return builder.toString();
+    }
+
+    private static void appendNanos(StringBuilder builder, long nanos) {
+        if (nanos < 10000) {
+            builder.append(nanos).append("ns");
+        } else if (nanos < 10000000) {
+            builder.append(nanos / 1000).append("us");
+        } else {
+            builder.append(nanos / 1000000).append("ms");
+        }
+    }
+
+    /**
+     * 一个日志工具的统计
+     */
+    public static final class SinkStats {
+        private final UELogTool mLogTool;
+        private final long mCallCount;
+        private final long mBytes;
+        private final long mFlushCount;
+        private final long mRawBytes;
+        private final long mCompressedBytes;
+        private final long mCompressNanos;
+        private final long mP50Nanos;
+        private final long mP99Nanos;
+
+        SinkStats(UELogTool logTool, UELogMetrics.Sink metrics) {
+            mLogTool = logTool;
+            mCallCount = metrics.getCalls();
+            if (logTool instanceof UEFileLogTool) {
+                mBytes = ((UEFileLogTool) logTool).getBytesWritten();
+                mFlushCount = ((UEFileLogTool) logTool).getFlushCount();
+                UELogCompressionStats compression = ((UEFileLogTool) logTool).getCompressionStats();
+                mRawBytes = compression.getRawBytes();
+                mCompressedBytes = compression.getCompressedBytes();
+                mCompressNanos = compression.getCompressNanos();
+            } else if (logTool instanceof UEBinaryLogTool) {
+                mBytes = ((UEBinaryLogTool) logTool).getBytesWritten();
+                mFlushCount = ((UEBinaryLogTool) logTool).getFlushCount();
+                mRawBytes = 0;
+                mCompressedBytes = 0;
+                mCompressNanos = 0;
+            } else {
+                mBytes = metrics.getChars();
+                mFlushCount = 0;
+                mRawBytes = 0;
+                mCompressedBytes = 0;
+                mCompressNanos = 0;
+            }
+            UELogHistogram.Snapshot latency = metrics.getLatency().snapshot();
+            mP50Nanos = latency.percentile(50);
+            mP99Nanos = latency.percentile(99);
+        }
+
+        public UELogTool getLogTool() {
+            return mLogTool;
+        }
+
+        /**
+         * @return 输出到日志工具的日志数量
+         */
+        public long getCallCount() {
+            return mCallCount;
+        }
+
+        /**
+         * @return 文件日志工具写入文件的字节数，其他日志工具为输出的字符数
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+
+        /**
+         * @return 文件日志工具把缓冲区写入文件的次数
+         */
+        public long getFlushCount() {
+            return mFlushCount;
+        }
+
+        /**
+         * @return 文件日志工具压缩前的字节数，包括边写边压缩和滚动后压缩的日志文件，没有压缩时为0
+         */
+        public long getRawBytes() {
+            return mRawBytes;
+        }
+
+        /**
+         * @return 文件日志工具压缩后的字节数
+         */
+        public long getCompressedBytes() {
+            return mCompressedBytes;
+        }
+
+        /**
+         * @return 文件日志工具压缩累计耗时，单位纳秒
+         */
+        public long getCompressNanos() {
+            return mCompressNanos;
+        }
+
+        /**
+         * @return 日志工具输出一条日志耗时的中位数，单位纳秒
+         */
+        public long getP50Nanos() {
+            return mP50Nanos;
+        }
+
+        /**
+         * @return 日志工具输出一条日志耗时的99分位数，单位纳秒
+         */
+        public long getP99Nanos() {
+            return mP99Nanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(96);
+            builder.append(mLogTool.getClass().getSimpleName())
+                    .append(" calls=").append(mCallCount)
+                    .append(" bytes=").append(mBytes);
+            if (mFlushCount > 0) {
+                builder.append(" flushes=").append(mFlushCount);
+            }
+            if (mRawBytes > 0) {
+                builder.append(" gzip=").append(mCompressedBytes).append('/').append(mRawBytes)
+                        .append(" gzipCost=");
+                appendNanos(builder, mCompressNanos);
+            }
+            builder.append(" p50=");
+            appendNanos(builder, mP50Nanos);
+            builder.append(" p99=");
+            appendNanos(builder, mP99Nanos);
+            return builder.toString();
+        }
+    }
+}
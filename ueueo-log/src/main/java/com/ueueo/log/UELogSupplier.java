@@ -0,0 +1,11 @@
+package com.ueueo.log;
+
+/**
+ * 延迟生成日志内容
+ * <p>
+ * 只有日志级别满足输出条件时才会调用{@link #get()}，
+ * 开启异步输出时{@link #get()}会在后台分发线程中调用
+ */
+public interface UELogSupplier {
+    String get();
+}
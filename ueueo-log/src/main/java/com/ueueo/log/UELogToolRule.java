@@ -0,0 +1,93 @@
+package com.ueueo.log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 日志工具的输出规则
+ * <p>
+ * 指定日志工具输出的最低级别和Tag，Tag支持完整匹配，以及以*结尾的前缀匹配（例如"Net*"），单独的"*"匹配所有Tag：
+ * <pre>
+ * UELog.addLogTool(new UEBinaryLogTool(), new UELogToolRule()
+ *         .level(UELogLevel.INFO)
+ *         .includeTags("Net*", "Player")
+ *         .excludeTags("NetHeartbeat")
+ *         .tagLevel("Player", UELogLevel.WARN));
+ * </pre>
+ * 规则在添加日志工具时编译为不可变的路由表，之后再修改规则对象不会生效，需要通过{@link UELogConfig#logToolRule}重新设置
+ */
+public final class UELogToolRule {
+
+    int minLevel = UELogLevel.VERBOSE;
+    final List<String> includeTags = new ArrayList<>();
+    final List<String> excludeTags = new ArrayList<>();
+    final Map<String, Integer> tagLevels = new LinkedHashMap<>();
+    //null表示按日志工具的类型决定，文件日志工具只输出需要输出到文件的日志
+    Boolean printToFileOnly;
+
+    /**
+     * 日志工具输出的最低级别
+     *
+     * @param minLevel 参考：{@link UELogLevel}
+     * @return
+     */
+    public UELogToolRule level(int minLevel) {
+        this.minLevel = minLevel;
+        return this;
+    }
+
+    /**
+     * 只输出指定Tag的日志，没有设置时输出所有Tag
+     *
+     * @param patterns
+     * @return
+     */
+    public UELogToolRule includeTags(String... patterns) {
+        if (patterns != null) {
+            Collections.addAll(includeTags, patterns);
+        }
+        return this;
+    }
+
+    /**
+     * 不输出指定Tag的日志，优先于{@link #includeTags}
+     *
+     * @param patterns
+     * @return
+     */
+    public UELogToolRule excludeTags(String... patterns) {
+        if (patterns != null) {
+            Collections.addAll(excludeTags, patterns);
+        }
+        return this;
+    }
+
+    /**
+     * 为指定Tag单独设置输出的最低级别，多个规则都匹配时使用最先设置的规则
+     *
+     * @param pattern
+     * @param minLevel 参考：{@link UELogLevel}
+     * @return
+     */
+    public UELogToolRule tagLevel(String pattern, int minLevel) {
+        if (pattern != null && !tagLevels.containsKey(pattern)) {
+            tagLevels.put(pattern, minLevel);
+        }
+        return this;
+    }
+
+    /**
+     * 是否只输出需要输出到文件的日志（参考{@link UELogConfig#printToFile}），
+     * 没有设置时{@link UEFileLogTool}、{@link UEBinaryLogTool}和{@link UEIndexedLogTool}为true，其他日志工具为false
+     *
+     * @param printToFileOnly
+     * @return
+     */
+    public UELogToolRule printToFileOnly(boolean printToFileOnly) {
+        this.printToFileOnly = printToFileOnly;
+        return this;
+    }
+}
@@ -0,0 +1,160 @@
+package com.ueueo.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 内存映射日志文件写入器
+ * <p>
+ * 日志直接写入映射到文件的内存区域，写入的成本接近一次内存拷贝。
+ * 数据写入后即进入系统的页缓存，即使进程崩溃或被系统杀死，已写入的日志也不会丢失
+ * <p>
+ * 文件格式：16字节的文件头（魔数、有效日志长度）+ 日志内容。文件每次按{@code chunkSize}扩展并映射新的区域。
+ * 正常关闭或下次启动时通过{@link #recover(File, File)}把有效的日志内容转存为普通的文本日志文件
+ */
+class UEMappedLogFileWriter extends UELogFileWriter {
+
+    static final String FILE_SUFFIX = ".mmap";
+
+    private static final int MAGIC = 0x55454C47;
+    static final int HEADER_SIZE = 16;
+    private static final int LENGTH_OFFSET = 4;
+
+    private final RandomAccessFile mRandomAccessFile;
+    private final FileChannel mChannel;
+    private final MappedByteBuffer mHeader;
+    private final int mChunkSize;
+    //当前映射区域在日志内容中的起始位置
+    private long mChunkStart;
+
+    UEMappedLogFileWriter(File file, int chunkSize) throws IOException {
+        super(file);
+        mChunkSize = chunkSize;
+        mRandomAccessFile = new RandomAccessFile(file, "rw");
+        mChannel = mRandomAccessFile.getChannel();
+        mHeader = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        mHeader.putInt(0, MAGIC);
+        mHeader.putLong(LENGTH_OFFSET, 0);
+        mChunkStart = 0;
+        mBuffer = mChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, mChunkSize);
+    }
+
+    @Override
+    void write(ByteBuffer bytes) throws IOException {
+        super.write(bytes);
+        //日志内容写入后再更新文件头中的有效长度，崩溃时最多丢失正在写入的一条日志
+        mHeader.putLong(LENGTH_OFFSET, length());
+    }
+
+    @Override
+    protected void onBufferFull() throws IOException {
+        mChunkStart += mBuffer.position();
+        mBuffer = mChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + mChunkStart, mChunkSize);
+    }
+
+    @Override
+    long length() {
+        return mChunkStart + mBuffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mRandomAccessFile.close();
+        }
+        recover(mFile, getSealedFile());
+    }
+
+    @Override
+    File getSealedFile() {
+        return new File(mFile.getParentFile(), getLogFileName(mFile));
+    }
+
+    /**
+     * 只导出有效的日志内容，按转存后的文本日志文件命名
+     */
+    @Override
+    void snapshot(UELogExporter exporter) {
+        exporter.addActiveFile(mFile, HEADER_SIZE, length(), getSealedFile());
+    }
+
+    /**
+     * 将内存映射日志文件中的有效日志内容追加到文本日志文件中，然后删除内存映射日志文件
+     *
+     * @param mappedFile 内存映射日志文件
+     * @param logFile    文本日志文件
+     * @return 转存的日志字节数
+     */
+    static long recover(File mappedFile, File logFile) throws IOException {
+        long length = 0;
+        RandomAccessFile in = new RandomAccessFile(mappedFile, "r");
+        try {
+            FileChannel inChannel = in.getChannel();
+            length = readContentLength(inChannel);
+            if (length > 0) {
+                FileOutputStream out = new FileOutputStream(logFile, true);
+                try {
+                    FileChannel outChannel = out.getChannel();
+                    long position = 0;
+                    while (position < length) {
+                        position += inChannel.transferTo(HEADER_SIZE + position, length - position, outChannel);
+                    }
+                } finally {
+                    out.close();
+                }
+            }
+        } finally {
+            in.close();
+        }
+        mappedFile.delete();
+        return length;
+    }
+
+    /**
+     * @return 内存映射日志文件中有效日志内容的长度，从{@link #HEADER_SIZE}开始，文件头无效时返回0
+     */
+    static long readContentLength(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        if (header.getInt(0) != MAGIC) {
+            return 0;
+        }
+        return Math.max(0, Math.min(header.getLong(LENGTH_OFFSET), channel.size() - HEADER_SIZE));
+    }
+
+    /**
+     * 转存日志文件夹中遗留的内存映射日志文件（上次进程异常退出时没有正常关闭的文件）
+     *
+     * @param logDir
+     */
+    static void recoverAll(File logDir) {
+        File[] files = logDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_SUFFIX)) {
+                try {
+                    recover(file, new File(logDir, getLogFileName(file)));
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    static String getLogFileName(File mappedFile) {
+        String name = mappedFile.getName();
+        return name.substring(0, name.length() - FILE_SUFFIX.length()) + ".log";
+    }
+}
@@ -0,0 +1,50 @@
+package com.ueueo.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+
+/**
+ * 内存映射文件输出Log
+ * <p>
+ * 日志直接写入内存映射的文件区域，写入成本接近一次内存拷贝，适合在正式版本中记录日志。
+ * 进程崩溃或被系统杀死时已写入的日志仍然保留在系统页缓存中，下次启动时会自动恢复为普通的文本日志文件
+ * <p>
+ * 日志写入过程中的文件后缀为.mmap，关闭或恢复后转存为.log文件
+ */
+public class UEMmapFileLogTool extends UEFileLogTool {
+
+    // 默认每次映射的文件区域大小
+    private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private int mChunkSize = DEFAULT_CHUNK_SIZE;
+    // 已经恢复过遗留文件的日志文件夹，同一文件夹只在第一次打开时恢复
+    private final HashSet<File> mRecoveredDirs = new HashSet<>();
+
+    public UEMmapFileLogTool() {
+        super();
+    }
+
+    /**
+     * 设置每次映射的文件区域大小，写满后文件按此大小扩展，只对之后新打开的日志文件有效
+     *
+     * @param chunkSize 字节数
+     * @return
+     */
+    public UEMmapFileLogTool chunkSize(int chunkSize) {
+        if (chunkSize < 4096) {
+            chunkSize = 4096;
+        }
+        mChunkSize = chunkSize;
+        return this;
+    }
+
+    @Override
+    UELogFileWriter openWriter(String trueTag) throws IOException {
+        File logDir = getLogDir(trueTag);
+        if (mRecoveredDirs.add(logDir)) {
+            UEMappedLogFileWriter.recoverAll(logDir);
+        }
+        return new UEMappedLogFileWriter(createLogFile(logDir, UEMappedLogFileWriter.FILE_SUFFIX), mChunkSize);
+    }
+}
@@ -0,0 +1,122 @@
+package com.ueueo.log;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 对象格式化
+ * <p>
+ * 使用配置中共享的Gson把对象一次性序列化为缩进后的Json，直接写入输出缓冲区；
+ * 注册了{@link UEObjectRenderer}的类使用自定义的输出格式
+ */
+final class UEObjectFormatter {
+
+    private static final String INDENT = "    ";
+
+    private UEObjectFormatter() {
+    }
+
+    /**
+     * 格式化对象
+     *
+     * @param obj     不为null
+     * @param config  提供Gson和自定义输出格式
+     * @param out     输出缓冲区
+     * @param newline 换行时写入的内容，可以在换行后加上边框等前缀
+     * @return 是否格式化成功，失败时out恢复为调用前的内容
+     */
+    @SuppressWarnings("unchecked")
+    static boolean format(Object obj, UELogConfig config, StringBuilder out, String newline) {
+        int start = out.length();
+        LineWriter writer = new LineWriter(out, newline);
+        try {
+            UEObjectRenderer<Object> renderer = (UEObjectRenderer<Object>) config.getObjectRenderer(obj.getClass());
+            if (renderer != null) {
+                renderer.render(obj, writer);
+            } else {
+                Gson gson = config.getGson();
+                JsonWriter jsonWriter = new JsonWriter(writer);
+                jsonWriter.setIndent(INDENT);
+                gson.toJson(obj, obj.getClass(), jsonWriter);
+                jsonWriter.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            out.setLength(start);
+            return false;
+        } catch (RuntimeException e) {
+            //异步输出时对象可能正在被其他线程修改
+            out.setLength(start);
+            return false;
+        }
+    }
+
+    /**
+     * 把内容写入StringBuilder，换行时替换为指定的内容
+     */
+    private static final class LineWriter extends Writer {
+
+        private final StringBuilder mOut;
+        private final String mNewline;
+
+        LineWriter(StringBuilder out, String newline) {
+            mOut = out;
+            mNewline = newline;
+        }
+
+        @Override
+        public void write(int c) {
+            if (c == '\n') {
+                mOut.append(mNewline);
+            } else {
+                mOut.append((char) c);
+            }
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            int end = off + len;
+            int start = off;
+            for (int i = off; i < end; i++) {
+                if (buf[i] == '\n') {
+                    mOut.append(buf, start, i - start).append(mNewline);
+                    start = i + 1;
+                }
+            }
+            mOut.append(buf, start, end - start);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            int end = off + len;
+            int start = off;
+            for (int i = off; i < end; i++) {
+                if (str.charAt(i) == '\n') {
+                    mOut.append(str, start, i).append(mNewline);
+                    start = i + 1;
+                }
+            }
+            mOut.append(str, start, end);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            if (csq == null) {
+                csq = "null";
+            }
+            write(csq.toString(), 0, csq.length());
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ueueo.log;
+
+import java.io.IOException;
+
+/**
+ * 对象输出格式
+ * <p>
+ * 通过{@link UELogConfig#addObjectRenderer(Class, UEObjectRenderer)}为指定的类注册，
+ * 输出该类的对象时不再通过Gson反射序列化，适合频繁输出的对象
+ *
+ * @param <T>
+ */
+public interface UEObjectRenderer<T> {
+
+    /**
+     * 将对象输出到out中，多行内容使用'\n'换行
+     *
+     * @param obj 要输出的对象，不为null
+     * @param out
+     * @throws IOException
+     */
+    void render(T obj, Appendable out) throws IOException;
+}
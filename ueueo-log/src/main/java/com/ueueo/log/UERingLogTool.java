@@ -0,0 +1,362 @@
+package com.ueueo.log;
+
+import android.os.Environment;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 内存环形缓冲区Log
+ * <p>
+ * 只在内存中保留最近的日志，写满后覆盖最旧的日志。缓冲区在创建时一次分配，记录日志时只保存格式化后日志内容的引用，
+ * 不加锁也不分配新的对象，适合在线上开启VERBOSE级别的日志，只在需要时输出：
+ * <pre>
+ * UELog.getLogConfig().logToolRule(androidLogTool, new UELogToolRule().level(UELogLevel.INFO));
+ * UELog.addLogTool(new UERingLogTool(4096).dumpOnCrash());
+ * //需要时把最近的日志写入文件，或者输出到其他日志工具
+ * UELog.dumpRingLog(file);
+ * UELog.dumpRingLog();
+ * </pre>
+ * 一般配合{@link UELogToolRule}使用，其他日志工具只输出较高级别的日志，环形缓冲区记录所有级别的日志。
+ * 只输出到环形缓冲区的日志只格式化内容，不进行排版
+ */
+public class UERingLogTool implements UELogEventTool {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    //崩溃时等待异步缓冲区中的日志输出的最长时间
+    private static final long CRASH_FLUSH_TIMEOUT_MILLIS = 1000;
+    //读取时日志正在写入的最多等待次数
+    private static final int MAX_READ_RETRY = 100;
+    //按日志级别索引的Log优先级，和UEFileLogTool中的对应关系相同
+    private static final int[] PRIORITIES = {2, 2, 3, 4, 5, 6, 6, 6};
+
+    private final int mMask;
+    //下一条日志的序号
+    private final AtomicLong mNext = new AtomicLong();
+    //清空缓冲区时的序号，之前的日志不再输出
+    private volatile long mStart;
+    //每个位置的版本号：序号为n的日志写入时为2n+1，写完后为2n+2，0表示没有日志
+    private final AtomicLongArray mStamps;
+    private final Slot[] mSlots;
+
+    private volatile UELogLayout mLayout = UELogLayout.DEFAULT;
+    private boolean mCrashHandlerInstalled;
+
+    public UERingLogTool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 最多保留的日志条数，会向上取整为2的幂
+     */
+    public UERingLogTool(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        mMask = size - 1;
+        mStamps = new AtomicLongArray(size);
+        mSlots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            mSlots[i] = new Slot();
+        }
+    }
+
+    /**
+     * 设置写入文件时每一行的格式，参考{@link UELogLayout}
+     *
+     * @param pattern
+     * @return
+     */
+    public UERingLogTool layout(String pattern) {
+        mLayout = UELogLayout.compile(pattern);
+        return this;
+    }
+
+    /**
+     * 发生未捕获的异常时，把缓冲区中的日志写入外部存储UELOG/crash文件夹，然后交给原来的异常处理器
+     *
+     * @return
+     */
+    public UERingLogTool dumpOnCrash() {
+        return dumpOnCrash(new File(new File(Environment.getExternalStorageDirectory(), "UELOG"), "crash"));
+    }
+
+    /**
+     * 发生未捕获的异常时，把缓冲区中的日志写入指定的文件夹，然后交给原来的异常处理器
+     * <p>
+     * 写入前最多等待1秒让{@link UELog}异步缓冲区中的日志输出，并把文件日志工具缓冲的日志写入文件
+     *
+     * @param crashDir 日志文件存储的文件夹，文件名为崩溃的时间
+     * @return
+     */
+    public synchronized UERingLogTool dumpOnCrash(final File crashDir) {
+        if (mCrashHandlerInstalled) {
+            return this;
+        }
+        mCrashHandlerInstalled = true;
+        final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable ex) {
+                try {
+                    //异步缓冲区中还有最近的日志，先输出到环形缓冲区和其他日志工具
+                    UELog.flush(CRASH_FLUSH_TIMEOUT_MILLIS);
+                } catch (Throwable e) {
+                }
+                try {
+                    long now = System.currentTimeMillis();
+                    StringWriter writer = new StringWriter();
+                    ex.printStackTrace(new PrintWriter(writer));
+                    record(UELogLevel.ASSERT, UELogConfig.DEFAULT_TAG, UELogConfig.DEFAULT_TAG, thread.getName(), null,
+                            "Uncaught exception : " + writer, now);
+                    crashDir.mkdirs();
+                    String fileName = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(now)) + ".log";
+                    dump(new File(crashDir, fileName));
+                } catch (Throwable e) {
+                    //写入失败时不影响原来的异常处理
+                }
+                if (previous != null) {
+                    previous.uncaughtException(thread, ex);
+                }
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public void d(String tag, String message) {
+        logText(UELogLevel.DEBUG, tag, message);
+    }
+
+    @Override
+    public void e(String tag, String message) {
+        logText(UELogLevel.ERROR, tag, message);
+    }
+
+    @Override
+    public void w(String tag, String message) {
+        logText(UELogLevel.WARN, tag, message);
+    }
+
+    @Override
+    public void i(String tag, String message) {
+        logText(UELogLevel.INFO, tag, message);
+    }
+
+    @Override
+    public void v(String tag, String message) {
+        logText(UELogLevel.VERBOSE, tag, message);
+    }
+
+    @Override
+    public void wtf(String tag, String message) {
+        logText(UELogLevel.ASSERT, tag, message);
+    }
+
+    private void logText(int level, String tag, String message) {
+        record(level, tag.split("\\[")[0], tag, Thread.currentThread().getName(), null, message, System.currentTimeMillis());
+    }
+
+    /**
+     * 记录格式化后的日志内容，不保存边框和拼接的内容
+     *
+     * @param event
+     */
+    @Override
+    public void log(UELogEvent event) {
+        String caller = event.callerFrameCount > 0 ? event.callerFrames[0] : null;
+        record(event.level, event.tag, event.displayTag, event.threadName, caller, event.formattedMessage, event.timeMillis);
+    }
+
+    private void record(int level, String tag, String displayTag, String thread, String caller, String message, long time) {
+        long sequence = mNext.getAndIncrement();
+        int index = (int) sequence & mMask;
+        long stamp = sequence * 2 + 2;
+        while (true) {
+            long current = mStamps.get(index);
+            if (current >= stamp) {
+                //写满一圈后更新的日志已经写入这个位置
+                return;
+            }
+            if ((current & 1) == 0 && mStamps.compareAndSet(index, current, stamp - 1)) {
+                break;
+            }
+            //另一个线程正在写入这个位置
+            Thread.yield();
+        }
+        Slot slot = mSlots[index];
+        slot.mTime = time;
+        slot.mLevel = level;
+        slot.mTag = tag;
+        slot.mDisplayTag = displayTag;
+        slot.mThread = thread;
+        slot.mCaller = caller;
+        slot.mMessage = message;
+        mStamps.set(index, stamp);
+    }
+
+    /**
+     * @return 缓冲区中的日志条数
+     */
+    public int size() {
+        return (int) Math.min(mNext.get() - mStart, mMask + 1);
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public void clear() {
+        mStart = mNext.get();
+    }
+
+    /**
+     * 把缓冲区中的日志写入文件，已存在的文件会被覆盖
+     *
+     * @param file
+     * @return 写入的日志条数
+     * @throws IOException
+     */
+    public int dump(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            return dump(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 按从旧到新的顺序输出缓冲区中的日志，格式和{@link UEFileLogTool}相同，不会清空缓冲区
+     *
+     * @param out 输出UTF-8编码的文本
+     * @return 输出的日志条数
+     * @throws IOException
+     */
+    public int dump(OutputStream out) throws IOException {
+        final OutputStream output = out;
+        final UELogLayout layout = mLayout;
+        final UELogLineEncoder encoder = new UELogLineEncoder();
+        final StringBuilder line = new StringBuilder(256);
+        final IOException[] error = new IOException[1];
+        int count = forEach(new Visitor() {
+            @Override
+            public void visit(long time, int level, String tag, String displayTag, String thread, String caller, String message) {
+                if (error[0] != null) {
+                    return;
+                }
+                line.setLength(0);
+                if (caller != null) {
+                    line.append('[').append(caller).append("] ");
+                }
+                line.append(message);
+                int priority = level >= 0 && level < PRIORITIES.length ? PRIORITIES[level] : PRIORITIES[0];
+                ByteBuffer bytes = encoder.encode(layout, priority, displayTag, thread, line, time);
+                try {
+                    output.write(bytes.array(), 0, bytes.limit());
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        });
+        encoder.recycle();
+        if (error[0] != null) {
+            throw error[0];
+        }
+        return count;
+    }
+
+    /**
+     * 把缓冲区中的日志重新交给打印机输出到其他日志工具，日志的时间、级别和Tag保持不变
+     */
+    int replay(final UELogPrinter printer) {
+        final UELogEvent event = new UELogEvent();
+        return forEach(new Visitor() {
+            @Override
+            public void visit(long time, int level, String tag, String displayTag, String thread, String caller, String message) {
+                event.level = level;
+                event.tag = tag;
+                event.threadName = thread;
+                event.timeMillis = time;
+                event.printToFile = true;
+                event.message = message;
+                if (caller != null) {
+                    event.frames(1)[0] = caller;
+                    event.callerFrameCount = 1;
+                }
+                printer.replay(event);
+                event.reset();
+            }
+        });
+    }
+
+    /**
+     * 按从旧到新的顺序遍历缓冲区中的日志，遍历期间被覆盖或者还没有写入的日志会被跳过
+     */
+    private int forEach(Visitor visitor) {
+        long end = mNext.get();
+        long start = Math.max(mStart, end - (mMask + 1));
+        int count = 0;
+        for (long sequence = start; sequence < end; sequence++) {
+            int index = (int) sequence & mMask;
+            long stamp = sequence * 2 + 2;
+            if (!awaitStamp(index, stamp)) {
+                continue;
+            }
+            Slot slot = mSlots[index];
+            long time = slot.mTime;
+            int level = slot.mLevel;
+            String tag = slot.mTag;
+            String displayTag = slot.mDisplayTag;
+            String thread = slot.mThread;
+            String caller = slot.mCaller;
+            String message = slot.mMessage;
+            if (mStamps.get(index) != stamp) {
+                //读取期间被更新的日志覆盖
+                continue;
+            }
+            visitor.visit(time, level, tag, displayTag != null ? displayTag : tag, thread != null ? thread : "",
+                    caller, message != null ? message : "");
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return 位置中是否为指定版本的日志，日志正在写入时等待写完
+     */
+    private boolean awaitStamp(int index, long stamp) {
+        for (int retry = 0; ; retry++) {
+            long current = mStamps.get(index);
+            if (current != stamp - 1 || retry >= MAX_READ_RETRY) {
+                return current == stamp;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 环形缓冲区中的一个位置，创建时分配，之后重复使用。
+     * 字段都是volatile，和版本号一起保证读取到的版本号前后一致时字段都属于同一条日志
+     */
+    private static final class Slot {
+        volatile long mTime;
+        volatile int mLevel;
+        volatile String mTag;
+        volatile String mDisplayTag;
+        volatile String mThread;
+        volatile String mCaller;
+        volatile String mMessage;
+    }
+
+    private interface Visitor {
+        void visit(long time, int level, String tag, String displayTag, String thread, String caller, String message);
+    }
+}
@@ -0,0 +1,359 @@
+package com.ueueo.log;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Xml格式化
+ * <p>
+ * 用XmlPullParser逐个读取节点，一边读取一边把缩进后的结果直接写入输出缓冲区，不需要构建DOM，
+ * 也不需要每次都创建Transformer。每个线程复用同一个解析器
+ */
+final class UEXmlFormatter {
+
+    private static final int INDENT = 2;
+
+    private static volatile XmlPullParserFactory sFactory;
+
+    private static final ThreadLocal<XmlPullParser> sParser = new ThreadLocal<>();
+
+    //每个线程复用的文本缓冲区，暂存相邻的文本、CDATA和实体引用
+    private static final ThreadLocal<StringBuilder> sText = new ThreadLocal<>();
+
+    private UEXmlFormatter() {
+    }
+
+    /**
+     * 格式化Xml字符串，已经缩进过的Xml校验后原样输出
+     *
+     * @param xml       Xml字符串
+     * @param out       输出缓冲区
+     * @param newline   换行时写入的内容，可以在换行后加上边框等前缀
+     * @param maxLength 最多输出的Xml内容字符数，不包括换行和缩进，超出后截断，0表示不限制
+     * @return Xml格式是否正确，格式错误时out恢复为调用前的内容
+     */
+    static boolean format(String xml, StringBuilder out, String newline, int maxLength) {
+        final int start = out.length();
+        final UEFormatLimit limit = new UEFormatLimit(out, start, newline, maxLength);
+        int begin = 0;
+        int end = xml.length();
+        while (begin < end && isWhitespace(xml.charAt(begin))) {
+            begin++;
+        }
+        while (end > begin && isWhitespace(xml.charAt(end - 1))) {
+            end--;
+        }
+        if (begin == end || xml.charAt(begin) != '<') {
+            return false;
+        }
+        XmlPullParser parser = obtainParser();
+        if (parser == null) {
+            return false;
+        }
+        if (isIndented(xml, begin, end)) {
+            //已经缩进过的Xml原样输出，但仍然完整解析一遍，和重新缩进时的校验相同
+            if (!validate(parser, xml)) {
+                return false;
+            }
+            appendLines(out, xml, begin, end, newline);
+            limit.truncate(xml.length());
+            return true;
+        }
+        StringBuilder text = sText.get();
+        if (text == null) {
+            text = new StringBuilder();
+            sText.set(text);
+        }
+        text.setLength(0);
+        //Xml声明不会作为节点返回，单独输出一行
+        if (xml.startsWith("<?xml", begin)) {
+            int declEnd = xml.indexOf("?>", begin);
+            if (declEnd < 0) {
+                return false;
+            }
+            out.append(xml, begin, declEnd + 2);
+        }
+        int depth = 0;
+        //开始标签还没有输出'>'
+        boolean open = false;
+        //当前元素的内容只有文本，结束标签和文本输出在同一行
+        boolean inline = false;
+        try {
+            parser.setInput(new StringReader(xml));
+            int type = parser.getEventType();
+            while (type != XmlPullParser.END_DOCUMENT) {
+                if (limit.truncate(xml.length())) {
+                    return true;
+                }
+                switch (type) {
+                    case XmlPullParser.TEXT:
+                        appendEscaped(text, parser.getText(), false, newline);
+                        break;
+                    case XmlPullParser.ENTITY_REF:
+                        String value = parser.getText();
+                        if (value != null) {
+                            appendEscaped(text, value, false, newline);
+                        } else {
+                            text.append('&').append(parser.getName()).append(';');
+                        }
+                        break;
+                    case XmlPullParser.CDSECT:
+                        text.append("<![CDATA[");
+                        appendLines(text, parser.getText(), 0, parser.getText().length(), newline);
+                        text.append("]]>");
+                        break;
+                    case XmlPullParser.START_TAG:
+                        open = appendText(out, text, open, newline, depth, start);
+                        if (open) {
+                            out.append('>');
+                        }
+                        appendNewline(out, newline, depth, start);
+                        out.append('<').append(parser.getName());
+                        for (int i = 0, count = parser.getAttributeCount(); i < count; i++) {
+                            out.append(' ').append(parser.getAttributeName(i)).append("=\"");
+                            appendEscaped(out, parser.getAttributeValue(i), true, newline);
+                            out.append('"');
+                        }
+                        open = true;
+                        inline = false;
+                        depth++;
+                        break;
+                    case XmlPullParser.END_TAG:
+                        if (text.length() > 0 && open && hasContent(text)) {
+                            inline = true;
+                        }
+                        open = appendText(out, text, open, newline, depth, start);
+                        depth--;
+                        if (open) {
+                            out.append("/>");
+                        } else {
+                            if (!inline) {
+                                appendNewline(out, newline, depth, start);
+                            }
+                            out.append("</").append(parser.getName()).append('>');
+                        }
+                        open = false;
+                        inline = false;
+                        break;
+                    case XmlPullParser.COMMENT:
+                    case XmlPullParser.PROCESSING_INSTRUCTION:
+                    case XmlPullParser.DOCDECL:
+                        open = appendText(out, text, open, newline, depth, start);
+                        if (open) {
+                            out.append('>');
+                            open = false;
+                        }
+                        inline = false;
+                        appendNewline(out, newline, depth, start);
+                        if (type == XmlPullParser.COMMENT) {
+                            out.append("<!--").append(parser.getText()).append("-->");
+                        } else if (type == XmlPullParser.PROCESSING_INSTRUCTION) {
+                            out.append("<?").append(parser.getText()).append("?>");
+                        } else {
+                            out.append("<!DOCTYPE").append(parser.getText()).append('>');
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                type = parser.nextToken();
+            }
+            if (limit.truncate(xml.length())) {
+                return true;
+            }
+            if (depth != 0) {
+                out.setLength(start);
+                return false;
+            }
+            return true;
+        } catch (XmlPullParserException | IOException e) {
+            out.setLength(start);
+            return false;
+        } finally {
+            text.setLength(0);
+            try {
+                //释放对输入内容的引用
+                parser.setInput(null);
+            } catch (XmlPullParserException ignored) {
+            }
+        }
+    }
+
+    private static XmlPullParser obtainParser() {
+        XmlPullParser parser = sParser.get();
+        if (parser != null) {
+            return parser;
+        }
+        try {
+            XmlPullParserFactory factory = sFactory;
+            if (factory == null) {
+                factory = XmlPullParserFactory.newInstance();
+                sFactory = factory;
+            }
+            parser = factory.newPullParser();
+        } catch (XmlPullParserException e) {
+            return null;
+        }
+        sParser.set(parser);
+        return parser;
+    }
+
+    /**
+     * 读取全部节点并丢弃，只检查Xml格式是否正确
+     */
+    private static boolean validate(XmlPullParser parser, String xml) {
+        try {
+            parser.setInput(new StringReader(xml));
+            int depth = 0;
+            int type = parser.getEventType();
+            while (type != XmlPullParser.END_DOCUMENT) {
+                if (type == XmlPullParser.START_TAG) {
+                    depth++;
+                } else if (type == XmlPullParser.END_TAG) {
+                    depth--;
+                }
+                type = parser.nextToken();
+            }
+            return depth == 0;
+        } catch (XmlPullParserException | IOException e) {
+            return false;
+        } finally {
+            try {
+                parser.setInput(null);
+            } catch (XmlPullParserException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 输出暂存的文本，只包含空白的文本会被忽略
+     *
+     * @return 开始标签是否仍然没有输出'>'
+     */
+    private static boolean appendText(StringBuilder out, StringBuilder text, boolean open, String newline, int depth, int start) {
+        if (text.length() == 0) {
+            return open;
+        }
+        int begin = 0;
+        int end = text.length();
+        while (begin < end && isWhitespace(text.charAt(begin))) {
+            begin++;
+        }
+        while (end > begin && isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (begin < end) {
+            if (open) {
+                //只包含文本的元素输出在同一行
+                out.append('>');
+                open = false;
+            } else {
+                appendNewline(out, newline, depth, start);
+            }
+            out.append(text, begin, end);
+        }
+        text.setLength(0);
+        return open;
+    }
+
+    private static boolean hasContent(StringBuilder text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isWhitespace(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendNewline(StringBuilder out, String newline, int depth, int start) {
+        if (out.length() == start) {
+            return;
+        }
+        out.append(newline);
+        for (int i = depth * INDENT; i > 0; i--) {
+            out.append(' ');
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, String value, boolean attribute, String newline) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append(attribute ? ">" : "&gt;");
+                    break;
+                case '"':
+                    out.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\n':
+                    out.append(newline);
+                    break;
+                case '\r':
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 原样输出，把换行替换为newline
+     */
+    private static void appendLines(StringBuilder out, String content, int begin, int end, String newline) {
+        int lineStart = begin;
+        for (int i = begin; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == '\n' || c == '\r') {
+                out.append(content, lineStart, i);
+                if (c == '\n') {
+                    out.append(newline);
+                }
+                lineStart = i + 1;
+            }
+        }
+        out.append(content, lineStart, end);
+    }
+
+    /**
+     * 已经换行并缩进过的Xml：第一个标签之后换行，并且下一行以空白和'<'开始
+     */
+    private static boolean isIndented(String xml, int begin, int end) {
+        int i = xml.indexOf('>', begin);
+        if (i < 0 || i + 1 >= end) {
+            return false;
+        }
+        i++;
+        if (xml.charAt(i) == '\r') {
+            i++;
+        }
+        if (i >= end || xml.charAt(i) != '\n') {
+            return false;
+        }
+        i++;
+        boolean indented = false;
+        while (i < end && (xml.charAt(i) == ' ' || xml.charAt(i) == '\t')) {
+            indented = true;
+            i++;
+        }
+        //Xml声明之后的第一个标签不需要缩进
+        if (!indented && !xml.startsWith("<?", begin)) {
+            return false;
+        }
+        return i < end && xml.charAt(i) == '<' && (indented || isIndented(xml, i, end));
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,158 @@
+package com.ueueo.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UEBinaryLogTool}写入的日志经{@link UEBinaryLogDecoder}还原后内容不变
+ */
+public class UEBinaryLogToolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decode_restoresPatternTextJsonAndAppends() throws Exception {
+        File dir = folder.newFolder();
+        UEBinaryLogTool tool = new UEBinaryLogTool(dir);
+
+        UELogEvent event = newEvent(UELogLevel.INFO, "Pattern");
+        event.message = "user=%s id=%d size=%d ok=%b grade=%c";
+        event.args = new Object[]{"小明", 42, 1L << 40, true, 'A'};
+        event.argCount = event.args.length;
+        event.frames(1)[0] = "Main.onCreate(Main.java:12)";
+        event.callerFrameCount = 1;
+        event.appendMessages = Arrays.asList("appended 😀");
+        tool.log(event);
+
+        event = newEvent(UELogLevel.WARN, "Text");
+        event.formattedMessage = "already formatted";
+        tool.log(event);
+
+        event = newEvent(UELogLevel.DEBUG, "Json");
+        event.contentType = UELogEvent.CONTENT_JSON;
+        event.message = "{\"key\":\"value\"}";
+        tool.log(event);
+
+        tool.i("Plain", "from logTool");
+        tool.close();
+
+        String text = decode(singleFile(dir));
+        assertTrue(text, text.contains("user=小明 id=42 size=1099511627776 ok=true grade=A"));
+        assertTrue(text, text.contains("Main.onCreate(Main.java:12)"));
+        assertTrue(text, text.contains("appended 😀"));
+        assertTrue(text, text.contains("already formatted"));
+        assertTrue(text, text.contains("\"key\": \"value\""));
+        assertTrue(text, text.contains("from logTool"));
+        assertTrue(text, text.indexOf("user=") < text.indexOf("already formatted"));
+    }
+
+    @Test
+    public void decode_keepsLiteralMessageWithoutArgs() throws Exception {
+        File dir = folder.newFolder();
+        UEBinaryLogTool tool = new UEBinaryLogTool(dir);
+
+        UELogEvent event = newEvent(UELogLevel.INFO, "Literal");
+        event.message = "progress 100% done, body={} code=%d";
+        event.formattedMessage = event.message;
+        tool.log(event);
+        tool.close();
+
+        String text = decode(singleFile(dir));
+        assertTrue(text, text.contains("progress 100% done, body={} code=%d"));
+    }
+
+    @Test
+    public void decode_ignoresTruncatedLastRecord() throws Exception {
+        File dir = folder.newFolder();
+        UEBinaryLogTool tool = new UEBinaryLogTool(dir);
+        tool.i("Tag", "complete");
+        tool.i("Tag", "will be truncated");
+        tool.close();
+
+        File file = singleFile(dir);
+        byte[] bytes = readAll(file);
+        File truncated = folder.newFile();
+        FileOutputStream out = new FileOutputStream(truncated);
+        out.write(bytes, 0, bytes.length - 3);
+        out.close();
+
+        String text = decode(truncated);
+        assertTrue(text, text.contains("complete"));
+        assertFalse(text, text.contains("will be truncated"));
+    }
+
+    @Test
+    public void idleWriter_flushesOnTimer() throws Exception {
+        File dir = folder.newFolder();
+        UEBinaryLogTool tool = new UEBinaryLogTool(dir).flushInterval(50);
+        tool.i("Tag", "first");
+        tool.i("Tag", "idle");
+
+        File file = singleFile(dir);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!decode(file).contains("idle") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(decode(file).contains("idle"));
+        tool.close();
+    }
+
+    private static UELogEvent newEvent(int level, String tag) {
+        UELogEvent event = new UELogEvent();
+        event.level = level;
+        event.tag = tag;
+        event.displayTag = tag;
+        event.threadName = "main";
+        event.timeMillis = System.currentTimeMillis();
+        return event;
+    }
+
+    private static File singleFile(File dir) {
+        File[] files = dir.listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static String decode(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream input = new FileInputStream(file);
+        try {
+            new UEBinaryLogDecoder(input).decode(out);
+        } catch (IOException e) {
+            //文件头还没有写入
+            return "";
+        } finally {
+            input.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            input.close();
+        }
+        return out.toByteArray();
+    }
+}
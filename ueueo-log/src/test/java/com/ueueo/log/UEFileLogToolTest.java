@@ -0,0 +1,175 @@
+package com.ueueo.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.Calendar;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UEFileLogTool}按大小和时间滚动日志文件，以及按数量和总大小清理旧文件
+ */
+public class UEFileLogToolTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sizeRoll_startsNewFileAfterMaxSize() throws Exception {
+        File root = folder.newFolder();
+        UEFileLogTool tool = new UEFileLogTool(root).flushInterval(0).maxFileSize(256);
+        for (int i = 0; i < 20; i++) {
+            tool.i("Size", line(i));
+        }
+        tool.close();
+
+        File[] files = new File(root, "Size").listFiles();
+        assertTrue(String.valueOf(files.length), files.length >= 3);
+        StringBuilder all = new StringBuilder();
+        for (File file : files) {
+            String text = read(file);
+            //写入前检查大小，每个文件最多超出一行
+            assertTrue(file.getName() + " " + text.length(), text.length() < 256 + 128);
+            all.append(text);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertTrue(line(i), all.indexOf(line(i)) >= 0);
+        }
+    }
+
+    @Test
+    public void timeRoll_rollsAtNextHour() throws Exception {
+        File root = folder.newFolder();
+        UEFileLogTool tool = new UEFileLogTool(root).flushInterval(0).rollInterval(UEFileLogTool.ROLL_HOURLY);
+        long before = nextHour(System.currentTimeMillis());
+        tool.i("Time", line(0));
+        long after = nextHour(System.currentTimeMillis());
+        UELogFileWriter writer = writers(tool).get("Time");
+        assertTrue(writer.mRollTime == before || writer.mRollTime == after);
+
+        //模拟到达滚动时间
+        writer.mRollTime = System.currentTimeMillis() - 1;
+        tool.i("Time", line(1));
+        tool.close();
+
+        File[] files = new File(root, "Time").listFiles();
+        assertEquals(2, files.length);
+        assertTrue(read(files[0]).contains(line(0)) != read(files[1]).contains(line(0)));
+    }
+
+    @Test
+    public void retention_keepsNewestFilesByCount() throws Exception {
+        File root = folder.newFolder();
+        UEFileLogTool tool = new UEFileLogTool(root).flushInterval(0).maxFileSize(128).maxFileCount(2);
+        for (int i = 0; i < 8; i++) {
+            tool.i("Count", line(i));
+            //文件修改时间不同，清理时按时间排序
+            Thread.sleep(5);
+        }
+        File dir = new File(root, "Count");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (dir.listFiles().length > 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        tool.close();
+
+        File[] files = dir.listFiles();
+        assertEquals(2, files.length);
+        String text = read(files[0]) + read(files[1]);
+        assertTrue(text, text.contains(line(7)));
+        assertFalse(text, text.contains(line(0)));
+    }
+
+    @Test
+    public void retention_keepsTotalSizeUnderLimit() throws Exception {
+        File root = folder.newFolder();
+        UEFileLogTool tool = new UEFileLogTool(root).flushInterval(0).maxFileSize(128).maxTotalSize(400);
+        for (int i = 0; i < 8; i++) {
+            tool.i("Total", line(i));
+            Thread.sleep(5);
+        }
+        File dir = new File(root, "Total");
+        //滚动时清理，正在写入的文件在下一次滚动前可以继续增长
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (totalSize(dir) - newest(dir).length() > 400 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        tool.close();
+
+        long rolledSize = totalSize(dir) - newest(dir).length();
+        assertTrue(String.valueOf(rolledSize), rolledSize <= 400);
+        assertTrue(String.valueOf(dir.listFiles().length), dir.listFiles().length < 8);
+        StringBuilder text = new StringBuilder();
+        for (File file : dir.listFiles()) {
+            text.append(read(file));
+        }
+        assertTrue(text.toString(), text.indexOf(line(7)) >= 0);
+    }
+
+    private static String line(int index) {
+        return "line-" + index + " xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx";
+    }
+
+    private static long nextHour(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.HOUR_OF_DAY, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, UELogFileWriter> writers(UEFileLogTool tool) throws Exception {
+        Field field = UEFileLogTool.class.getDeclaredField("mLogWriters");
+        field.setAccessible(true);
+        return (Map<String, UELogFileWriter>) field.get(tool);
+    }
+
+    private static File newest(File dir) {
+        File newest = null;
+        for (File file : dir.listFiles()) {
+            if (newest == null || file.lastModified() > newest.lastModified()) {
+                newest = file;
+            }
+        }
+        return newest;
+    }
+
+    private static long totalSize(File dir) {
+        long size = 0;
+        for (File file : dir.listFiles()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    private static String read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            input.close();
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,162 @@
+package com.ueueo.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UEIndexedLogTool}的查询只读取索引中可能匹配的块
+ */
+public class UEIndexedLogToolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void query_skipsBlocksOutsideTagTimeAndLevel() throws Exception {
+        File dir = folder.newFolder();
+        UEIndexedLogTool tool = new UEIndexedLogTool(dir).flushInterval(60000);
+        tool.log(newEvent(1000, UELogLevel.INFO, "Noise", "noise 1"));
+        tool.log(newEvent(1001, UELogLevel.WARN, "Noise", "noise 2"));
+        tool.flush();
+        File dataFile = singleFile(dir, UEIndexedLogTool.DATA_SUFFIX);
+        long endA = dataFile.length();
+        tool.log(newEvent(2000, UELogLevel.WARN, "Payment", "paid"));
+        tool.flush();
+        long endB = dataFile.length();
+        tool.log(newEvent(3000, UELogLevel.DEBUG, "Payment", "debug"));
+        tool.close();
+        long endC = dataFile.length();
+
+        //破坏不应该被读取的块，读取到这些块时查询会出错
+        int header = UEIndexedLogTool.DATA_MAGIC.length + 1;
+        corrupt(dataFile, header, endA);
+        corrupt(dataFile, endB, endC);
+
+        List<UELogRecord> records = new ArrayList<>();
+        assertEquals(1, tool.query(0, Long.MAX_VALUE, UELogLevel.WARN, "Pay*", collect(records)));
+        assertEquals("paid", records.get(0).getMessage());
+        assertEquals("Payment", records.get(0).getTag());
+        assertEquals(2000, records.get(0).getTimeMillis());
+
+        records.clear();
+        assertEquals(1, tool.query(1500, 2500, UELogLevel.VERBOSE, null, collect(records)));
+        assertEquals("paid", records.get(0).getMessage());
+
+        //确认被破坏的块确实无法读取
+        records.clear();
+        tool.query(0, Long.MAX_VALUE, UELogLevel.VERBOSE, "Noise", collect(records));
+        for (UELogRecord record : records) {
+            assertTrue(record.getMessage(), !record.getMessage().startsWith("noise"));
+        }
+    }
+
+    @Test
+    public void query_includesCurrentBlockAndStopsWhenVisitorReturnsFalse() throws Exception {
+        File dir = folder.newFolder();
+        UEIndexedLogTool tool = new UEIndexedLogTool(dir).flushInterval(60000);
+        UELogEvent event = newEvent(1000, UELogLevel.INFO, "Net", "request");
+        event.frames(1)[0] = "Api.call(Api.java:10)";
+        event.callerFrameCount = 1;
+        tool.log(event);
+        tool.log(newEvent(1001, UELogLevel.INFO, "NetClient", "response"));
+        tool.log(newEvent(1002, UELogLevel.INFO, "Other", "other"));
+
+        final List<UELogRecord> records = new ArrayList<>();
+        assertEquals(2, tool.query(0, Long.MAX_VALUE, UELogLevel.VERBOSE, "Net*", collect(records)));
+        assertEquals("request", records.get(0).getMessage());
+        assertEquals("Api.call(Api.java:10)", records.get(0).getCaller());
+        assertEquals("response", records.get(1).getMessage());
+        assertNull(records.get(1).getCaller());
+
+        records.clear();
+        int count = tool.query(0, Long.MAX_VALUE, UELogLevel.VERBOSE, "*", new UELogRecord.Visitor() {
+            @Override
+            public boolean visit(UELogRecord record) {
+                records.add(record);
+                return false;
+            }
+        });
+        assertEquals(1, count);
+        assertEquals(1, records.size());
+        tool.close();
+    }
+
+    @Test
+    public void retention_keepsNewestSegments() throws Exception {
+        File dir = folder.newFolder();
+        UEIndexedLogTool tool = new UEIndexedLogTool(dir).blockSize(1024).flushInterval(0).retention(1024, 2);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            message.append('x');
+        }
+        for (int i = 0; i < 10; i++) {
+            tool.log(newEvent(1000 + i, UELogLevel.INFO, "Big", i + message.toString()));
+        }
+        tool.close();
+
+        assertEquals(2, dir.listFiles(suffix(UEIndexedLogTool.INDEX_SUFFIX)).length);
+        List<UELogRecord> records = new ArrayList<>();
+        tool.query(0, Long.MAX_VALUE, UELogLevel.VERBOSE, null, collect(records));
+        assertTrue(String.valueOf(records.size()), records.size() > 0 && records.size() < 10);
+        assertTrue(records.get(records.size() - 1).getMessage().startsWith("9x"));
+    }
+
+    private static UELogEvent newEvent(long time, int level, String tag, String message) {
+        UELogEvent event = new UELogEvent();
+        event.level = level;
+        event.tag = tag;
+        event.displayTag = tag;
+        event.threadName = "main";
+        event.timeMillis = time;
+        event.formattedMessage = message;
+        return event;
+    }
+
+    private static UELogRecord.Visitor collect(final List<UELogRecord> records) {
+        return new UELogRecord.Visitor() {
+            @Override
+            public boolean visit(UELogRecord record) {
+                records.add(record);
+                return true;
+            }
+        };
+    }
+
+    private static void corrupt(File file, long from, long to) throws Exception {
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.seek(from);
+            for (long i = from; i < to; i++) {
+                output.write(0xFF);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private static File singleFile(File dir, String suffix) {
+        File[] files = dir.listFiles(suffix(suffix));
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static FileFilter suffix(final String suffix) {
+        return new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(suffix);
+            }
+        };
+    }
+}
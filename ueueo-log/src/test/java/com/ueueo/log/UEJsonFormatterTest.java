@@ -0,0 +1,87 @@
+package com.ueueo.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UEJsonFormatter}的格式化、校验和截断
+ */
+public class UEJsonFormatterTest {
+
+    private static final String BORDER = "\n║ ";
+
+    @Test
+    public void format_indentsObjectsAndArrays() {
+        StringBuilder out = new StringBuilder();
+        assertTrue(UEJsonFormatter.format(" {\"a\":1,\"b\":[true,null,\"x\\\"y\"],\"c\":{},\"d\":[]} ", out, "\n", 0));
+        assertEquals("{\n"
+                + "    \"a\": 1,\n"
+                + "    \"b\": [\n"
+                + "        true,\n"
+                + "        null,\n"
+                + "        \"x\\\"y\"\n"
+                + "    ],\n"
+                + "    \"c\": {},\n"
+                + "    \"d\": []\n"
+                + "}", out.toString());
+
+        out.setLength(0);
+        assertTrue(UEJsonFormatter.format("[-1.5e+3]", out, BORDER, 0));
+        assertEquals("[" + BORDER + "    -1.5e+3" + BORDER + "]", out.toString());
+    }
+
+    @Test
+    public void format_rejectsMalformedJsonAndRestoresOutput() {
+        String[] invalid = {"", "{", "{\"a\"}", "{\"a\":1,}", "[1 2]", "[1]]", "{\"a\":01x}", "{a:1}", "\"line\nbreak\"",
+                "[1.]", "{\"a\":1}{}", "[tru]"};
+        for (String json : invalid) {
+            StringBuilder out = new StringBuilder("prefix");
+            assertFalse(json, UEJsonFormatter.format(json, out, "\n", 0));
+            assertEquals(json, "prefix", out.toString());
+        }
+    }
+
+    @Test
+    public void truncate_stopsInsideLongString() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            value.append('x');
+        }
+        String json = "{\"key\":\"" + value + "\"}";
+        StringBuilder out = new StringBuilder();
+        assertTrue(UEJsonFormatter.format(json, out, "\n", 20));
+        assertEquals("{\n    \"key\": \"xxxxxxxxxxx\n... (truncated, " + json.length() + " chars total)", out.toString());
+    }
+
+    @Test
+    public void truncate_topLevelScalar() {
+        String json = "\"" + new String(Character.toChars(0x1F600)) + "abcdefghij\"";
+        StringBuilder out = new StringBuilder();
+        assertTrue(UEJsonFormatter.format(json, out, "\n", 2));
+        //表情占两个字符，截断在表情之前
+        assertEquals("\"\n... (truncated, " + json.length() + " chars total)", out.toString());
+
+        out.setLength(0);
+        assertTrue(UEJsonFormatter.format("12345678901234567890", out, BORDER, 5));
+        assertEquals("12345" + BORDER + "... (truncated, 20 chars total)", out.toString());
+
+        out.setLength(0);
+        assertTrue(UEJsonFormatter.format("\"short\"", out, "\n", 7));
+        assertEquals("\"short\"", out.toString());
+    }
+
+    @Test
+    public void truncate_sameCutWithAndWithoutBorder() {
+        String json = "{\"a\":\"xxxxxxxxxx\",\"b\":[1,2,3],\"c\":{\"d\":\"yy\"}}";
+        for (int maxLength = 1; maxLength < json.length() + 10; maxLength++) {
+            StringBuilder plain = new StringBuilder();
+            StringBuilder bordered = new StringBuilder();
+            assertTrue(UEJsonFormatter.format(json, plain, "\n", maxLength));
+            assertTrue(UEJsonFormatter.format(json, bordered, BORDER, maxLength));
+            assertEquals(plain.toString(), bordered.toString().replace(BORDER, "\n"));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ueueo.log;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UELogExporter}导出的zip文件和manifest.json
+ */
+public class UELogExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void export_writesValidZipWithManifest() throws Exception {
+        File root = folder.newFolder();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("line ").append(i).append(" 日志\n");
+        }
+        write(new File(root, "Main/2018-01-01 12:00.log"), text.toString().getBytes("UTF-8"));
+        byte[] gzip = gzip("rolled\n".getBytes("UTF-8"));
+        write(new File(root, "Main/2018-01-01 11:00.log.gz"), gzip);
+        write(new File(root, "Net/2018-01-01 12:00.log"), "net\n".getBytes("UTF-8"));
+        write(new File(root, "Net/2018-01-01 11:00.log.gz.tmp"), new byte[]{1, 2, 3});
+        //正在写入的文件只导出快照时的内容
+        File active = new File(root, "Net/2018-01-01 12:30.log");
+        write(active, "flushed\nunflushed\n".getBytes("UTF-8"));
+
+        UELogExporter exporter = new UELogExporter(root);
+        exporter.addActiveFile(active, 0, "flushed\n".length(), null);
+        //导出到日志文件夹中时不包括导出文件本身
+        File bundle = new File(root, "export.zip");
+        assertEquals(4, exporter.export(bundle));
+
+        ZipFile zip = new ZipFile(bundle);
+        try {
+            assertEquals(text.toString(), readEntry(zip, "Main/2018-01-01 12:00.log"));
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("Main/2018-01-01 12:00.log").getMethod());
+            //.gz文件不再压缩
+            ZipEntry gzEntry = zip.getEntry("Main/2018-01-01 11:00.log.gz");
+            assertEquals(ZipEntry.STORED, gzEntry.getMethod());
+            assertEquals(gzip.length, gzEntry.getSize());
+            assertEquals("net\n", readEntry(zip, "Net/2018-01-01 12:00.log"));
+            assertEquals("flushed\n", readEntry(zip, "Net/2018-01-01 12:30.log"));
+            assertNull(zip.getEntry("Net/2018-01-01 11:00.log.gz.tmp"));
+            assertNull(zip.getEntry("export.zip"));
+
+            JsonObject manifest = new JsonParser().parse(readEntry(zip, UELogExporter.MANIFEST_NAME)).getAsJsonObject();
+            assertEquals(root.getAbsolutePath(), manifest.get("root").getAsString());
+            JsonArray files = manifest.getAsJsonArray("files");
+            assertEquals(4, files.size());
+            for (int i = 0; i < files.size(); i++) {
+                JsonObject file = files.get(i).getAsJsonObject();
+                String name = file.get("name").getAsString();
+                ZipEntry entry = zip.getEntry(name);
+                assertEquals(name, entry.getSize(), file.get("size").getAsLong());
+                assertEquals(name, entry.getCompressedSize(), file.get("compressedSize").getAsLong());
+                assertEquals(name, Long.toHexString(entry.getCrc()), file.get("crc32").getAsString());
+                assertEquals(name, name.endsWith("12:30.log"), file.get("active").getAsBoolean());
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void export_isReadableAsStream() throws Exception {
+        File root = folder.newFolder();
+        write(new File(root, "Main/a.log"), "a\n".getBytes("UTF-8"));
+        write(new File(root, "Main/b.log.gz"), gzip("b\n".getBytes("UTF-8")));
+        File bundle = new File(folder.newFolder(), "out/export.zip");
+        assertEquals(2, new UELogExporter(root).export(bundle));
+
+        //按顺序读取时需要数据描述中的大小和CRC，读取出错时会抛出异常
+        Map<String, byte[]> entries = new HashMap<>();
+        ZipInputStream in = new ZipInputStream(new FileInputStream(bundle));
+        try {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), readAll(in));
+            }
+        } finally {
+            in.close();
+        }
+        assertEquals(3, entries.size());
+        assertEquals("a\n", new String(entries.get("Main/a.log"), "UTF-8"));
+        assertTrue(entries.containsKey("Main/b.log.gz"));
+        assertTrue(entries.containsKey(UELogExporter.MANIFEST_NAME));
+    }
+
+    @Test
+    public void export_fileLogToolSnapshotIncludesBufferedLogs() throws Exception {
+        File root = folder.newFolder();
+        UEFileLogTool tool = new UEFileLogTool(root).flushInterval(60000);
+        tool.i("Main", "buffered");
+        UELogExporter exporter = new UELogExporter(root);
+        tool.snapshot(exporter);
+        tool.i("Main", "after snapshot");
+        File bundle = new File(folder.newFolder(), "export.zip");
+        assertEquals(1, exporter.export(bundle));
+        tool.close();
+
+        ZipFile zip = new ZipFile(bundle);
+        try {
+            ZipEntry entry = zip.entries().nextElement();
+            String content = readEntry(zip, entry.getName());
+            assertTrue(content, content.contains("buffered"));
+            assertFalse(content, content.contains("after snapshot"));
+        } finally {
+            zip.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(bytes);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String readEntry(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        assertTrue(name, entry != null);
+        InputStream in = zip.getInputStream(entry);
+        try {
+            return new String(readAll(in), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) > 0) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,159 @@
+package com.ueueo.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UELogFileReader}读取边写边压缩的日志文件，末尾不完整时读取到最后一次同步刷新为止
+ */
+public class UELogFileReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void read_closedGzipFile() throws Exception {
+        File file = new File(folder.newFolder(), "complete.log.gz");
+        UEGzipLogFileWriter writer = newWriter(file);
+        writeLines(writer, 0, 100);
+        writer.close();
+
+        String text = read(file);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(line(i), text.contains(line(i)));
+        }
+    }
+
+    @Test
+    public void read_recoversUpToLastSyncFlush() throws Exception {
+        File dir = folder.newFolder();
+        File file = new File(dir, "crashed.log.gz");
+        UEGzipLogFileWriter writer = newWriter(file);
+        writeLines(writer, 0, 50);
+        writer.flush();
+        byte[] flushed = readAll(file);
+        //同步刷新之后的日志只压缩了一部分，进程在这时崩溃
+        writeLines(writer, 50, 200);
+        writer.flush();
+        byte[] all = readAll(file);
+        writer.close();
+
+        File crashed = new File(dir, "tail.log.gz");
+        write(crashed, all, flushed.length + (all.length - flushed.length) / 2);
+        String text = read(crashed);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(line(i), text.contains(line(i)));
+        }
+        assertFalse(text.contains(line(199)));
+        //恢复的内容是完整解压结果的前缀
+        assertTrue(expected(0, 200).startsWith(text));
+
+        File synced = new File(dir, "synced.log.gz");
+        write(synced, flushed, flushed.length);
+        assertEquals(expected(0, 50), read(synced));
+    }
+
+    @Test
+    public void read_stopsAtGzipMemberAppendedAfterCrash() throws Exception {
+        File dir = folder.newFolder();
+        File file = new File(dir, "first.log.gz");
+        UEGzipLogFileWriter writer = newWriter(file);
+        writeLines(writer, 0, 20);
+        writer.flush();
+        byte[] flushed = readAll(file);
+        writer.close();
+
+        //旧版本崩溃后在未结束的数据后面追加了新的gzip数据段
+        ByteArrayOutputStream appended = new ByteArrayOutputStream();
+        appended.write(flushed);
+        GZIPOutputStream gzip = new GZIPOutputStream(appended);
+        gzip.write(line(999).getBytes("UTF-8"));
+        gzip.close();
+        File merged = new File(dir, "merged.log.gz");
+        write(merged, appended.toByteArray(), appended.size());
+
+        String text = read(merged);
+        assertEquals(expected(0, 20), text);
+    }
+
+    @Test
+    public void read_incompleteHeaderIsEmpty() throws Exception {
+        File file = new File(folder.newFolder(), "header.log.gz");
+        write(file, new byte[]{0x1f, (byte) 0x8b, 8}, 3);
+        assertEquals("", read(file));
+    }
+
+    @Test
+    public void read_plainTextFile() throws Exception {
+        File file = new File(folder.newFolder(), "plain.log");
+        byte[] bytes = expected(0, 3).getBytes("UTF-8");
+        write(file, bytes, bytes.length);
+        assertEquals(expected(0, 3), read(file));
+    }
+
+    private static UEGzipLogFileWriter newWriter(File file) throws IOException {
+        return new UEGzipLogFileWriter(file, 1024, 0, new UELogCompressionStats());
+    }
+
+    private static void writeLines(UEGzipLogFileWriter writer, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            writer.write(ByteBuffer.wrap(line(i).getBytes("UTF-8")));
+        }
+    }
+
+    private static String line(int index) {
+        return "line-" + index + " 日志内容 " + (index * 7919) + "\n";
+    }
+
+    private static String expected(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            text.append(line(i));
+        }
+        return text.toString();
+    }
+
+    private static String read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UELogFileReader.copy(file, out);
+        return out.toString("UTF-8");
+    }
+
+    private static void write(File file, byte[] bytes, int length) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes, 0, length);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            input.close();
+        }
+        return out.toByteArray();
+    }
+}
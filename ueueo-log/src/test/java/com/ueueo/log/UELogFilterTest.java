@@ -0,0 +1,81 @@
+package com.ueueo.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link UELogFilter}的限流和重复日志合并
+ */
+public class UELogFilterTest {
+
+    private final long mNow = System.currentTimeMillis();
+
+    @Test
+    public void rateLimit_dropsOverBurstAndReportsDroppedCount() {
+        UELogFilter filter = new UELogFilter(1, 2, 0);
+        assertEquals(0, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 0)));
+        assertEquals(0, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 10)));
+        assertEquals(UELogFilter.REJECT_RATE_LIMIT, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 20)));
+        assertEquals(UELogFilter.REJECT_RATE_LIMIT, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 30)));
+        //1秒后补充一个令牌，低32位是之前被丢弃的数量
+        assertEquals(2, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 1030)));
+        assertEquals(UELogFilter.REJECT_RATE_LIMIT, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 1040)));
+    }
+
+    @Test
+    public void rateLimit_keepsSeparateBucketsPerCallSite() {
+        UELogFilter filter = new UELogFilter(1, 1, 0);
+        assertEquals(0, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 0)));
+        assertEquals(UELogFilter.REJECT_RATE_LIMIT, filter.accept(newEvent("Main.a(Main.java:1)", "tick", 1)));
+        assertEquals(0, filter.accept(newEvent("Main.b(Main.java:2)", "tick", 2)));
+        //没有调用位置时按格式字符串区分
+        assertEquals(0, filter.accept(newEvent(null, "first {}", 3)));
+        assertEquals(0, filter.accept(newEvent(null, "second {}", 4)));
+    }
+
+    @Test
+    public void collapse_countsRepeatsUntilDifferentLog() {
+        UELogFilter filter = new UELogFilter(0, 0, 1000);
+        assertEquals(0, filter.accept(newEvent("Main.a(Main.java:1)", "same", 0)));
+        assertEquals(UELogFilter.REJECT_DUPLICATE, filter.accept(newEvent("Main.a(Main.java:1)", "same", 10)));
+        assertEquals(UELogFilter.REJECT_DUPLICATE, filter.accept(newEvent("Main.a(Main.java:1)", "same", 20)));
+        //高32位是上一条日志被合并的次数
+        assertEquals(2L << 32, filter.accept(newEvent("Main.a(Main.java:1)", "other", 30)));
+        assertEquals(0, filter.accept(newEvent("Main.a(Main.java:1)", "same", 40)));
+    }
+
+    @Test
+    public void collapse_acceptsRepeatAfterWindowOrWithDifferentArgs() {
+        UELogFilter filter = new UELogFilter(0, 0, 100);
+        UELogEvent event = newEvent("Main.a(Main.java:1)", "value={}", 0);
+        event.argCount = 1;
+        event.arg0 = 1;
+        assertEquals(0, filter.accept(event));
+
+        event = newEvent("Main.a(Main.java:1)", "value={}", 10);
+        event.argCount = 1;
+        event.arg0 = 2;
+        assertEquals(0, filter.accept(event));
+
+        event = newEvent("Main.a(Main.java:1)", "value={}", 200);
+        event.argCount = 1;
+        event.arg0 = 2;
+        assertEquals(0, filter.accept(event));
+    }
+
+    private UELogEvent newEvent(String caller, String message, long offsetMillis) {
+        UELogEvent event = new UELogEvent();
+        event.level = UELogLevel.INFO;
+        event.tag = "Filter";
+        event.displayTag = "Filter";
+        event.threadName = "main";
+        event.timeMillis = mNow + offsetMillis;
+        event.message = message;
+        if (caller != null) {
+            event.frames(1)[0] = caller;
+            event.callerFrameCount = 1;
+        }
+        return event;
+    }
+}
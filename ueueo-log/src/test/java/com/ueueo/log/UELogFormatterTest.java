@@ -0,0 +1,30 @@
+package com.ueueo.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link UELogFormatter}选择"{}"占位符还是String.format
+ */
+public class UELogFormatterTest {
+
+    @Test
+    public void format_replacesPlaceholdersInOrder() {
+        assertEquals("a=1 b=x", UELogFormatter.format("a={} b={}", 2, 1, "x", null));
+        assertEquals("a={} b=2", UELogFormatter.format("a=\\{} b={}", 1, 2, null, null));
+        assertEquals("100%! a=1", UELogFormatter.format("100%! a={}", 1, 1, null, null));
+    }
+
+    @Test
+    public void format_usesStringFormatWhenPatternHasConversion() {
+        assertEquals("body={} code=200", UELogFormatter.format("body={} code=%d", 1, 200, null, null));
+        assertEquals("{} 50% ok", UELogFormatter.format("{} %d%% %s", 2, 50, "ok", null));
+        assertEquals("a=1 b=x {}", UELogFormatter.format("a=%1$d b=%2$s {}", 2, null, null, new Object[]{1, "x"}));
+    }
+
+    @Test
+    public void format_returnsPatternWithoutArgs() {
+        assertEquals("body={} code=%d", UELogFormatter.format("body={} code=%d", 0, null, null, null));
+    }
+}
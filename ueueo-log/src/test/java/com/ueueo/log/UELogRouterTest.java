@@ -0,0 +1,136 @@
+package com.ueueo.log;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UELogRouter}按级别、是否输出到文件和Tag规则选择日志工具
+ */
+public class UELogRouterTest {
+
+    @Test
+    public void route_byGlobalAndToolLevel() {
+        UELogTool all = new NoopTool();
+        UELogTool warn = new NoopTool();
+        Map<UELogTool, UELogToolRule> rules = new HashMap<>();
+        rules.put(warn, new UELogToolRule().level(UELogLevel.WARN));
+        UELogRouter router = newRouter(rules, UELogLevel.DEBUG, all, warn);
+
+        assertFalse(router.isLoggable(UELogLevel.VERBOSE));
+        assertTrue(router.isLoggable(UELogLevel.DEBUG));
+        assertEquals(0, router.route(UELogLevel.VERBOSE, false).length);
+        assertEquals(Arrays.asList(all), tools(router.route(UELogLevel.INFO, false)));
+        assertEquals(Arrays.asList(all, warn), tools(router.route(UELogLevel.ERROR, false)));
+        assertEquals(0, router.route(UELogLevel.NONE, false).length);
+    }
+
+    @Test
+    public void route_skipsPrintToFileOnlyToolsForConsoleLogs() {
+        UELogTool console = new NoopTool();
+        UELogTool file = new NoopTool();
+        Map<UELogTool, UELogToolRule> rules = new HashMap<>();
+        rules.put(file, new UELogToolRule().printToFileOnly(true));
+        UELogRouter router = newRouter(rules, UELogLevel.VERBOSE, console, file);
+
+        assertEquals(Arrays.asList(console), tools(router.route(UELogLevel.INFO, false)));
+        assertEquals(Arrays.asList(console, file), tools(router.route(UELogLevel.INFO, true)));
+    }
+
+    @Test
+    public void isLoggable_usesLowestTagLevel() {
+        UELogTool tool = new NoopTool();
+        Map<UELogTool, UELogToolRule> rules = new HashMap<>();
+        rules.put(tool, new UELogToolRule().level(UELogLevel.ERROR).tagLevel("Net*", UELogLevel.DEBUG));
+        UELogRouter router = newRouter(rules, UELogLevel.VERBOSE, tool);
+
+        assertFalse(router.isLoggable(UELogLevel.VERBOSE));
+        assertTrue(router.isLoggable(UELogLevel.DEBUG));
+        UELogRouter.Sink sink = router.route(UELogLevel.DEBUG, false)[0];
+        assertTrue(sink.mTagged);
+        assertTrue(sink.accept(UELogLevel.DEBUG, "NetClient"));
+        assertFalse(sink.accept(UELogLevel.WARN, "Player"));
+        assertTrue(sink.accept(UELogLevel.ERROR, "Player"));
+    }
+
+    @Test
+    public void sinkAccept_appliesIncludeExcludeAndTagLevels() {
+        UELogTool tool = new NoopTool();
+        Map<UELogTool, UELogToolRule> rules = new HashMap<>();
+        rules.put(tool, new UELogToolRule()
+                .level(UELogLevel.INFO)
+                .includeTags("Net*", "Player")
+                .excludeTags("NetHeartbeat")
+                .tagLevel("Player", UELogLevel.WARN)
+                .tagLevel("Player", UELogLevel.VERBOSE));
+        UELogRouter.Sink sink = newRouter(rules, UELogLevel.VERBOSE, tool).getSinks()[0];
+
+        assertTrue(sink.accept(UELogLevel.INFO, "NetClient"));
+        assertFalse(sink.accept(UELogLevel.DEBUG, "NetClient"));
+        assertFalse(sink.accept(UELogLevel.ERROR, "NetHeartbeat"));
+        assertFalse(sink.accept(UELogLevel.ERROR, "Other"));
+        assertFalse(sink.accept(UELogLevel.ERROR, null));
+        //同一个Tag的级别以最先设置的为准
+        assertFalse(sink.accept(UELogLevel.INFO, "Player"));
+        assertTrue(sink.accept(UELogLevel.WARN, "Player"));
+        //第二次判断使用缓存的结果
+        assertTrue(sink.accept(UELogLevel.WARN, "Player"));
+    }
+
+    @Test
+    public void matches_supportsExactPrefixAndWildcard() {
+        assertTrue(UELogRouter.Sink.matches("Net", "Net"));
+        assertFalse(UELogRouter.Sink.matches("Net", "NetClient"));
+        assertTrue(UELogRouter.Sink.matches("Net*", "NetClient"));
+        assertTrue(UELogRouter.Sink.matches("Net*", "Net"));
+        assertFalse(UELogRouter.Sink.matches("Net*", "Ne"));
+        assertTrue(UELogRouter.Sink.matches("*", "Anything"));
+        assertFalse(UELogRouter.Sink.matches(null, "Net"));
+    }
+
+    private static UELogRouter newRouter(Map<UELogTool, UELogToolRule> rules, int logLevel, UELogTool... logTools) {
+        return new UELogRouter(Arrays.asList(logTools), rules, logLevel, new UELogMetrics());
+    }
+
+    private static List<UELogTool> tools(UELogRouter.Sink[] sinks) {
+        List<UELogTool> result = new ArrayList<>();
+        for (UELogRouter.Sink sink : sinks) {
+            result.add(sink.mLogTool);
+        }
+        return result;
+    }
+
+    private static class NoopTool implements UELogTool {
+        @Override
+        public void d(String tag, String message) {
+        }
+
+        @Override
+        public void e(String tag, String message) {
+        }
+
+        @Override
+        public void w(String tag, String message) {
+        }
+
+        @Override
+        public void i(String tag, String message) {
+        }
+
+        @Override
+        public void v(String tag, String message) {
+        }
+
+        @Override
+        public void wtf(String tag, String message) {
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ueueo.log;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 采样只输出部分日志，输出的日志带有采样率
+ */
+public class UELogSamplerTest {
+
+    private static final String NOTE = "[sampled 1/4]";
+
+    @Test
+    public void everyNth_outputsFirstOfEachRatePerSite() {
+        UELogSamplingPolicy policy = UELogSamplingPolicy.everyNth(4);
+        int sampled = 0;
+        for (int i = 0; i < 16; i++) {
+            if (policy.sample(42)) {
+                assertEquals(0, i % 4);
+                sampled++;
+            }
+        }
+        assertEquals(4, sampled);
+        assertTrue(UELogSamplingPolicy.random(1).sample(42));
+        assertFalse(UELogSamplingPolicy.random(1).isDeterministic());
+    }
+
+    @Test
+    public void sample_usesFirstMatchingTagRule() {
+        UELogSampler.Rules rules = new UELogSampler.Rules();
+        assertEquals(null, rules.build());
+        rules.set(UELogLevel.DEBUG, UELogSamplingPolicy.everyNth(2));
+        rules.set("Net*", UELogLevel.DEBUG, UELogSamplingPolicy.everyNth(4));
+        rules.set("NetClient", UELogLevel.DEBUG, UELogSamplingPolicy.everyNth(8));
+        UELogSampler sampler = rules.build();
+
+        assertEquals(4, sampler.sample(UELogLevel.DEBUG, "NetClient", "site"));
+        assertEquals(0, sampler.sample(UELogLevel.DEBUG, "NetClient", "site"));
+        assertEquals(2, sampler.sample(UELogLevel.DEBUG, "Player", "site"));
+        //没有设置采样的级别全部输出
+        assertEquals(1, sampler.sample(UELogLevel.INFO, "NetClient", "site"));
+    }
+
+    @Test
+    public void printer_annotatesSampledLogs() {
+        CaptureTool tool = new CaptureTool();
+        UELogPrinter printer = newPrinter(tool);
+        printer.getLogConfig().sampling(UELogLevel.INFO, UELogSamplingPolicy.everyNth(4));
+        for (int i = 0; i < 8; i++) {
+            printer.i("count {}", i);
+        }
+        printer.w("not sampled");
+
+        assertEquals(3, tool.messages.size());
+        assertTrue(tool.messages.get(0), tool.messages.get(0).contains(NOTE + " count 0"));
+        assertTrue(tool.messages.get(1), tool.messages.get(1).contains(NOTE + " count 4"));
+        assertFalse(tool.messages.get(2), tool.messages.get(2).contains("[sampled"));
+        assertEquals(6, printer.getStats().getSampledCount());
+    }
+
+    @Test
+    public void printer_appendsRateToJsonLogs() {
+        CaptureTool tool = new CaptureTool();
+        UELogPrinter printer = newPrinter(tool);
+        printer.getLogConfig().sampling("Api", UELogLevel.DEBUG, UELogSamplingPolicy.everyNth(4));
+        printer.tag("Api").json("{\"id\":1}");
+        printer.tag("Api").json("{\"id\":2}");
+
+        //排版后的Json按行输出
+        StringBuilder output = new StringBuilder();
+        for (String line : tool.messages) {
+            output.append(line).append('\n');
+        }
+        String message = output.toString();
+        assertTrue(message, message.contains("\"id\": 1"));
+        assertFalse(message, message.contains("\"id\": 2"));
+        //采样率作为拼接内容单独输出，不修改Json内容
+        assertTrue(message, message.contains(NOTE + "\n"));
+        assertFalse(message, message.contains(NOTE + " {"));
+    }
+
+    private static UELogPrinter newPrinter(UELogTool tool) {
+        UELogPrinter printer = new UELogPrinter();
+        UELogConfig config = printer.getLogConfig();
+        for (UELogTool logTool : new ArrayList<>(config.getLogToolList())) {
+            config.removeLogTool(logTool);
+        }
+        config.methodCount(0).metrics(true).addLogTool(tool);
+        return printer;
+    }
+
+    private static class CaptureTool implements UELogTool {
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void d(String tag, String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void e(String tag, String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void w(String tag, String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void i(String tag, String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void v(String tag, String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void wtf(String tag, String message) {
+            messages.add(message);
+        }
+    }
+}
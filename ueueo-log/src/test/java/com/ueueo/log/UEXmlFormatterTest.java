@@ -0,0 +1,99 @@
+package com.ueueo.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UEXmlFormatter}的格式化、校验和截断
+ */
+public class UEXmlFormatterTest {
+
+    private static final String BORDER = "\n║ ";
+
+    @Test
+    public void format_indentsNestedElements() {
+        StringBuilder out = new StringBuilder();
+        assertTrue(UEXmlFormatter.format("<a><b x=\"1\">text</b><c/></a>", out, "\n", 0));
+        assertEquals("<a>\n  <b x=\"1\">text</b>\n  <c/>\n</a>", out.toString());
+    }
+
+    @Test
+    public void format_keepsDeclarationCommentsCdataAndEscapes() {
+        StringBuilder out = new StringBuilder();
+        assertTrue(UEXmlFormatter.format("<?xml version=\"1.0\"?><!-- c --><a t=\"x&amp;&quot;y\"><![CDATA[<raw>]]><b>1 &lt; 2</b></a>",
+                out, BORDER, 0));
+        assertEquals("<?xml version=\"1.0\"?>" + BORDER
+                + "<!-- c -->" + BORDER
+                + "<a t=\"x&amp;&quot;y\"><![CDATA[<raw>]]>" + BORDER
+                + "  <b>1 &lt; 2</b>" + BORDER
+                + "</a>", out.toString());
+    }
+
+    @Test
+    public void format_truncatesAlreadyIndentedXml() {
+        String emoji = new String(Character.toChars(0x1F600));
+        String xml = "<a>\n  <b>" + emoji + emoji + "</b>\n</a>";
+        StringBuilder out = new StringBuilder();
+        //"<a>"和"<b>"共6个字符，第7个字符是第一个表情的前半个
+        assertTrue(UEXmlFormatter.format(xml, out, BORDER, 7));
+        assertEquals("<a>" + BORDER + "  <b>" + BORDER + "... (truncated, " + xml.length() + " chars total)", out.toString());
+        assertNoLoneSurrogate(out);
+    }
+
+    @Test
+    public void format_rejectsMalformedXmlAndRestoresOutput() {
+        StringBuilder out = new StringBuilder("prefix");
+        assertFalse(UEXmlFormatter.format("<a><b></a>", out, "\n", 0));
+        assertEquals("prefix", out.toString());
+    }
+
+    @Test
+    public void format_validatesAlreadyIndentedXml() {
+        String indented = "<a>\n  <b>1</b>\n  <c>\n</a>";
+        StringBuilder out = new StringBuilder();
+        assertFalse(UEXmlFormatter.format(indented, out, "\n", 0));
+        assertEquals(0, out.length());
+
+        String valid = "<a>\n  <b>1</b>\n</a>";
+        assertTrue(UEXmlFormatter.format(valid, out, BORDER, 0));
+        assertEquals("<a>" + BORDER + "  <b>1</b>" + BORDER + "</a>", out.toString());
+    }
+
+    @Test
+    public void truncate_countsOnlyContentAndKeepsSurrogatePairs() {
+        String emoji = new String(Character.toChars(0x1F600));
+        StringBuilder body = new StringBuilder("<root>");
+        for (int i = 0; i < 20; i++) {
+            body.append("<item>").append(emoji).append(emoji).append("</item>");
+        }
+        body.append("</root>");
+        String xml = body.toString();
+        for (int maxLength = 1; maxLength < 80; maxLength++) {
+            StringBuilder plain = new StringBuilder();
+            StringBuilder bordered = new StringBuilder();
+            assertTrue(UEXmlFormatter.format(xml, plain, "\n", maxLength));
+            assertTrue(UEXmlFormatter.format(xml, bordered, BORDER, maxLength));
+            assertTrue(plain.toString(), plain.indexOf("... (truncated, " + xml.length() + " chars total)") > 0);
+            //带边框时截断的位置和不带边框时相同
+            assertEquals(plain.toString(), bordered.toString().replace(BORDER, "\n"));
+            assertNoLoneSurrogate(plain);
+            String content = plain.substring(0, plain.lastIndexOf("\n... (truncated")).replaceAll("\n *", "");
+            assertTrue(content, content.length() <= maxLength && content.length() >= maxLength - 1);
+        }
+    }
+
+    static void assertNoLoneSurrogate(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c)) {
+                assertTrue("lone high surrogate at " + i, i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1)));
+                i++;
+            } else {
+                assertFalse("lone low surrogate at " + i, Character.isLowSurrogate(c));
+            }
+        }
+    }
+}